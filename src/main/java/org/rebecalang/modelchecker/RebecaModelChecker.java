@@ -7,6 +7,7 @@ import java.util.Set;
 import org.rebecalang.compiler.utils.Pair;
 import org.rebecalang.modelchecker.corerebeca.ModelCheckingException;
 import org.rebecalang.modelchecker.corerebeca.State;
+import org.rebecalang.modelchecker.corerebeca.StateSpace;
 
 public class RebecaModelChecker {
 
@@ -65,6 +66,14 @@ public class RebecaModelChecker {
 		}
 	}
 
+	public static void printStateSpaceStatistics(StateSpace stateSpace) {
+		System.out.println("Visited states: " + stateSpace.getStatesCount() +
+				", stored bytes: " + stateSpace.getStoredBytes());
+		if (stateSpace.getOmissionProbability() > 0)
+			System.out.println("Expected coverage: " + stateSpace.getExpectedCoverage() +
+					", omission probability: " + stateSpace.getOmissionProbability());
+	}
+
 	// static public State deepCopy(State oldObj) {
 	// ObjectOutputStream oos = null;
 	// ObjectInputStream ois = null;
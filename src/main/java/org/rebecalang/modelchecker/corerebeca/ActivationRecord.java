@@ -1,35 +1,223 @@
 package org.rebecalang.modelchecker.corerebeca;
 
 import java.io.Serializable;
-import java.util.Hashtable;
+import java.util.Arrays;
 
+/*
+ * Values of the variables of a scope, stored in the slots of the scope's layout. Values of
+ * primitive types are kept unboxed in a lane of raw bits next to the kinds of the slots;
+ * other values are kept in a lane of references which is created on the first of them.
+ * A slot of kind UNDEFINED is a variable which is not defined in the record.
+ *
+ * The lane and kind of a slot whose layout declares a numeric kind are that kind, and
+ * numbers written to it are converted as an assignment to a variable of that type converts
+ * them; the kinds of other slots follow the classes of their values.
+ */
 @SuppressWarnings("serial")
 public class ActivationRecord implements Serializable {
 
-    private Hashtable<String, Object> definedVariables;
+    public static final byte UNDEFINED = 0;
+    public static final byte REFERENCE = 1;
+    public static final byte INT = 2;
+    public static final byte BOOLEAN = 3;
+    public static final byte BYTE = 4;
+    public static final byte SHORT = 5;
+    public static final byte DOUBLE = 6;
+
+    private static final byte[] NO_KINDS = new byte[0];
+    private static final long[] NO_PRIMITIVES = new long[0];
+
+    private FrameLayout layout;
+    private byte[] kinds;
+    private long[] primitives;
+    private Object[] references;
     private ActivationRecord previousScope;
     private String relatedRebecType;
+    private int depth;
+    private long variablesHash;
+
+    public ActivationRecord(FrameLayout layout) {
+        this.layout = layout;
+        this.kinds = layout.size() == 0 ? NO_KINDS : new byte[layout.size()];
+        this.primitives = layout.size() == 0 ? NO_PRIMITIVES : new long[layout.size()];
+    }
+
+    /*
+     * Copies the variables of the record; the previous scope is set by the copied stack.
+     */
+    public ActivationRecord(ActivationRecord activationRecord) {
+        this.layout = activationRecord.layout;
+        this.kinds = activationRecord.kinds.clone();
+        this.primitives = activationRecord.primitives.clone();
+        this.references = activationRecord.references == null ? null : activationRecord.references.clone();
+        this.relatedRebecType = activationRecord.relatedRebecType;
+        this.depth = activationRecord.depth;
+        this.variablesHash = activationRecord.variablesHash;
+    }
 
     public void setVariableValue(String name, Object value) {
-        definedVariables.put(name, value);
+        addVariable(name, value);
     }
 
     public Object getVariableValue(String name) {
-        return definedVariables.get(name);
+        int slot = layout.getSlot(name);
+        return slot < 0 ? null : getValue(slot);
     }
 
     public void addVariable(String name, Object valueObject) {
-        definedVariables.put(name, valueObject);
+        int slot = layout.getSlot(name);
+        if (slot < 0)
+            slot = layout.addSlot(name);
+        setValue(slot, valueObject);
+    }
+
+    public byte getKind(int slot) {
+        return slot < kinds.length ? kinds[slot] : UNDEFINED;
+    }
+
+    /*
+     * Raw bits of the value of a primitive slot: the value itself for integral kinds and
+     * booleans, which are 1 or 0, and the long bits of doubles.
+     */
+    public long getPrimitive(int slot) {
+        return primitives[slot];
+    }
+
+    public Object getValue(int slot) {
+        switch (getKind(slot)) {
+            case UNDEFINED:
+                return null;
+            case INT:
+                return (int) primitives[slot];
+            case BOOLEAN:
+                return primitives[slot] != 0;
+            case BYTE:
+                return (byte) primitives[slot];
+            case SHORT:
+                return (short) primitives[slot];
+            case DOUBLE:
+                return Double.longBitsToDouble(primitives[slot]);
+            default:
+                return references[slot];
+        }
+    }
+
+    public void setValue(int slot, Object value) {
+        byte declaredKind = layout.getDeclaredKind(slot);
+        if (value instanceof Number && isNumeric(declaredKind))
+            setSlot(slot, declaredKind, bitsOf(declaredKind, (Number) value), null);
+        else if (value == null)
+            setSlot(slot, UNDEFINED, 0, null);
+        else if (value instanceof Integer)
+            setSlot(slot, INT, (Integer) value, null);
+        else if (value instanceof Boolean)
+            setSlot(slot, BOOLEAN, (Boolean) value ? 1 : 0, null);
+        else if (value instanceof Byte)
+            setSlot(slot, BYTE, (Byte) value, null);
+        else if (value instanceof Short)
+            setSlot(slot, SHORT, (Short) value, null);
+        else if (value instanceof Double)
+            setSlot(slot, DOUBLE, Double.doubleToLongBits((Double) value), null);
+        else
+            setSlot(slot, REFERENCE, 0, value);
+    }
+
+    public void setPrimitive(int slot, byte kind, long bits) {
+        byte declaredKind = layout.getDeclaredKind(slot);
+        if (declaredKind != kind && isNumeric(kind) && isNumeric(declaredKind))
+            setSlot(slot, declaredKind, bitsOf(declaredKind, kind == DOUBLE ?
+                    (Number) Double.longBitsToDouble(bits) : (Number) bits), null);
+        else
+            setSlot(slot, kind, bits, null);
+    }
+
+    /*
+     * Sets the slot to a value read from it before, as it was.
+     */
+    void restoreSlot(int slot, byte kind, long bits, Object reference) {
+        setSlot(slot, kind, bits, reference);
+    }
+
+    private static boolean isNumeric(byte kind) {
+        return kind == INT || kind == BYTE || kind == SHORT || kind == DOUBLE;
+    }
+
+    private static long bitsOf(byte numericKind, Number value) {
+        switch (numericKind) {
+            case INT:
+                return value.intValue();
+            case BYTE:
+                return value.byteValue();
+            case SHORT:
+                return value.shortValue();
+            default:
+                return Double.doubleToLongBits(value.doubleValue());
+        }
+    }
+
+    private void setSlot(int slot, byte kind, long bits, Object reference) {
+        if (slot >= kinds.length) {
+            kinds = Arrays.copyOf(kinds, layout.size());
+            primitives = Arrays.copyOf(primitives, layout.size());
+        }
+        if (kinds[slot] != UNDEFINED)
+            variablesHash -= variableHash(slot);
+        if (reference != null) {
+            if (references == null)
+                references = new Object[kinds.length];
+            else if (slot >= references.length)
+                references = Arrays.copyOf(references, kinds.length);
+            references[slot] = reference;
+        } else if (references != null && slot < references.length) {
+            references[slot] = null;
+        }
+        kinds[slot] = kind;
+        primitives[slot] = bits;
+        if (kind != UNDEFINED)
+            variablesHash += variableHash(slot);
+    }
+
+    private long variableHash(int slot) {
+        long bits = primitives[slot];
+        long valueFingerprint;
+        switch (kinds[slot]) {
+            case INT:
+                valueFingerprint = FingerprintUtilities.fingerprintOfInt((int) bits);
+                break;
+            case BOOLEAN:
+                valueFingerprint = FingerprintUtilities.fingerprintOfBoolean(bits != 0);
+                break;
+            case BYTE:
+                valueFingerprint = FingerprintUtilities.fingerprintOfByte((byte) bits);
+                break;
+            case SHORT:
+                valueFingerprint = FingerprintUtilities.fingerprintOfShort((short) bits);
+                break;
+            case DOUBLE:
+                valueFingerprint = FingerprintUtilities.fingerprintOfDouble(Double.longBitsToDouble(bits));
+                break;
+            default:
+                valueFingerprint = FingerprintUtilities.fingerprintOfValue(references[slot]);
+        }
+        return FingerprintUtilities.combine(layout.getNameFingerprint(slot), valueFingerprint);
+    }
+
+    /*
+     * Order independent sum of the variables' hashes, maintained on every write.
+     */
+    public long fingerprint() {
+        return FingerprintUtilities.mix(variablesHash);
     }
 
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + ((definedVariables == null) ? 0 : definedVariables.hashCode());
-        return result;
+        return Long.hashCode(fingerprint());
     }
 
+    /*
+     * Records are equal if they define the same variables with equal values; records of
+     * the same scope share their layout and are compared slot by slot.
+     */
     @Override
     public boolean equals(Object obj) {
         if (this == obj)
@@ -39,17 +227,42 @@ public class ActivationRecord implements Serializable {
         if (getClass() != obj.getClass())
             return false;
         ActivationRecord other = (ActivationRecord) obj;
-        if (definedVariables == null) {
-            return other.definedVariables == null;
-        } else return definedVariables.equals(other.definedVariables);
+        if (layout == other.layout) {
+            int slotsCount = Math.max(kinds.length, other.kinds.length);
+            for (int slot = 0; slot < slotsCount; slot++) {
+                byte kind = getKind(slot);
+                if (kind != other.getKind(slot))
+                    return false;
+                if (kind == REFERENCE) {
+                    if (!FingerprintUtilities.valueEquals(references[slot], other.references[slot]))
+                        return false;
+                } else if (kind != UNDEFINED && primitives[slot] != other.primitives[slot]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (getVariablesCount() != other.getVariablesCount())
+            return false;
+        for (int slot = 0; slot < kinds.length; slot++)
+            if (kinds[slot] != UNDEFINED &&
+                    !FingerprintUtilities.valueEquals(getValue(slot), other.getVariableValue(layout.getName(slot))))
+                return false;
+        return true;
     }
 
-    public void initialize() {
-        definedVariables = new Hashtable<>();
+    public int getVariablesCount() {
+        int variablesCount = 0;
+        for (byte kind : kinds)
+            if (kind != UNDEFINED)
+                variablesCount++;
+        return variablesCount;
     }
 
     public void remove(String varName) {
-        definedVariables.remove(varName);
+        int slot = layout.getSlot(varName);
+        if (slot >= 0 && slot < kinds.length)
+            setValue(slot, null);
     }
 
     public ActivationRecord getPreviousScope() {
@@ -60,8 +273,32 @@ public class ActivationRecord implements Serializable {
         this.previousScope = previousScope;
     }
 
+    public FrameLayout getLayout() {
+        return layout;
+    }
+
+    /*
+     * Number of the slots which the record has values for; the slots after them are not
+     * defined.
+     */
+    public int getSlotsCount() {
+        int slotsCount = kinds.length;
+        while (slotsCount > 0 && kinds[slotsCount - 1] == UNDEFINED)
+            slotsCount--;
+        return slotsCount;
+    }
+
     public boolean hasVariable(String varName) {
-        return definedVariables.containsKey(varName);
+        int slot = layout.getSlot(varName);
+        return slot >= 0 && getKind(slot) != UNDEFINED;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
     }
 
     public String getRelatedRebecType() {
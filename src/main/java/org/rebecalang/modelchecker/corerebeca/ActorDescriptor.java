@@ -0,0 +1,101 @@
+package org.rebecalang.modelchecker.corerebeca;
+
+import org.rebecalang.compiler.modelcompiler.corerebeca.CoreRebecaTypeSystem;
+
+import java.io.Serializable;
+
+/*
+ * Identity of an actor which does not change during model checking. One descriptor is
+ * created per actor and is shared by the states of that actor in all global states, so
+ * it is never copied and its hashes are computed once. It also refers to the RIL program of
+ * the model, which the actor executes, and to its frame layouts.
+ *
+ * Descriptors are also the values of actor references (known rebecs, self, sender and
+ * message senders). A reference is resolved to the actor's state in a global state by
+ * its id, which is the index of the actor in the states' dense actor array.
+ */
+@SuppressWarnings("serial")
+public final class ActorDescriptor implements Serializable {
+    private final int id;
+    private final String name;
+    private final String typeName;
+    private final CoreRebecaTypeSystem typeSystem;
+    private final RILProgram program;
+    private final int classId;
+    private final long nameFingerprint;
+    private final long fingerprint;
+
+    public ActorDescriptor(int id, String name, String typeName, CoreRebecaTypeSystem typeSystem,
+                           RILProgram program) {
+        this.id = id;
+        this.name = name;
+        this.typeName = typeName;
+        this.typeSystem = typeSystem;
+        this.program = program;
+        this.classId = program.getClassId(typeName);
+        this.nameFingerprint = FingerprintUtilities.fingerprint(name);
+        this.fingerprint = FingerprintUtilities.combine(nameFingerprint, FingerprintUtilities.fingerprint(typeName));
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getTypeName() {
+        return typeName;
+    }
+
+    public CoreRebecaTypeSystem getTypeSystem() {
+        return typeSystem;
+    }
+
+    public int getClassId() {
+        return classId;
+    }
+
+    public RILProgram getProgram() {
+        return program;
+    }
+
+    public FrameLayouts getFrameLayouts() {
+        return program.getFrameLayouts();
+    }
+
+    public long getNameFingerprint() {
+        return nameFingerprint;
+    }
+
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(fingerprint);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        ActorDescriptor other = (ActorDescriptor) obj;
+        if (id != other.id)
+            return false;
+        if (name == null) {
+            if (other.name != null)
+                return false;
+        } else if (!name.equals(other.name))
+            return false;
+        if (typeName == null) {
+            return other.typeName == null;
+        } else return typeName.equals(other.typeName);
+    }
+}
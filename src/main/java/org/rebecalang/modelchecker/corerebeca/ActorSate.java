@@ -1,34 +1,45 @@
 package org.rebecalang.modelchecker.corerebeca;
 
-import org.rebecalang.compiler.modelcompiler.corerebeca.CoreRebecaTypeSystem;
-import org.rebecalang.compiler.modelcompiler.corerebeca.objectmodel.ReactiveClassDeclaration;
-import org.rebecalang.compiler.modelcompiler.corerebeca.objectmodel.Type;
-import org.rebecalang.compiler.utils.CodeCompilationException;
+import org.rebecalang.modelchecker.corerebeca.bytecode.CompiledMethod;
 import org.rebecalang.modelchecker.corerebeca.policy.AbstractPolicy;
-import org.rebecalang.modelchecker.corerebeca.rilinterpreter.InstructionInterpreter;
-import org.rebecalang.modelchecker.corerebeca.rilinterpreter.InstructionUtilities;
 import org.rebecalang.modelchecker.corerebeca.rilinterpreter.ProgramCounter;
-import org.rebecalang.modeltransformer.ril.RILModel;
 import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.InstructionBean;
 
 import java.util.LinkedList;
 
 public class ActorSate extends BaseActorState {
     private LinkedList<MessageSpecification> queue;
+    /*
+     * Sum of the messages' hashes, each multiplied by QUEUE_BASE to the power of its
+     * position from the head of the queue; tailPower is QUEUE_BASE to the queue size.
+     */
+    private long queueHash;
+    private long tailPower;
 
     public ActorSate() {
         setQueue(new LinkedList<>());
     }
 
+    public ActorSate(ActorSate actorSate) {
+        super(actorSate);
+        this.queue = new LinkedList<>(actorSate.queue);
+        this.queueHash = actorSate.queueHash;
+        this.tailPower = actorSate.tailPower;
+    }
+
+    @Override
+    public ActorSate copy() {
+        return new ActorSate(this);
+    }
+
+    @Override
+    protected long queueFingerprint() {
+        return queueHash;
+    }
+
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + ((actorScopeStack == null) ? 0 : actorScopeStack.hashCode());
-        result = prime * result + ((name == null) ? 0 : name.hashCode());
-        result = prime * result + ((queue == null) ? 0 : queue.hashCode());
-        result = prime * result + ((typeName == null) ? 0 : typeName.hashCode());
-        return result;
+        return Long.hashCode(fingerprint());
     }
 
     @Override
@@ -45,19 +56,22 @@ public class ActorSate extends BaseActorState {
                 return false;
         } else if (!actorScopeStack.equals(other.actorScopeStack))
             return false;
-        if (name == null) {
-            if (other.name != null)
+        if (descriptor == null) {
+            if (other.descriptor != null)
+                return false;
+        } else if (!descriptor.equals(other.descriptor))
+            return false;
+        if (pc == null) {
+            if (other.pc != null)
                 return false;
-        } else if (!name.equals(other.name))
+        } else if (!pc.equals(other.pc))
             return false;
         if (queue == null) {
             if (other.queue != null)
                 return false;
         } else if (!queue.equals(other.queue))
             return false;
-        if (typeName == null) {
-            return other.typeName == null;
-        } else return typeName.equals(other.typeName);
+        return true;
     }
 
     public MessageSpecification getMessage() {
@@ -70,11 +84,42 @@ public class ActorSate extends BaseActorState {
 
     public void setQueue(LinkedList<MessageSpecification> queue) {
         this.queue = queue;
+        queueHash = 0;
+        tailPower = 1;
+        for (MessageSpecification msgSpec : queue) {
+            queueHash += msgSpec.fingerprint() * tailPower;
+            tailPower *= FingerprintUtilities.QUEUE_BASE;
+        }
     }
 
     @Override
     public void addToQueue(MessageSpecification msgSpec) {
+        if (undoLog != null)
+            undoLog.recordQueueAdd(this, queueHash, tailPower);
         queue.add(msgSpec);
+        queueHash += msgSpec.fingerprint() * tailPower;
+        tailPower *= FingerprintUtilities.QUEUE_BASE;
+    }
+
+    private MessageSpecification pollFromQueue() {
+        MessageSpecification msgSpec = queue.poll();
+        if (undoLog != null)
+            undoLog.recordQueuePoll(this, msgSpec, queueHash, tailPower);
+        queueHash = (queueHash - msgSpec.fingerprint()) * FingerprintUtilities.QUEUE_BASE_INVERSE;
+        tailPower *= FingerprintUtilities.QUEUE_BASE_INVERSE;
+        return msgSpec;
+    }
+
+    void undoAddToQueue(long hash, long power) {
+        queue.removeLast();
+        queueHash = hash;
+        tailPower = power;
+    }
+
+    void undoPollFromQueue(MessageSpecification msgSpec, long hash, long power) {
+        queue.addFirst(msgSpec);
+        queueHash = hash;
+        tailPower = power;
     }
 
     @Override
@@ -82,70 +127,30 @@ public class ActorSate extends BaseActorState {
         return queue.isEmpty();
     }
 
-    public void execute(State state, RILModel transformedRILModel,
-                        AbstractPolicy policy) {
+    public void execute(State state, AbstractPolicy policy) {
 
+        RILProgram program = getProgram();
         do {
-            if (variableIsDefined(InstructionUtilities.PC_STRING)) {
+            if (isBusy()) {
                 ProgramCounter pc = getPC();
-
-                String methodName = pc.getMethodName();
-                Type currentType = null;
-                try {
-                    currentType = typeSystem.getType(pc.getMethodName().split("\\.")[0]);
-                } catch (CodeCompilationException e) {
-                    e.printStackTrace();
+                CompiledMethod compiledMethod = program.getCompiledMethod(pc.getMethodId());
+                if (compiledMethod != null) {
+                    compiledMethod.execute(this, state, policy, pc.getLineNumber());
+                } else {
+                    InstructionBean instruction = program.getInstruction(pc.getMethodId(), pc.getLineNumber());
+                    policy.executedInstruction(instruction);
+                    program.getInterpreter(pc.getMethodId(), pc.getLineNumber()).interpret(instruction, this, state);
                 }
 
-                while (transformedRILModel.getInstructionList(methodName) == null) {
-                    try {
-                        ReactiveClassDeclaration rcd = (ReactiveClassDeclaration)typeSystem.getMetaData(currentType);
-                        if (rcd.getExtends() == null)
-                            break;
-                        currentType = rcd.getExtends();
-                        methodName = currentType.getTypeName() + "." + pc.getMethodName().split("\\.")[1];
-                    } catch (CodeCompilationException e) {
-                        e.printStackTrace();
-                    }
-                }
-
-                int lineNumber = pc.getLineNumber();
-
-                InstructionBean instruction = transformedRILModel.getInstructionList(methodName).get(lineNumber);
-                InstructionInterpreter interpreter = StatementInterpreterContainer.getInstance()
-                        .retrieveInterpreter(instruction);
-                policy.executedInstruction(instruction);
-                interpreter.interpret(instruction, this, state);
-
             } else if (!queue.isEmpty()) {
-                MessageSpecification executableMessage = queue.poll();
+                MessageSpecification executableMessage = pollFromQueue();
                 policy.pick(executableMessage);
 
-
-                String msgName = executableMessage.getMessageName();
-                Type currentType = null;
-                try {
-                    currentType = typeSystem.getType(executableMessage.getMessageName().split("\\.")[0]);
-                } catch (CodeCompilationException e) {
-                    e.printStackTrace();
-                }
-
-                while (!transformedRILModel.getMethodNames().contains(msgName)) {
-                    try {
-                        ReactiveClassDeclaration rcd = (ReactiveClassDeclaration)typeSystem.getMetaData(currentType);
-                        if (rcd.getExtends() == null)
-                            break;
-                        currentType = rcd.getExtends();
-                        msgName = currentType.getTypeName() + "." + executableMessage.getMessageName().split("\\.")[1];
-                    } catch (CodeCompilationException e) {
-                        e.printStackTrace();
-                    }
-                }
-
-                String relatedRebecType = msgName.split("\\.")[0];
-                actorScopeStack.pushInScopeStack(getTypeName(), relatedRebecType);
-                addVariableToRecentScope("sender", executableMessage.getSenderActorState());
-                initializePC(msgName, 0);
+                int methodId = program.getMethodId(executableMessage);
+                actorScopeStack.pushInScopeStack(getTypeName(), program.getClassName(methodId),
+                        program.getMethodLayout(methodId));
+                addVariableToRecentScope("sender", executableMessage.getSender());
+                initializePC(methodId, 0);
 
             } else
                 throw new RebecaRuntimeInterpreterException("this case should not happen!");
@@ -9,16 +9,38 @@ import java.util.NoSuchElementException;
 public class ActorScopeStack implements Serializable {
 
     LinkedList<ActivationRecord> activationRecords;
+    long recordsHash;
+    private transient UndoLog undoLog;
+    private transient BaseActorState undoActorState;
+
+    public ActorScopeStack() {
+    }
+
+    /*
+     * Copies the records, keeping each copied record linked to the copy of its previous scope.
+     */
+    public ActorScopeStack(ActorScopeStack actorScopeStack) {
+        activationRecords = new LinkedList<>();
+        ActivationRecord[] recordCopies = new ActivationRecord[actorScopeStack.activationRecords.size()];
+        for (ActivationRecord activationRecord : actorScopeStack.activationRecords) {
+            ActivationRecord recordCopy = new ActivationRecord(activationRecord);
+            ActivationRecord previousScope = activationRecord.getPreviousScope();
+            if (previousScope != null)
+                recordCopy.setPreviousScope(recordCopies[previousScope.getDepth()]);
+            recordCopies[recordCopy.getDepth()] = recordCopy;
+            activationRecords.addLast(recordCopy);
+        }
+        recordsHash = actorScopeStack.recordsHash;
+    }
 
     public boolean variableIsDefined(String varName) {
-        try {
-            retrieveVariableValue(varName);
-            return true;
-        } catch (RebecaRuntimeInterpreterException e) {
-//            e.printStackTrace();
+        ActivationRecord cursor = activationRecords.isEmpty() ? null : activationRecords.getLast();
+        while (cursor != null) {
+            if (cursor.hasVariable(varName))
+                return true;
+            cursor = cursor.getPreviousScope();
         }
         return false;
-
     }
 
     public Object retrieveVariableValue(String varName) {
@@ -32,12 +54,72 @@ public class ActorScopeStack implements Serializable {
         throw new RebecaRuntimeInterpreterException("Failure in retrieving variable " + varName + " from scope");
     }
 
+    /*
+     * Reads the variable at its resolved address; if the addressed record is not the one the
+     * variable was resolved to or the variable is not defined in it yet, it is looked up by name.
+     */
+    public Object retrieveVariableValue(VariableAddress address, String varName) {
+        ActivationRecord cursor = addressedRecord(address);
+        if (cursor != null) {
+            Object variableValue = cursor.getValue(address.getSlot());
+            if (variableValue != null)
+                return variableValue;
+        }
+        return retrieveVariableValue(varName);
+    }
+
+    public void setVariableValue(VariableAddress address, String varName, Object valueObject) {
+        ActivationRecord cursor = getDefiningRecord(address);
+        if (cursor != null) {
+            recordWrite(cursor, address.getSlot());
+            recordsHash -= recordHash(cursor);
+            cursor.setValue(address.getSlot(), valueObject);
+            recordsHash += recordHash(cursor);
+            return;
+        }
+        setVariableValue(varName, valueObject);
+    }
+
+    /*
+     * Returns the record which defines the variable at its resolved address, or null if the
+     * variable has to be looked up by name.
+     */
+    public ActivationRecord getDefiningRecord(VariableAddress address) {
+        ActivationRecord cursor = addressedRecord(address);
+        return cursor != null && cursor.getKind(address.getSlot()) != ActivationRecord.UNDEFINED ? cursor : null;
+    }
+
+    /*
+     * Writes a primitive value to the variable at its resolved address without boxing it;
+     * returns false, writing nothing, if the variable is not defined at its address.
+     */
+    public boolean setPrimitiveValue(VariableAddress address, byte kind, long bits) {
+        ActivationRecord cursor = getDefiningRecord(address);
+        if (cursor == null)
+            return false;
+        recordWrite(cursor, address.getSlot());
+        recordsHash -= recordHash(cursor);
+        cursor.setPrimitive(address.getSlot(), kind, bits);
+        recordsHash += recordHash(cursor);
+        return true;
+    }
+
+    private ActivationRecord addressedRecord(VariableAddress address) {
+        ActivationRecord cursor = activationRecords.getLast();
+        for (int hops = address.getHops(); hops > 0 && cursor != null; hops--)
+            cursor = cursor.getPreviousScope();
+        return cursor != null && cursor.getLayout() == address.getLayout() ? cursor : null;
+    }
+
     public void setVariableValue(String varName, Object valueObject) {
 
         ActivationRecord cursor = activationRecords.getLast();
         do {
             if (cursor.hasVariable(varName)) {
+                recordWrite(cursor, varName);
+                recordsHash -= recordHash(cursor);
                 cursor.setVariableValue(varName, valueObject);
+                recordsHash += recordHash(cursor);
                 return;
             }
         } while ((cursor = cursor.getPreviousScope()) != null);
@@ -47,17 +129,22 @@ public class ActorScopeStack implements Serializable {
 
     public void addVariable(String name, Object valueObject) {
         ActivationRecord cursor = activationRecords.getLast();
+        recordWrite(cursor, name);
+        recordsHash -= recordHash(cursor);
         cursor.addVariable(name, valueObject);
+        recordsHash += recordHash(cursor);
     }
 
     public void addVariable(String name, Object valueObject, int index) {
         ActivationRecord cursor = activationRecords.get(index);
+        recordWrite(cursor, name);
+        recordsHash -= recordHash(cursor);
         cursor.addVariable(name, valueObject);
+        recordsHash += recordHash(cursor);
     }
 
-    public void pushInScopeStack(String relatedRebecType) {
-        ActivationRecord newRecord = new ActivationRecord();
-        newRecord.initialize();
+    public void pushInScopeStack(String relatedRebecType, FrameLayout layout) {
+        ActivationRecord newRecord = new ActivationRecord(layout);
         ActivationRecord last = null;
         try {
             last = activationRecords.getLast();
@@ -66,37 +153,114 @@ public class ActorScopeStack implements Serializable {
         }
         newRecord.setPreviousScope(last);
         newRecord.setRelatedRebecType(relatedRebecType);
-        activationRecords.addLast(newRecord);
+        pushActivationRecord(newRecord);
     }
 
-    public void pushInScopeStack(String relatedRebecType, String previousRebecType) {
-        ActivationRecord newRecord = new ActivationRecord();
-        newRecord.initialize();
+    /*
+     * Pushes the record of a message server or a method, linked to the record of the class
+     * which defines it; records of classes are the first ones in the stack.
+     */
+    public void pushInScopeStack(String relatedRebecType, String previousRebecType, FrameLayout layout) {
+        ActivationRecord newRecord = new ActivationRecord(layout);
         ActivationRecord prev = null;
         for (ActivationRecord record: activationRecords) {
             if (record.getRelatedRebecType().equals(previousRebecType)) {
                 prev = record;
+                break;
             }
         }
         newRecord.setPreviousScope(prev);
         newRecord.setRelatedRebecType(relatedRebecType);
-        activationRecords.addLast(newRecord);
+        pushActivationRecord(newRecord);
+    }
+
+    public void pushActivationRecord(ActivationRecord activationRecord) {
+        if (undoLog != null)
+            undoLog.recordScopePush(undoActorState, this);
+        activationRecord.setDepth(activationRecords.size());
+        activationRecords.addLast(activationRecord);
+        recordsHash += recordHash(activationRecord);
     }
 
     public void popFromScopeStack() {
-        activationRecords.removeLast();
+        if (undoLog != null)
+            undoLog.recordScopePop(undoActorState, this, activationRecords.getLast());
+        recordsHash -= recordHash(activationRecords.removeLast());
     }
 
     public void initialize() {
         activationRecords = new LinkedList<>();
+        recordsHash = 0;
+    }
+
+    /*
+     * Changes of the stack are recorded in the undo log, if any, as changes of the given
+     * actor state while the transitions of the actor are executed in place; copies of the
+     * stack are not.
+     */
+    public void setUndoLog(UndoLog undoLog, BaseActorState actorState) {
+        this.undoLog = undoLog;
+        this.undoActorState = undoLog == null ? null : actorState;
+    }
+
+    /*
+     * Records the value of the slot of the record, and the hash of the records, before the
+     * slot is written.
+     */
+    private void recordWrite(ActivationRecord record, int slot) {
+        if (undoLog != null)
+            undoLog.recordSlotWrite(undoActorState, this, record, slot);
+    }
+
+    /*
+     * Records the value of the variable of the record, and the hash of the records, before
+     * the variable is written; the variable may not have a slot in the record's layout yet.
+     */
+    private void recordWrite(ActivationRecord record, String varName) {
+        if (undoLog == null)
+            return;
+        int slot = record.getLayout().getSlot(varName);
+        if (slot < 0)
+            slot = record.getLayout().addSlot(varName);
+        undoLog.recordSlotWrite(undoActorState, this, record, slot);
+    }
+
+    void undoWrite(ActivationRecord record, int slot, byte kind, long bits, Object reference, long hash) {
+        record.restoreSlot(slot, kind, bits, reference);
+        recordsHash = hash;
+    }
+
+    void undoPush(long hash) {
+        activationRecords.removeLast();
+        recordsHash = hash;
+    }
+
+    void undoPop(ActivationRecord activationRecord, long hash) {
+        activationRecords.addLast(activationRecord);
+        recordsHash = hash;
+    }
+
+    private static long recordHash(ActivationRecord activationRecord) {
+        ActivationRecord previousScope = activationRecord.getPreviousScope();
+        long result = FingerprintUtilities.combine(activationRecord.getDepth(),
+                FingerprintUtilities.fingerprint(activationRecord.getRelatedRebecType()));
+        result = FingerprintUtilities.combine(result, previousScope == null ? -1 : previousScope.getDepth());
+        return FingerprintUtilities.combine(result, activationRecord.fingerprint());
+    }
+
+    /*
+     * Sum of the records' hashes, each tagged with its depth; maintained on every change
+     * of the stack or of a variable in it.
+     */
+    public long fingerprint() {
+        if (activationRecords == null)
+            return 0;
+        return FingerprintUtilities.combine(activationRecords.size(), recordsHash);
     }
 
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + ((activationRecords == null) ? 0 : activationRecords.hashCode());
-        return result;
+        return Long.hashCode(fingerprint());
     }
 
     @Override
@@ -117,7 +281,10 @@ public class ActorScopeStack implements Serializable {
         ActivationRecord cursor = activationRecords.getLast();
         do {
             if (cursor.hasVariable(varName)) {
+                recordWrite(cursor, varName);
+                recordsHash -= recordHash(cursor);
                 cursor.remove(varName);
+                recordsHash += recordHash(cursor);
                 return;
             }
         } while ((cursor = cursor.getPreviousScope()) != null);
@@ -11,9 +11,40 @@ import java.io.Serializable;
 @SuppressWarnings("serial")
 public abstract class BaseActorState implements Serializable {
     protected ActorScopeStack actorScopeStack;
-    protected String name;
-    protected String typeName;
-    protected CoreRebecaTypeSystem typeSystem;
+    protected ActorDescriptor descriptor;
+    protected ProgramCounter pc;
+    /*
+     * Log of the changes of the actor state while its transitions are executed in place.
+     */
+    protected transient UndoLog undoLog;
+
+    public BaseActorState() {
+    }
+
+    /*
+     * Copies the scope stack of the given actor state and shares its descriptor; values of
+     * the variables and program counters are immutable, so they are shared.
+     */
+    protected BaseActorState(BaseActorState baseActorState) {
+        this.descriptor = baseActorState.descriptor;
+        this.pc = baseActorState.pc;
+        this.actorScopeStack = baseActorState.actorScopeStack == null ? null :
+                new ActorScopeStack(baseActorState.actorScopeStack);
+    }
+
+    public long fingerprint() {
+        long result = (descriptor == null) ? 0 : descriptor.fingerprint();
+        result = FingerprintUtilities.combine(result, (actorScopeStack == null) ? 0 : actorScopeStack.fingerprint());
+        result = FingerprintUtilities.combine(result, (pc == null) ? 0 : pc.fingerprint());
+        return FingerprintUtilities.combine(result, queueFingerprint());
+    }
+
+    protected abstract long queueFingerprint();
+
+    /*
+     * Returns a copy of this actor state which can be modified without affecting this one.
+     */
+    public abstract BaseActorState copy();
 
     @Override
     public abstract int hashCode();
@@ -27,45 +58,81 @@ public abstract class BaseActorState implements Serializable {
 
     public abstract MessageSpecification getMessage();
 
-    public void initializePC(String methodName, int lineNum) {
-//		String location = getLocationName(methodName);
-        addVariableToRecentScope(InstructionUtilities.PC_STRING, new ProgramCounter(methodName, lineNum));
+    /*
+     * An actor is busy while it executes a message server or a constructor; its program
+     * counter is kept in a field of the actor state, out of the scope stack, and is null
+     * while the actor is idle.
+     */
+    public boolean isBusy() {
+        return pc != null;
+    }
+
+    /*
+     * Starts the method whose record is the recent scope. If the actor is busy, the method
+     * is called by the one it executes and the record keeps the current program counter
+     * in its PC slot, as the address the method returns to.
+     */
+    public void initializePC(int methodId, int lineNum) {
+        if (pc != null)
+            addVariableToRecentScope(InstructionUtilities.PC_STRING, pc);
         addVariableToRecentScope(AbstractExpressionTranslator.RETURN_VALUE, 0);
+        setPC(methodId, lineNum);
+    }
+
+    /*
+     * Pops the record of the method which ends and continues at the address it returns to;
+     * the actor becomes idle if the method was not called by another one.
+     */
+    public void returnFromMethod() {
+        changePC((ProgramCounter) actorScopeStack.getActivationRecords().getLast()
+                .getVariableValue(InstructionUtilities.PC_STRING));
+        popFromActorScope();
     }
 
     public void clearPC() {
-        actorScopeStack.removeVariable(InstructionUtilities.PC_STRING);
+        changePC(null);
     }
 
-    public void setPC(String methodName, int lineNum) {
-        ProgramCounter pc = (ProgramCounter) retrieveVariableValue(InstructionUtilities.PC_STRING);
-        pc.setLineNumber(lineNum);
-        pc.setMethodName(methodName);
+    public void setPC(int methodId, int lineNum) {
+        changePC(getProgram().getProgramCounter(methodId, lineNum));
     }
 
     public void increasePC() {
-        ProgramCounter pc = (ProgramCounter) retrieveVariableValue(InstructionUtilities.PC_STRING);
-        pc.setLineNumber(pc.getLineNumber() + 1);
+        changePC(getProgram().getProgramCounter(pc.getMethodId(), pc.getLineNumber() + 1));
+    }
+
+    private void changePC(ProgramCounter newPC) {
+        if (undoLog != null)
+            undoLog.recordPCChange(this, pc);
+        pc = newPC;
+    }
+
+    void undoPCChange(ProgramCounter oldPC) {
+        pc = oldPC;
     }
 
     public ProgramCounter getPC() {
-        return (ProgramCounter) retrieveVariableValue(InstructionUtilities.PC_STRING);
+        return pc;
     }
 
-    public String getName() {
-        return name;
+    public ActorDescriptor getDescriptor() {
+        return descriptor;
     }
 
-    public void setName(String name) {
-        this.name = name;
+    public void setDescriptor(ActorDescriptor descriptor) {
+        this.descriptor = descriptor;
+    }
+
+    public String getName() {
+        return descriptor.getName();
     }
 
-    public void pushInActorScope(String relatedRebecType) {
-        actorScopeStack.pushInScopeStack(relatedRebecType);
+    public void pushInActorScope(String relatedRebecType, FrameLayout layout) {
+        actorScopeStack.pushInScopeStack(relatedRebecType, layout);
     }
 
-    public void pushInActorScope(String relatedRebecType, String prevRebecType) {
-        actorScopeStack.pushInScopeStack(relatedRebecType, prevRebecType);
+    public void pushInActorScope(String relatedRebecType, String prevRebecType, FrameLayout layout) {
+        actorScopeStack.pushInScopeStack(relatedRebecType, prevRebecType, layout);
     }
 
     public void popFromActorScope() {
@@ -81,11 +148,18 @@ public abstract class BaseActorState implements Serializable {
     }
 
     public String getTypeName() {
-        return typeName;
+        return descriptor.getTypeName();
     }
 
-    public void setTypeName(String typeName) {
-        this.typeName = typeName;
+    /*
+     * Records the changes of the actor state, including those of its scope stack, in the
+     * given undo log, or stops recording them if it is null. Copies of the actor state do
+     * not record their changes.
+     */
+    public void setUndoLog(UndoLog undoLog) {
+        this.undoLog = undoLog;
+        if (actorScopeStack != null)
+            actorScopeStack.setUndoLog(undoLog, this);
     }
 
     public void initializeScopeStack() {
@@ -94,7 +168,10 @@ public abstract class BaseActorState implements Serializable {
     }
 
     public Object retrieveVariableValue(Variable variable) {
-        return retrieveVariableValue(variable.getVarName());
+        VariableAddress address = getFrameLayouts().getAddress(variable);
+        if (address == null)
+            return retrieveVariableValue(variable.getVarName());
+        return actorScopeStack.retrieveVariableValue(address, variable.getVarName());
     }
 
     public Object retrieveVariableValue(String varName) {
@@ -105,6 +182,14 @@ public abstract class BaseActorState implements Serializable {
         actorScopeStack.setVariableValue(varName, valueObject);
     }
 
+    public void setVariableValue(Variable variable, Object valueObject) {
+        VariableAddress address = getFrameLayouts().getAddress(variable);
+        if (address == null)
+            actorScopeStack.setVariableValue(variable.getVarName(), valueObject);
+        else
+            actorScopeStack.setVariableValue(address, variable.getVarName(), valueObject);
+    }
+
     public boolean variableIsDefined(String varName) {
         return actorScopeStack.variableIsDefined(varName);
     }
@@ -113,7 +198,15 @@ public abstract class BaseActorState implements Serializable {
         return actorScopeStack;
     }
 
-    public void setTypeSystem(CoreRebecaTypeSystem typeSystem) {
-        this.typeSystem = typeSystem;
+    public CoreRebecaTypeSystem getTypeSystem() {
+        return descriptor.getTypeSystem();
+    }
+
+    public RILProgram getProgram() {
+        return descriptor.getProgram();
+    }
+
+    public FrameLayouts getFrameLayouts() {
+        return descriptor.getFrameLayouts();
     }
 }
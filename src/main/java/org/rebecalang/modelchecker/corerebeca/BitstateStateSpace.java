@@ -0,0 +1,74 @@
+package org.rebecalang.modelchecker.corerebeca;
+
+/*
+ * Bitstate (supertrace) storage: a visited state only sets k bits of a large bit array,
+ * chosen by double hashing from two independent fingerprints of the state, so states are
+ * never encoded. A new state whose k bits are already set is taken for a visited one and
+ * is not explored, so the search may be incomplete; the expected number of such
+ * omissions is accumulated from the fill ratio of the array.
+ */
+public class BitstateStateSpace extends StateSpace {
+
+	long[] bits;
+	long mask;
+	int hashFunctions;
+	long setBits;
+	double expectedOmissions;
+
+	public BitstateStateSpace(StateCodec stateCodec, int log2Bits, int hashFunctions) {
+		super(stateCodec);
+		this.bits = new long[(int) (1L << (log2Bits - 6))];
+		this.mask = (1L << log2Bits) - 1;
+		this.hashFunctions = hashFunctions;
+	}
+
+	@Override
+	public State putIfAbsent(State state) {
+		long firstHash = state.fingerprint();
+		long secondHash = state.secondFingerprint() | 1;
+		double fillRatio = (double) setBits / (mask + 1);
+		boolean visited = true;
+		for (int i = 0; i < hashFunctions; i++) {
+			long index = (firstHash + i * secondHash) & mask;
+			long bit = 1L << index;
+			int word = (int) (index >>> 6);
+			if ((bits[word] & bit) == 0) {
+				bits[word] |= bit;
+				setBits++;
+				visited = false;
+			}
+		}
+		if (visited)
+			return state;
+		expectedOmissions += Math.pow(fillRatio, hashFunctions);
+		size++;
+		return null;
+	}
+
+	@Override
+	public boolean hasState(State state) {
+		long firstHash = state.fingerprint();
+		long secondHash = state.secondFingerprint() | 1;
+		for (int i = 0; i < hashFunctions; i++) {
+			long index = (firstHash + i * secondHash) & mask;
+			if ((bits[(int) (index >>> 6)] & (1L << index)) == 0)
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public long getStoredBytes() {
+		return (long) bits.length * Long.BYTES;
+	}
+
+	@Override
+	public double getOmissionProbability() {
+		return -Math.expm1(-expectedOmissions);
+	}
+
+	@Override
+	public double getExpectedCoverage() {
+		return size / (size + expectedOmissions);
+	}
+}
@@ -0,0 +1,251 @@
+package org.rebecalang.modelchecker.corerebeca;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+ * Visited states shared by the workers of a parallel search, in an open-addressing table
+ * which is updated without locks. A worker claims an empty slot by setting its fingerprint
+ * with a compare-and-set and then publishes the state vector, and the state when the
+ * transition graph is kept; a worker which finds the same fingerprint waits for the vector
+ * to be published before it compares the vectors. Fingerprints and vectors are never
+ * changed once set, so lookups need no locks either.
+ *
+ * A full table is moved into one of twice its capacity. The empty slots of the old table
+ * are marked as moved, so the slots which are still claimed in it are moved too, and the
+ * workers which find the table resizing share moving its chunks; they all go on in the
+ * new table when the last chunk is moved.
+ *
+ * Exact tables keep the encoded vectors of the states, as the exact state space does, so
+ * the search visits the same states as the sequential one; compacting tables keep only
+ * the fingerprints, as the hash compact state space does.
+ */
+public class ConcurrentStateSpace extends StateSpace {
+	private static final int MINIMUM_CAPACITY = 16;
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+	private static final float LOAD_FACTOR = 0.5f;
+	private static final int TRANSFER_CHUNK = 1 << 10;
+	private static final long EMPTY = 0;
+	private static final long MOVED = -1;
+	private static final long SUBSTITUTE_OF_RESERVED = 1;
+
+	private final AtomicReference<Table> table = new AtomicReference<>();
+	private final AtomicLong statesCount = new AtomicLong();
+	private final AtomicLong vectorBytes = new AtomicLong();
+	private final boolean compact;
+	private final boolean retainsStates;
+
+	public ConcurrentStateSpace(StateCodec stateCodec, int expectedStates, boolean compact, boolean retainsStates) {
+		super(stateCodec);
+		this.compact = compact;
+		this.retainsStates = !compact && retainsStates;
+		long requiredCapacity = (long) Math.ceil(Math.max(expectedStates, 1) / LOAD_FACTOR);
+		int capacity = MINIMUM_CAPACITY;
+		while (capacity < requiredCapacity && capacity < MAXIMUM_CAPACITY)
+			capacity <<= 1;
+		table.set(new Table(capacity));
+	}
+
+	/*
+	 * The state is encoded once by the calling worker; its components are interned by the
+	 * codec, which other workers may be encoding with at the same time.
+	 */
+	@Override
+	public State putIfAbsent(State state) {
+		long fingerprint = fingerprintOf(state);
+		byte[] vector = compact ? null : stateCodec.encode(state);
+		Table current = table.get();
+		while (true) {
+			int mask = current.capacity - 1;
+			int index = (int) fingerprint & mask;
+			for (int probes = 0; probes < current.capacity; probes++, index = (index + 1) & mask) {
+				long storedFingerprint = current.fingerprints.get(index);
+				if (storedFingerprint == EMPTY) {
+					if (!current.fingerprints.compareAndSet(index, EMPTY, fingerprint)) {
+						storedFingerprint = current.fingerprints.get(index);
+					} else {
+						publish(current, index, vector, state);
+						statesCount.incrementAndGet();
+						if (current.claimedSlots.incrementAndGet() > current.capacity * LOAD_FACTOR)
+							resize(current);
+						return null;
+					}
+				}
+				if (storedFingerprint == MOVED)
+					break;
+				if (storedFingerprint == fingerprint) {
+					if (compact)
+						return state;
+					if (Arrays.equals(awaitVector(current, index), vector))
+						return retainsStates ? current.states.get(index) : state;
+				}
+			}
+			current = resize(current);
+		}
+	}
+
+	@Override
+	public boolean hasState(State state) {
+		long fingerprint = fingerprintOf(state);
+		byte[] vector = null;
+		if (!compact && (vector = stateCodec.encodeIfKnown(state)) == null)
+			return false;
+		Table current = table.get();
+		while (true) {
+			int mask = current.capacity - 1;
+			int index = (int) fingerprint & mask;
+			for (int probes = 0; probes < current.capacity; probes++, index = (index + 1) & mask) {
+				long storedFingerprint = current.fingerprints.get(index);
+				if (storedFingerprint == EMPTY)
+					return false;
+				if (storedFingerprint == MOVED)
+					break;
+				if (storedFingerprint == fingerprint &&
+						(compact || Arrays.equals(awaitVector(current, index), vector)))
+					return true;
+			}
+			current = resize(current);
+		}
+	}
+
+	/*
+	 * The state is published before the vector, so a worker which has found the vector
+	 * finds the state too.
+	 */
+	private void publish(Table current, int index, byte[] vector, State state) {
+		if (retainsStates)
+			current.states.set(index, state);
+		if (!compact) {
+			vectorBytes.addAndGet(vector.length);
+			current.vectors.set(index, vector);
+		}
+	}
+
+	/*
+	 * Returns the vector of a claimed slot, waiting for the worker which claimed it to
+	 * publish it.
+	 */
+	private static byte[] awaitVector(Table current, int index) {
+		byte[] vector;
+		while ((vector = current.vectors.get(index)) == null)
+			Thread.onSpinWait();
+		return vector;
+	}
+
+	/*
+	 * Starts moving the given table into a new one, unless it is started already, takes
+	 * part in moving it and returns the new table when it is moved completely.
+	 */
+	private Table resize(Table current) {
+		Table next = current.next.get();
+		if (next == null) {
+			if (current.capacity == MAXIMUM_CAPACITY)
+				throw new RebecaRuntimeInterpreterException("State space can not grow beyond " +
+						getStatesCount() + " states");
+			current.next.compareAndSet(null, new Table(current.capacity << 1));
+			next = current.next.get();
+		}
+		int chunks = (current.capacity + TRANSFER_CHUNK - 1) / TRANSFER_CHUNK;
+		int chunk;
+		while ((chunk = current.nextChunk.getAndIncrement()) < chunks) {
+			int end = Math.min((chunk + 1) * TRANSFER_CHUNK, current.capacity);
+			for (int index = chunk * TRANSFER_CHUNK; index < end; index++)
+				move(current, index, next);
+			current.movedChunks.incrementAndGet();
+		}
+		while (current.movedChunks.get() < chunks)
+			Thread.onSpinWait();
+		table.compareAndSet(current, next);
+		return next;
+	}
+
+	/*
+	 * Marks an empty slot as moved, so it can not be claimed any more, or copies a claimed
+	 * one into the new table.
+	 */
+	private void move(Table current, int index, Table next) {
+		long fingerprint = current.fingerprints.get(index);
+		while (fingerprint == EMPTY) {
+			if (current.fingerprints.compareAndSet(index, EMPTY, MOVED))
+				return;
+			fingerprint = current.fingerprints.get(index);
+		}
+		byte[] vector = compact ? null : awaitVector(current, index);
+		int mask = next.capacity - 1;
+		int nextIndex = (int) fingerprint & mask;
+		while (!next.fingerprints.compareAndSet(nextIndex, EMPTY, fingerprint))
+			nextIndex = (nextIndex + 1) & mask;
+		if (retainsStates)
+			next.states.set(nextIndex, current.states.get(index));
+		if (!compact)
+			next.vectors.set(nextIndex, vector);
+		next.claimedSlots.incrementAndGet();
+	}
+
+	private long fingerprintOf(State state) {
+		long fingerprint = state.fingerprint();
+		return fingerprint == EMPTY || fingerprint == MOVED ? SUBSTITUTE_OF_RESERVED : fingerprint;
+	}
+
+	/*
+	 * Bytes of the fingerprints of a compacting table, or of the vectors and the interned
+	 * components of an exact one; the kept states are not counted.
+	 */
+	@Override
+	public long getStoredBytes() {
+		if (compact)
+			return (long) table.get().capacity * Long.BYTES;
+		return vectorBytes.get() + stateCodec.getComponentBytes();
+	}
+
+	@Override
+	public boolean retainsStates() {
+		return retainsStates;
+	}
+
+	@Override
+	public double getOmissionProbability() {
+		if (!compact)
+			return 0;
+		return HashCompactStateSpace.collisionProbability(getStatesCount(), Long.SIZE);
+	}
+
+	@Override
+	public double getExpectedCoverage() {
+		if (!compact)
+			return 1;
+		return 1 - getStatesCount() / Math.scalb(1.0, Long.SIZE + 1);
+	}
+
+	@Override
+	public int size() {
+		return (int) Math.min(getStatesCount(), Integer.MAX_VALUE);
+	}
+
+	@Override
+	public long getStatesCount() {
+		return statesCount.get();
+	}
+
+	private class Table {
+		final int capacity;
+		final AtomicLongArray fingerprints;
+		final AtomicReferenceArray<byte[]> vectors;
+		final AtomicReferenceArray<State> states;
+		final AtomicInteger claimedSlots = new AtomicInteger();
+		final AtomicReference<Table> next = new AtomicReference<>();
+		final AtomicInteger nextChunk = new AtomicInteger();
+		final AtomicInteger movedChunks = new AtomicInteger();
+
+		Table(int capacity) {
+			this.capacity = capacity;
+			fingerprints = new AtomicLongArray(capacity);
+			vectors = compact ? null : new AtomicReferenceArray<>(capacity);
+			states = retainsStates ? new AtomicReferenceArray<>(capacity) : null;
+		}
+	}
+}
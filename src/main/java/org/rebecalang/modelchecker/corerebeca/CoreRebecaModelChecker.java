@@ -1,14 +1,18 @@
 package org.rebecalang.modelchecker.corerebeca;
 
-import com.rits.cloning.Cloner;
 import org.rebecalang.compiler.modelcompiler.RebecaModelCompiler;
 import org.rebecalang.compiler.modelcompiler.ScopeException;
 import org.rebecalang.compiler.modelcompiler.SymbolTable;
 import org.rebecalang.compiler.modelcompiler.corerebeca.CoreRebecaTypeSystem;
 import org.rebecalang.compiler.modelcompiler.corerebeca.objectmodel.*;
 import org.rebecalang.compiler.utils.*;
+import org.rebecalang.modelchecker.corerebeca.bytecode.MethodCompiler;
 import org.rebecalang.modelchecker.corerebeca.builtinmethod.ExternalMethodRepository;
 import org.rebecalang.modelchecker.corerebeca.builtinmethod.IndependentMethodExecutor;
+import org.rebecalang.modelchecker.corerebeca.copy.CopyOnWriteStateCopyStrategy;
+import org.rebecalang.modelchecker.corerebeca.copy.DeepStateCopyStrategy;
+import org.rebecalang.modelchecker.corerebeca.copy.ReflectiveStateCopyStrategy;
+import org.rebecalang.modelchecker.corerebeca.copy.StateCopyStrategy;
 import org.rebecalang.modelchecker.corerebeca.policy.AbstractPolicy;
 import org.rebecalang.modelchecker.corerebeca.policy.CoarseGrainedPolicy;
 import org.rebecalang.modelchecker.corerebeca.policy.FineGrainedPolicy;
@@ -21,7 +25,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 @Component
 public class CoreRebecaModelChecker {
@@ -36,14 +46,61 @@ public class CoreRebecaModelChecker {
     public final static String FINE_GRAINED_POLICY = "fine";
     public final static String COARSE_GRAINED_POLICY = "coarse";
 
-    private Cloner cloner;
+    public final static String NO_COMPRESSION = "none";
+    public final static String COLLAPSE_COMPRESSION = "collapse";
+
+    public final static String EXACT_STATE_SPACE = "exact";
+    public final static String HASH_COMPACT_STATE_SPACE = "hashcompact";
+    public final static String BITSTATE_STATE_SPACE = "bitstate";
+    public final static String TIERED_STATE_SPACE = "tiered";
+
+    public final static String COPY_ON_WRITE_STATE_COPY = "copyonwrite";
+    public final static String DEEP_STATE_COPY = "deep";
+    public final static String REFLECTIVE_STATE_COPY = "reflective";
+
+    public final static String INTERPRETER_EXECUTION = "interpreter";
+    public final static String BYTECODE_EXECUTION = "bytecode";
+
+    public final static String BREADTH_FIRST_SEARCH = "bfs";
+    public final static String EXTERNAL_BREADTH_FIRST_SEARCH = "externalbfs";
+    public final static String PARALLEL_BREADTH_FIRST_SEARCH = "parallelbfs";
+    public final static String SWARM_SEARCH = "swarm";
+    public final static String DISTRIBUTED_SEARCH = "distributed";
+    public final static String DEPTH_FIRST_SEARCH = "dfs";
+    public final static String IN_PLACE_DEPTH_FIRST_SEARCH = "inplacedfs";
+
+    public final static int DEFAULT_EXPECTED_STATE_SPACE_SIZE = 1 << 10;
+    public final static int DEFAULT_BITSTATE_SIZE = 27;
+    public final static int DEFAULT_BITSTATE_HASH_FUNCTIONS = 3;
+    public final static int DEFAULT_SWARM_SEARCHES = 64;
+    public final static int DEFAULT_SWARM_BITSTATE_SIZE = 22;
+
+    private int expectedStateSpaceSize = DEFAULT_EXPECTED_STATE_SPACE_SIZE;
+    private boolean buildTransitionGraph;
+    private boolean collapseCompression;
+    private String stateSpaceType = EXACT_STATE_SPACE;
+    private int bitstateSize = DEFAULT_BITSTATE_SIZE;
+    private int bitstateHashFunctions = DEFAULT_BITSTATE_HASH_FUNCTIONS;
+    private File stateSpaceDirectory;
+    private StateCopyStrategy stateCopyStrategy = new CopyOnWriteStateCopyStrategy();
+    protected String searchStrategy = BREADTH_FIRST_SEARCH;
+    private String executionBackend = INTERPRETER_EXECUTION;
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private int swarmSearches = DEFAULT_SWARM_SEARCHES;
+    private int swarmBitstateSize = DEFAULT_SWARM_BITSTATE_SIZE;
+    private long swarmSeed;
+    private int nodeId;
+    private List<InetSocketAddress> nodeAddresses =
+            Collections.singletonList(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    private ServerSocket nodeServerSocket;
+    protected final AtomicInteger stateCounter = new AtomicInteger();
+    private int maximumSearchDepth;
 
     public CoreRebecaModelChecker(
             CoreRebecaTypeSystem coreRebecaTypeSystem,
             RebecaModelCompiler rebecaModelCompiler,
             ExceptionContainer exceptionContainer,
             Rebeca2RILModelTransformer rebeca2RILModelTransformer) {
-        this.cloner = new Cloner();
         this.coreRebecaTypeSystem = coreRebecaTypeSystem;
         this.rebecaModelCompiler = rebecaModelCompiler;
         this.exceptionContainer = exceptionContainer;
@@ -72,7 +129,11 @@ public class CoreRebecaModelChecker {
             Pair<RebecaModel, SymbolTable> model,
             Set<CompilerExtension> extension,
             CoreVersion coreVersion) throws ModelCheckingException {
-        this.statespace = new StateSpace();
+        if (statespace != null)
+            statespace.close();
+        StateCodec stateCodec = createStateCodec();
+        stateCodec.setCollapseCompression(collapseCompression);
+        this.statespace = createStateSpace(stateCodec);
 
         // To ignore redeclaration of variable
         if (!exceptionContainer.exceptionsIsEmpty()) {
@@ -85,21 +146,56 @@ public class CoreRebecaModelChecker {
         RILModel transformedRILModel = rebeca2RILModelTransformer.transformModel(model, extension, coreVersion);
         initializeStatementInterpreterContainer();
 
-        generateFirstState(transformedRILModel, model.getFirst());
+        RILProgram program = new RILProgram(transformedRILModel);
 
-        doFineGrainedModelChecking(transformedRILModel);
+        generateFirstState(program, model.getFirst());
+
+        doFineGrainedModelChecking(program);
     }
 
-    protected void generateFirstState(RILModel transformedRILModel, RebecaModel model) {
+    protected StateSpace createStateSpace(StateCodec stateCodec) {
+        if (searchStrategy.equals(EXTERNAL_BREADTH_FIRST_SEARCH))
+            return new ExternalStateSpace(stateCodec, stateSpaceDirectory);
+        if (searchStrategy.equals(SWARM_SEARCH))
+            return new SwarmStateSpace(stateCodec, swarmBitstateSize, bitstateHashFunctions);
+        if (searchStrategy.equals(PARALLEL_BREADTH_FIRST_SEARCH) && (stateSpaceType.equals(EXACT_STATE_SPACE) ||
+                stateSpaceType.equals(HASH_COMPACT_STATE_SPACE)))
+            return new ConcurrentStateSpace(stateCodec, expectedStateSpaceSize,
+                    stateSpaceType.equals(HASH_COMPACT_STATE_SPACE), buildTransitionGraph);
+        if (searchStrategy.equals(DISTRIBUTED_SEARCH)) {
+            StateCodec portableStateCodec = createStateCodec();
+            portableStateCodec.setPortable(true);
+            return new PartitionedStateSpace(portableStateCodec, createLocalStateSpace(stateCodec, false), nodeId,
+                    nodeAddresses.size());
+        }
+        return createLocalStateSpace(stateCodec, buildTransitionGraph);
+    }
+
+    private StateSpace createLocalStateSpace(StateCodec stateCodec, boolean retainsStates) {
+        if (stateSpaceType.equals(HASH_COMPACT_STATE_SPACE))
+            return new HashCompactStateSpace(stateCodec, expectedStateSpaceSize);
+        if (stateSpaceType.equals(BITSTATE_STATE_SPACE))
+            return new BitstateStateSpace(stateCodec, bitstateSize, bitstateHashFunctions);
+        if (stateSpaceType.equals(TIERED_STATE_SPACE))
+            return new TieredStateSpace(stateCodec, expectedStateSpaceSize, stateSpaceDirectory);
+        return new ExactStateSpace(stateCodec, expectedStateSpaceSize, retainsStates);
+    }
+
+    protected void generateFirstState(RILProgram program, RebecaModel model) {
 
         State initialState = createFreshState();
         List<MainRebecDefinition> mainRebecDefinitions = model.getRebecaCode().getMainDeclaration()
                 .getMainRebecDefinition();
-        generateInitialActorStates(initialState, mainRebecDefinitions);
+        generateInitialActorStates(initialState, mainRebecDefinitions, program);
 
         setInitialKnownRebecsOfActors(initialState, mainRebecDefinitions);
 
-        callConstructorsOfActors(transformedRILModel, initialState, mainRebecDefinitions);
+        declareParameterKinds(program, mainRebecDefinitions);
+        program.resolve(initialState);
+        if (executionBackend.equals(BYTECODE_EXECUTION))
+            program.compileMethods(new MethodCompiler());
+
+        callConstructorsOfActors(program, initialState, mainRebecDefinitions);
 
         statespace.addInitialState(initialState);
 
@@ -109,8 +205,12 @@ public class CoreRebecaModelChecker {
         return new State();
     }
 
+    protected StateCodec createStateCodec() {
+        return new StateCodec(this::createFreshState, this::createFreshActorState);
+    }
+
     private void callConstructorsOfActors(
-            RILModel transformedRILModel,
+            RILProgram program,
             State initialState,
             List<MainRebecDefinition> mainRebecDefinitions) {
         for (MainRebecDefinition definition : mainRebecDefinitions) {
@@ -120,12 +220,13 @@ public class CoreRebecaModelChecker {
                 ConstructorDeclaration constructorDeclaration = metaData.getConstructors().get(0);
                 String computedConstructorName = RILUtilities.computeMethodName(metaData, constructorDeclaration);
                 BaseActorState baseActorState = initialState.getActorState(definition.getName());
-                baseActorState.pushInActorScope(baseActorState.getTypeName());
-                baseActorState.initializePC(computedConstructorName, 0);
-                while (baseActorState.variableIsDefined(InstructionUtilities.PC_STRING)) {
+                int constructorId = program.getMethodId(computedConstructorName);
+                baseActorState.pushInActorScope(baseActorState.getTypeName(), program.getMethodLayout(constructorId));
+                baseActorState.initializePC(constructorId, 0);
+                while (baseActorState.isBusy()) {
                     ProgramCounter pc = baseActorState.getPC();
-                    InstructionBean ib = transformedRILModel.getInstructionList(pc.getMethodName()).get(pc.getLineNumber());
-                    StatementInterpreterContainer.getInstance().retrieveInterpreter(ib).interpret(ib, baseActorState,
+                    InstructionBean ib = program.getInstruction(pc.getMethodId(), pc.getLineNumber());
+                    program.getInterpreter(pc.getMethodId(), pc.getLineNumber()).interpret(ib, baseActorState,
                             initialState);
                 }
             } catch (CodeCompilationException e) {
@@ -163,12 +264,13 @@ public class CoreRebecaModelChecker {
                 String instanceName = ((TermPrimary) relatedBinding).getName();
                 String knownRebecName = getKnownRebecName(curActor.getKnownRebecs(), i);
                 BaseActorState knownActorState = initialState.getActorState(instanceName);
-                baseActorState.addVariableToExactScope(knownRebecName, knownActorState, j);
+                baseActorState.addVariableToExactScope(knownRebecName, knownActorState.getDescriptor(), j);
             }
         }
     }
 
-    private void generateInitialActorStates(State initialState, List<MainRebecDefinition> mainRebecDefinitions) {
+    private void generateInitialActorStates(State initialState, List<MainRebecDefinition> mainRebecDefinitions,
+                                            RILProgram program) {
         for (MainRebecDefinition definition : mainRebecDefinitions) {
             ReactiveClassDeclaration metaData;
             try {
@@ -180,29 +282,59 @@ public class CoreRebecaModelChecker {
             }
             ArrayList<ReactiveClassDeclaration> actorSeries = getActorSeries(metaData);
             BaseActorState baseActorState = createFreshActorState();
-            baseActorState.setTypeName(definition.getType().getTypeName());
-            baseActorState.setName(definition.getName());
-            baseActorState.setTypeSystem(coreRebecaTypeSystem);
+            baseActorState.setDescriptor(new ActorDescriptor(program.addActor(definition.getName()), definition.getName(),
+                    definition.getType().getTypeName(), coreRebecaTypeSystem, program));
             baseActorState.initializeScopeStack();
             addRequiredScopeToScopeStack(baseActorState, actorSeries);
-            initialState.putActorState(definition.getName(), baseActorState);
+            initialState.putActorState(baseActorState);
         }
     }
 
     protected void addStateVarsToRelatedScope(BaseActorState baseActorState, ReactiveClassDeclaration actorMetaData) {
+        FrameLayout classLayout = baseActorState.getFrameLayouts().getClassLayout(actorMetaData.getName());
         for (FieldDeclaration fieldDeclaration : actorMetaData.getStatevars()) {
+            byte kind = FrameLayouts.kindOf(fieldDeclaration.getType());
             for (VariableDeclarator variableDeclarator : fieldDeclaration.getVariableDeclarators()) {
-                baseActorState.addVariableToRecentScope(variableDeclarator.getVariableName(), 0);
+                if (kind != ActivationRecord.UNDEFINED)
+                    classLayout.addSlot(variableDeclarator.getVariableName(), kind);
+                baseActorState.addVariableToRecentScope(variableDeclarator.getVariableName(),
+                        kind == ActivationRecord.BOOLEAN ? (Object) false : (Object) 0);
+            }
+        }
+    }
+
+    /*
+     * Declares the kinds of the formal parameters of the methods of the actors' classes, as
+     * RIL calls name their parameters but do not type them.
+     */
+    private void declareParameterKinds(RILProgram program, List<MainRebecDefinition> mainRebecDefinitions) {
+        for (MainRebecDefinition definition : mainRebecDefinitions) {
+            ReactiveClassDeclaration metaData;
+            try {
+                metaData = (ReactiveClassDeclaration) coreRebecaTypeSystem.getMetaData(definition.getType());
+            } catch (CodeCompilationException e) {
+                System.err.println("This exception should not happen!");
+                e.printStackTrace();
+                return;
+            }
+            for (ReactiveClassDeclaration actor : getActorSeries(metaData)) {
+                List<MethodDeclaration> methods = new ArrayList<>(actor.getConstructors());
+                methods.addAll(actor.getMsgsrvs());
+                methods.addAll(actor.getMethods());
+                for (MethodDeclaration method : methods)
+                    program.getFrameLayouts().declareParameters(RILUtilities.computeMethodName(actor, method),
+                            method.getFormalParameters());
             }
         }
     }
 
     protected void addRequiredScopeToScopeStack(BaseActorState baseActorState, ArrayList<ReactiveClassDeclaration> actorSeries) {
         for (ReactiveClassDeclaration actor : actorSeries) {
-            baseActorState.pushInActorScope(actor.getName());
+            baseActorState.pushInActorScope(actor.getName(),
+                    baseActorState.getFrameLayouts().getClassLayout(actor.getName()));
             addStateVarsToRelatedScope(baseActorState, actor);
         }
-        baseActorState.addVariableToExactScope("self", baseActorState, 0);
+        baseActorState.addVariableToExactScope("self", baseActorState.getDescriptor(), 0);
     }
 
     private ArrayList<ReactiveClassDeclaration> getActorSeries(ReactiveClassDeclaration lastActor) {
@@ -264,76 +396,423 @@ public class CoreRebecaModelChecker {
     }
 
     protected void doFineGrainedModelChecking(
-            RILModel transformedRILModel) throws ModelCheckingException {
-        int stateCounter = 1;
+            RILProgram program) throws ModelCheckingException {
+        stateCounter.set(1);
+        if (searchStrategy.equals(EXTERNAL_BREADTH_FIRST_SEARCH)) {
+            doExternalMemoryModelChecking(program);
+            return;
+        }
+        if (searchStrategy.equals(PARALLEL_BREADTH_FIRST_SEARCH)) {
+            if (!(statespace instanceof ConcurrentStateSpace))
+                throw new ModelCheckingException("State space " + stateSpaceType +
+                        " is not supported by the parallel search");
+            new ParallelBreadthFirstSearch(this, program, modelCheckingPolicy, workers)
+                    .search(statespace.getInitialState());
+            return;
+        }
+        if (searchStrategy.equals(DEPTH_FIRST_SEARCH)) {
+            doDepthFirstModelChecking(program);
+            return;
+        }
+        if (searchStrategy.equals(IN_PLACE_DEPTH_FIRST_SEARCH)) {
+            InPlaceDepthFirstSearch inPlaceSearch = new InPlaceDepthFirstSearch(this, modelCheckingPolicy, statespace);
+            inPlaceSearch.search(statespace.getInitialState());
+            maximumSearchDepth = inPlaceSearch.getMaximumDepth();
+            return;
+        }
+        if (searchStrategy.equals(DISTRIBUTED_SEARCH)) {
+            if (collapseCompression)
+                throw new ModelCheckingException("State compression " + COLLAPSE_COMPRESSION +
+                        " is not supported by the distributed search");
+            new DistributedSearch(this, program, modelCheckingPolicy, (PartitionedStateSpace) statespace, nodeId,
+                    nodeAddresses, nodeServerSocket).search(statespace.getInitialState());
+            return;
+        }
+        if (searchStrategy.equals(SWARM_SEARCH)) {
+            new SwarmSearch(this, program, modelCheckingPolicy, (SwarmStateSpace) statespace, workers,
+                    swarmSearches, swarmSeed).search(statespace.getInitialState());
+            return;
+        }
 
         State initialState = statespace.getInitialState();
         LinkedList<State> nextStatesQueue = new LinkedList<>();
         nextStatesQueue.add(initialState);
         while (!nextStatesQueue.isEmpty()) {
             State currentState = nextStatesQueue.pollFirst();
-            List<BaseActorState> enabledActors = currentState.getEnabledActors();
-            if (enabledActors.isEmpty())
-                throw new ModelCheckingException("Deadlock");
-            for (BaseActorState baseActorState : enabledActors) {
-                do {
-                    StatementInterpreterContainer.getInstance().clearNondeterminism();
-                    State newState = cloneState(currentState);
-
-                    ActorSate newActorState = (ActorSate)newState.getActorState(baseActorState.getName());
-                    newActorState.execute(newState, transformedRILModel, modelCheckingPolicy);
-                    String transitionLabel = calculateTransitionLabel(baseActorState, newActorState, baseActorState.getMessage());
-                    Long stateKey = (long) newState.hashCode();
-
-                    if (!statespace.hasStateWithKey(stateKey)) {
-                        newState.setId(stateCounter++);
-                        nextStatesQueue.add(newState);
-                        statespace.addState(stateKey, newState);
-                        newState.clearLinks();
-                        currentState.addChildState(transitionLabel, newState);
-                        newState.addParentState(transitionLabel, currentState);
-                    } else {
-                        State repeatedState = statespace.getState(stateKey);
-                        currentState.addChildState(transitionLabel, repeatedState);
-                        repeatedState.addParentState(transitionLabel, currentState);
-                    }
-                } while (StatementInterpreterContainer.getInstance().hasNondeterminism());
+            expandState(currentState, program, nextStatesQueue::add);
+        }
+    }
+
+    /*
+     * Breadth first search with delayed duplicate detection: successors of a layer are
+     * only checked against the visited states when the layer is complete, so both the
+     * frontier and the visited states can stay on disk.
+     */
+    protected void doExternalMemoryModelChecking(
+            RILProgram program) throws ModelCheckingException {
+        ExternalStateSpace externalStateSpace = (ExternalStateSpace) statespace;
+        while (externalStateSpace.startNextLayer()) {
+            State currentState;
+            while ((currentState = externalStateSpace.pollLayer()) != null)
+                expandState(currentState, program, newState -> {});
+        }
+    }
+
+    protected void expandState(
+            State currentState,
+            RILProgram program,
+            Consumer<State> newStatesConsumer) throws ModelCheckingException {
+        expandState(currentState, program, modelCheckingPolicy, statespace,
+                (transitionLabel, newState) -> newStatesConsumer.accept(newState));
+    }
+
+    /*
+     * Adds the successors of the state to the given state space and passes the new ones
+     * with the labels of their transitions to the consumer. The links of a new state are
+     * cleared and its actor states are shared before it is added to the state space, where
+     * the workers of a parallel search may find, link and copy it right away.
+     */
+    protected void expandState(
+            State currentState,
+            RILProgram program,
+            AbstractPolicy policy,
+            StateSpace visitedStates,
+            BiConsumer<String, State> newStatesConsumer) throws ModelCheckingException {
+        List<BaseActorState> enabledActors = getEnabledActors(currentState);
+        for (BaseActorState baseActorState : enabledActors)
+            executeTransition(currentState, baseActorState, policy, visitedStates, newStatesConsumer);
+    }
+
+    static List<BaseActorState> getEnabledActors(State state) throws ModelCheckingException {
+        List<BaseActorState> enabledActors = state.getEnabledActors();
+        if (enabledActors.isEmpty())
+            throw new ModelCheckingException("Deadlock");
+        return enabledActors;
+    }
+
+    private void executeTransition(
+            State currentState,
+            BaseActorState baseActorState,
+            AbstractPolicy policy,
+            StateSpace visitedStates,
+            BiConsumer<String, State> newStatesConsumer) {
+        /*
+         * Alternatives of the nondeterministic choices of the transition are executed
+         * from the states forked at their choice points.
+         */
+        TransitionChoices transitionChoices = new TransitionChoices();
+        State newState = cloneState(currentState);
+        do {
+            executeAlternative(currentState, baseActorState, newState, transitionChoices, policy, visitedStates,
+                    newStatesConsumer);
+        } while ((newState = transitionChoices.resumeNextFork()) != null);
+    }
+
+    /*
+     * Executes one alternative of the transition of the actor on the given copy of the
+     * current state, which is the copy made for the transition or one of its forks.
+     */
+    private void executeAlternative(
+            State currentState,
+            BaseActorState baseActorState,
+            State newState,
+            TransitionChoices transitionChoices,
+            AbstractPolicy policy,
+            StateSpace visitedStates,
+            BiConsumer<String, State> newStatesConsumer) {
+        newState.setTransitionChoices(transitionChoices);
+        ActorSate newActorState = (ActorSate)newState.getActorStateForUpdate(baseActorState.getDescriptor());
+        newActorState.execute(newState, policy);
+        newState.setTransitionChoices(null);
+        String transitionLabel = calculateTransitionLabel(baseActorState, newActorState, baseActorState.getMessage());
+
+        newState.clearLinks();
+        newState.shareActorStates();
+        State repeatedState = visitedStates.putIfAbsent(newState);
+        if (repeatedState == null) {
+            newState.setId(stateCounter.getAndIncrement());
+            if (visitedStates.retainsStates())
+                linkStates(currentState, transitionLabel, newState);
+            newStatesConsumer.accept(transitionLabel, newState);
+        } else if (visitedStates.retainsStates()) {
+            linkStates(currentState, transitionLabel, repeatedState);
+        }
+    }
+
+    /*
+     * Depth first search which keeps only the path to the current state: the states on
+     * the path with the transitions of their enabled actors which are not executed yet.
+     * The transitions of a state are executed one at a time, when the search is back at
+     * the state, so its successors are not generated before they are searched. A deadlock
+     * or a failed assertion is thrown with the path to it.
+     */
+    protected void doDepthFirstModelChecking(RILProgram program) throws ModelCheckingException {
+        maximumSearchDepth = 0;
+        Deque<PathStep> path = new ArrayDeque<>();
+        path.push(new PathStep(null, statespace.getInitialState()));
+        while (!path.isEmpty()) {
+            PathStep step = path.peek();
+            try {
+                if (step.transitions == null)
+                    step.transitions = getEnabledActorTransitions(step.state, program);
+                if (step.transitions.hasNextTransition()) {
+                    step.transitions.executeNextTransition((transitionLabel, newState) -> {
+                        path.push(new PathStep(transitionLabel, newState));
+                        maximumSearchDepth = Math.max(maximumSearchDepth, path.size() - 1);
+                    });
+                    continue;
+                }
+            } catch (ModelCheckingException e) {
+                throw new CounterexampleException(e.getMessage(), getTrace(path));
+            } catch (AssertionError e) {
+                throw new CounterexampleException("Assertion failed" +
+                        (e.getMessage() == null ? "" : ": " + e.getMessage()), getTrace(path));
+            }
+            path.pop();
+        }
+    }
+
+    /*
+     * The transitions of the enabled actors are executed in their order, and those of an
+     * actor from its copy of the state and then from the forks at its choice points.
+     */
+    protected EnabledActorTransitions getEnabledActorTransitions(State state, RILProgram program)
+            throws ModelCheckingException {
+        List<BaseActorState> enabledActors = getEnabledActors(state);
+        return new EnabledActorTransitions() {
+            private int nextActor;
+            private BaseActorState actorState;
+            private TransitionChoices transitionChoices;
+            private State nextState;
+
+            @Override
+            public boolean hasNextTransition() {
+                return nextState != null || nextActor < enabledActors.size();
+            }
+
+            @Override
+            public void executeNextTransition(BiConsumer<String, State> newStatesConsumer) {
+                if (nextState == null) {
+                    actorState = enabledActors.get(nextActor++);
+                    transitionChoices = new TransitionChoices();
+                    nextState = cloneState(state);
+                }
+                executeAlternative(state, actorState, nextState, transitionChoices, modelCheckingPolicy, statespace,
+                        newStatesConsumer);
+                nextState = transitionChoices.resumeNextFork();
             }
+        };
+    }
+
+    private static List<String> getTrace(Deque<PathStep> path) {
+        List<String> trace = new ArrayList<>();
+        Iterator<PathStep> steps = path.descendingIterator();
+        while (steps.hasNext()) {
+            PathStep step = steps.next();
+            if (step.transitionLabel != null)
+                trace.add(step.transitionLabel);
+        }
+        return trace;
+    }
+
+    public int getMaximumSearchDepth() {
+        return maximumSearchDepth;
+    }
+
+    private static class PathStep {
+        private final String transitionLabel;
+        private final State state;
+        private EnabledActorTransitions transitions;
+
+        PathStep(String transitionLabel, State state) {
+            this.transitionLabel = transitionLabel;
+            this.state = state;
+        }
+    }
+
+    static void linkStates(State parentState, String transitionLabel, State childState) {
+        synchronized (parentState) {
+            parentState.addChildState(transitionLabel, childState);
+        }
+        synchronized (childState) {
+            childState.addParentState(transitionLabel, parentState);
         }
     }
 
     protected String calculateTransitionLabel(BaseActorState baseActorState, BaseActorState newBaseActorState, MessageSpecification msg) {
+        return calculateTransitionLabelStart(baseActorState, msg) + calculateTransitionLabelEnd(newBaseActorState);
+    }
+
+    /*
+     * The start of the label is calculated from the actor state before the transition and
+     * its end from the actor state after it.
+     */
+    protected String calculateTransitionLabelStart(BaseActorState baseActorState, MessageSpecification msg) {
 
         String executingMessageName;
 
-        if (baseActorState.variableIsDefined(InstructionUtilities.PC_STRING)) {
+        if (baseActorState.isBusy()) {
             ProgramCounter pc = baseActorState.getPC();
-            executingMessageName = pc.getMethodName();
+            executingMessageName = baseActorState.getProgram().getMethodName(pc.getMethodId());
             executingMessageName += " [" + pc.getLineNumber() + ",";
         } else {
             executingMessageName = msg.messageName;
             executingMessageName += " [START,";
 
         }
+        return baseActorState.getName() + "." + executingMessageName;
+    }
 
-        if (newBaseActorState.variableIsDefined(InstructionUtilities.PC_STRING)) {
+    protected String calculateTransitionLabelEnd(BaseActorState newBaseActorState) {
+        if (newBaseActorState.isBusy()) {
             ProgramCounter pc = newBaseActorState.getPC();
-            executingMessageName += pc.getLineNumber() + "]";
+            return pc.getLineNumber() + "]";
         } else {
-            executingMessageName += "END]";
-
+            return "END]";
         }
-        return baseActorState.getName() + "." + executingMessageName;
     }
 
     protected State cloneState(State currentState) {
-        List<Pair<String, State>> childStates = currentState.getChildStates();
-        List<Pair<String, State>> parentStates = currentState.getParentStates();
-        currentState.clearLinks();
-        State newState = cloner.deepClone(currentState);
-        currentState.setParentStates(parentStates);
-        currentState.setChildStates(childStates);
-        return newState;
+        return stateCopyStrategy.copyState(currentState);
+    }
+
+    public void configExpectedStateSpaceSize(int expectedStateSpaceSize) throws ModelCheckingException {
+        if (expectedStateSpaceSize <= 0)
+            throw new ModelCheckingException("Expected state space size should be positive: " + expectedStateSpaceSize);
+        this.expectedStateSpaceSize = expectedStateSpaceSize;
+    }
+
+    /*
+     * Visited states are kept only as encoded vectors unless the transition graph is
+     * requested, in which case the states themselves are kept and linked.
+     */
+    public void configTransitionGraph(boolean buildTransitionGraph) {
+        this.buildTransitionGraph = buildTransitionGraph;
+    }
+
+    public void configSearchStrategy(String searchStrategyName) throws ModelCheckingException {
+        if (searchStrategyName.equals(BREADTH_FIRST_SEARCH) || searchStrategyName.equals(EXTERNAL_BREADTH_FIRST_SEARCH) ||
+                searchStrategyName.equals(PARALLEL_BREADTH_FIRST_SEARCH) || searchStrategyName.equals(SWARM_SEARCH) ||
+                searchStrategyName.equals(DISTRIBUTED_SEARCH) || searchStrategyName.equals(DEPTH_FIRST_SEARCH) ||
+                searchStrategyName.equals(IN_PLACE_DEPTH_FIRST_SEARCH))
+            searchStrategy = searchStrategyName;
+        else
+            throw new ModelCheckingException("Unknown search strategy " + searchStrategyName);
+    }
+
+    /*
+     * Number of the workers of the parallel and swarm searches; by default one per processor.
+     */
+    public void configWorkers(int workers) throws ModelCheckingException {
+        if (workers <= 0)
+            throw new ModelCheckingException("Number of workers should be positive: " + workers);
+        this.workers = workers;
+    }
+
+    /*
+     * Number of the depth first searches of the swarm search, the size of the bitstate
+     * table of each of them and the seed from which their random seeds are derived.
+     */
+    public void configSwarm(int searches, int log2Bits, long seed) throws ModelCheckingException {
+        if (searches <= 0)
+            throw new ModelCheckingException("Number of swarm searches should be positive: " + searches);
+        if (log2Bits < 10 || log2Bits > 36)
+            throw new ModelCheckingException("Bitstate size should be between 2^10 and 2^36 bits: 2^" + log2Bits);
+        this.swarmSearches = searches;
+        this.swarmBitstateSize = log2Bits;
+        this.swarmSeed = seed;
+    }
+
+    /*
+     * Addresses of the nodes of the distributed search and the number of this node among
+     * them; by default the search has a single node.
+     */
+    public void configDistributedSearch(int nodeId, List<InetSocketAddress> nodeAddresses)
+            throws ModelCheckingException {
+        if (nodeAddresses.isEmpty())
+            throw new ModelCheckingException("The distributed search needs at least one node");
+        if (nodeId < 0 || nodeId >= nodeAddresses.size())
+            throw new ModelCheckingException("Node " + nodeId + " is not one of the " + nodeAddresses.size() +
+                    " nodes of the distributed search");
+        this.nodeId = nodeId;
+        this.nodeAddresses = new ArrayList<>(nodeAddresses);
+        this.nodeServerSocket = null;
+    }
+
+    /*
+     * As above, but the connections of the other nodes are accepted by a server socket
+     * which is bound to the address of this node already, so its port can not be taken in
+     * the meantime; the socket is not closed by the search.
+     */
+    public void configDistributedSearch(int nodeId, List<InetSocketAddress> nodeAddresses, ServerSocket serverSocket)
+            throws ModelCheckingException {
+        if (!serverSocket.isBound() || serverSocket.isClosed())
+            throw new ModelCheckingException("The server socket of node " + nodeId + " is not bound");
+        configDistributedSearch(nodeId, nodeAddresses);
+        this.nodeServerSocket = serverSocket;
+    }
+
+    /*
+     * Message servers are interpreted instruction by instruction, or executed by classes
+     * which are compiled for the methods of the RIL program with the system Java compiler.
+     */
+    public void configExecutionBackend(String executionBackendName) throws ModelCheckingException {
+        if (executionBackendName.equals(INTERPRETER_EXECUTION))
+            executionBackend = executionBackendName;
+        else if (executionBackendName.equals(BYTECODE_EXECUTION)) {
+            if (!MethodCompiler.isAvailable())
+                throw new ModelCheckingException("No Java compiler is available for the " + executionBackendName +
+                        " execution backend");
+            executionBackend = executionBackendName;
+        } else
+            throw new ModelCheckingException("Unknown execution backend " + executionBackendName);
+    }
+
+    public void configStateSpace(String stateSpaceName) throws ModelCheckingException {
+        if (stateSpaceName.equals(EXACT_STATE_SPACE) || stateSpaceName.equals(HASH_COMPACT_STATE_SPACE) ||
+                stateSpaceName.equals(BITSTATE_STATE_SPACE) || stateSpaceName.equals(TIERED_STATE_SPACE))
+            stateSpaceType = stateSpaceName;
+        else
+            throw new ModelCheckingException("Unknown state space " + stateSpaceName);
+    }
+
+    public void configStateSpaceDirectory(File stateSpaceDirectory) throws ModelCheckingException {
+        if (stateSpaceDirectory != null && !stateSpaceDirectory.isDirectory())
+            throw new ModelCheckingException("State space directory " + stateSpaceDirectory + " does not exist");
+        this.stateSpaceDirectory = stateSpaceDirectory;
+    }
+
+    public void configBitstate(int log2Bits, int hashFunctions) throws ModelCheckingException {
+        if (log2Bits < 10 || log2Bits > 36)
+            throw new ModelCheckingException("Bitstate size should be between 2^10 and 2^36 bits: 2^" + log2Bits);
+        if (hashFunctions <= 0)
+            throw new ModelCheckingException("Number of bitstate hash functions should be positive: " + hashFunctions);
+        this.bitstateSize = log2Bits;
+        this.bitstateHashFunctions = hashFunctions;
+    }
+
+    public void configStateCopy(String stateCopyName) throws ModelCheckingException {
+        if (stateCopyName.equals(COPY_ON_WRITE_STATE_COPY))
+            stateCopyStrategy = new CopyOnWriteStateCopyStrategy();
+        else if (stateCopyName.equals(DEEP_STATE_COPY))
+            stateCopyStrategy = new DeepStateCopyStrategy();
+        else if (stateCopyName.equals(REFLECTIVE_STATE_COPY))
+            stateCopyStrategy = new ReflectiveStateCopyStrategy();
+        else
+            throw new ModelCheckingException("Unknown state copy " + stateCopyName);
+    }
+
+    public void configStateCopyStrategy(StateCopyStrategy stateCopyStrategy) {
+        this.stateCopyStrategy = stateCopyStrategy;
+    }
+
+    public void configStateCompression(String compressionName) throws ModelCheckingException {
+        if (compressionName.equals(NO_COMPRESSION))
+            collapseCompression = false;
+        else if (compressionName.equals(COLLAPSE_COMPRESSION))
+            collapseCompression = true;
+        else
+            throw new ModelCheckingException("Unknown state compression " + compressionName);
     }
 
     public void configPolicy(String policyName) throws ModelCheckingException {
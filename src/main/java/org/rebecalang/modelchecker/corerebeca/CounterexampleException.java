@@ -0,0 +1,23 @@
+package org.rebecalang.modelchecker.corerebeca;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Failure found by a search, with the labels of the transitions which lead to it from the
+ * initial state.
+ */
+@SuppressWarnings("serial")
+public class CounterexampleException extends ModelCheckingException {
+
+	private final List<String> trace;
+
+	public CounterexampleException(String message, List<String> trace) {
+		super(message + (trace.isEmpty() ? " in the initial state" : " after " + String.join(" -> ", trace)));
+		this.trace = new ArrayList<String>(trace);
+	}
+
+	public List<String> getTrace() {
+		return trace;
+	}
+}
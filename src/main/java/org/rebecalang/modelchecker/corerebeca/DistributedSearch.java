@@ -0,0 +1,358 @@
+package org.rebecalang.modelchecker.corerebeca;
+
+import org.rebecalang.modelchecker.corerebeca.policy.AbstractPolicy;
+
+import java.io.*;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/*
+ * Search of a state space which is partitioned among the nodes of a distributed model
+ * checker by the fingerprints of the states. Every node runs a model checker of its own
+ * on the same model, so all of them build the same program, and searches the states of
+ * its partition breadth first; successors of other partitions are sent to their owners in
+ * batches, over a connection from every node to every other one.
+ *
+ * Termination is detected by Safra's algorithm. When the first node is passive it sends a
+ * token around the ring of the nodes; each node passes it on when it is passive, adding
+ * the number of batches it has sent minus those it has received, and blackens it if it
+ * has received a batch since the token last passed. The search is over when the token
+ * comes back to the first node white, with the first node white and passive and all the
+ * sent batches received. The end of the search, or the first failure of a node, is sent
+ * by every node to all the others before it closes its connections.
+ */
+class DistributedSearch {
+
+    private static final int STATES_MESSAGE = 1;
+    private static final int TOKEN_MESSAGE = 2;
+    private static final int TERMINATE_MESSAGE = 3;
+    private static final int FAILURE_MESSAGE = 4;
+
+    private static final int BATCH_SIZE = 512;
+    private static final int EXPANSIONS_BETWEEN_RECEPTIONS = 64;
+    private static final int CONNECT_TIMEOUT = 60_000;
+    private static final int CONNECT_RETRY_DELAY = 100;
+    private static final int MAXIMUM_FAILURE_TEXT_LENGTH = 0xFFFF / 3;
+
+    private final CoreRebecaModelChecker modelChecker;
+    private final RILProgram program;
+    private final AbstractPolicy policy;
+    private final PartitionedStateSpace stateSpace;
+    private final int nodeId;
+    private final List<InetSocketAddress> nodeAddresses;
+    private final ServerSocket serverSocket;
+
+    private final BlockingQueue<Message> inbox = new LinkedBlockingQueue<>();
+    private final DataOutputStream[] outputs;
+    private final List<Socket> sockets = new ArrayList<>();
+    private volatile boolean closing;
+
+    private final LinkedList<State> frontier = new LinkedList<>();
+    private long sentBatches;
+    private boolean black;
+    private boolean tokenRoundStarted;
+    private Message heldToken;
+
+    DistributedSearch(CoreRebecaModelChecker modelChecker, RILProgram program, AbstractPolicy policy,
+                      PartitionedStateSpace stateSpace, int nodeId, List<InetSocketAddress> nodeAddresses,
+                      ServerSocket serverSocket) {
+        this.modelChecker = modelChecker;
+        this.program = program;
+        this.policy = policy;
+        this.stateSpace = stateSpace;
+        this.nodeId = nodeId;
+        this.nodeAddresses = nodeAddresses;
+        this.serverSocket = serverSocket;
+        this.outputs = new DataOutputStream[nodeAddresses.size()];
+    }
+
+    /*
+     * Searches the partition of this node; returns when the search of all the nodes is
+     * over and throws the first failure of any of them.
+     */
+    void search(State initialState) throws ModelCheckingException {
+        if (stateSpace.isOwner(initialState))
+            frontier.add(initialState);
+        try {
+            if (nodeAddresses.size() > 1)
+                connect();
+            explore();
+            finish(TERMINATE_MESSAGE, null);
+        } catch (ModelCheckingException e) {
+            finish(FAILURE_MESSAGE, e.getMessage() == null ? e + " on node " + nodeId : e.getMessage());
+            throw e;
+        } catch (RuntimeException | Error e) {
+            finish(FAILURE_MESSAGE, e + " on node " + nodeId);
+            throw e;
+        } catch (IOException e) {
+            finish(FAILURE_MESSAGE, "Connection failure on node " + nodeId + ": " + e.getMessage());
+            throw new ModelCheckingException("Distributed search failed on node " + nodeId + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finish(FAILURE_MESSAGE, "Node " + nodeId + " is interrupted");
+            throw new ModelCheckingException("Distributed search is interrupted");
+        } finally {
+            close();
+        }
+    }
+
+    /*
+     * Binds a server socket to the address of this node, unless one is given already, and
+     * connects over it.
+     */
+    private void connect() throws IOException, InterruptedException {
+        if (serverSocket != null) {
+            connect(serverSocket);
+            return;
+        }
+        try (ServerSocket boundSocket = new ServerSocket()) {
+            boundSocket.setReuseAddress(true);
+            boundSocket.bind(nodeAddresses.get(nodeId), nodeAddresses.size());
+            connect(boundSocket);
+        }
+    }
+
+    /*
+     * Connects to every other node and accepts a connection from each of them; a
+     * connection is only written by its connecting node, starting with its id.
+     */
+    private void connect(ServerSocket boundSocket) throws IOException, InterruptedException {
+        for (int node = 0; node < nodeAddresses.size(); node++) {
+            if (node == nodeId)
+                continue;
+            Socket socket = connect(nodeAddresses.get(node));
+            outputs[node] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            outputs[node].writeInt(nodeId);
+            outputs[node].flush();
+        }
+        boundSocket.setSoTimeout(CONNECT_TIMEOUT);
+        for (int connections = 1; connections < nodeAddresses.size(); connections++) {
+            Socket socket = boundSocket.accept();
+            sockets.add(socket);
+            DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            int sender = input.readInt();
+            Thread receiver = new Thread(() -> receive(sender, input), "Node " + nodeId + " receiver from " + sender);
+            receiver.setDaemon(true);
+            receiver.start();
+        }
+    }
+
+    private Socket connect(InetSocketAddress address) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT;
+        while (true) {
+            Socket socket = new Socket();
+            try {
+                socket.connect(address, CONNECT_TIMEOUT);
+                socket.setTcpNoDelay(true);
+                sockets.add(socket);
+                return socket;
+            } catch (ConnectException e) {
+                socket.close();
+                if (System.currentTimeMillis() > deadline)
+                    throw e;
+                Thread.sleep(CONNECT_RETRY_DELAY);
+            }
+        }
+    }
+
+    private void explore() throws ModelCheckingException, IOException, InterruptedException {
+        while (true) {
+            Message message;
+            while ((message = inbox.poll()) != null)
+                if (handle(message))
+                    return;
+            for (int i = 0; i < EXPANSIONS_BETWEEN_RECEPTIONS && !frontier.isEmpty(); i++) {
+                try {
+                    modelChecker.expandState(frontier.pollFirst(), program, policy, stateSpace,
+                            (transitionLabel, newState) -> frontier.add(newState));
+                } catch (ModelCheckingException e) {
+                    throw new ModelCheckingException(String.valueOf(e.getMessage()) + " on node " + nodeId);
+                }
+                sendOutboxes(BATCH_SIZE);
+            }
+            if (!frontier.isEmpty())
+                continue;
+            sendOutboxes(1);
+            if (nodeAddresses.size() == 1)
+                return;
+            if (nodeId == 0 && !tokenRoundStarted) {
+                tokenRoundStarted = true;
+                startTokenRound();
+            }
+            if (heldToken != null && passToken())
+                return;
+            if (handle(inbox.take()))
+                return;
+        }
+    }
+
+    /*
+     * Returns true if the search is over.
+     */
+    private boolean handle(Message message) throws ModelCheckingException {
+        switch (message.type) {
+            case STATES_MESSAGE:
+                sentBatches--;
+                black = true;
+                for (byte[] vector : message.vectors) {
+                    State state = stateSpace.putReceivedIfAbsent(vector);
+                    if (state != null) {
+                        state.setId(modelChecker.stateCounter.getAndIncrement());
+                        frontier.add(state);
+                    }
+                }
+                return false;
+            case TOKEN_MESSAGE:
+                heldToken = message;
+                return false;
+            case TERMINATE_MESSAGE:
+                return true;
+            default:
+                throw new ModelCheckingException(message.text);
+        }
+    }
+
+    /*
+     * Passes on the token held by this passive node; returns true if the first node finds
+     * that the search is over.
+     */
+    private boolean passToken() throws IOException {
+        Message token = heldToken;
+        heldToken = null;
+        if (nodeId == 0) {
+            if (!token.black && !black && token.count + sentBatches == 0)
+                return true;
+            startTokenRound();
+            return false;
+        }
+        sendToken(token.black || black, token.count + sentBatches);
+        black = false;
+        return false;
+    }
+
+    private void startTokenRound() throws IOException {
+        black = false;
+        sendToken(false, 0);
+    }
+
+    private void sendToken(boolean tokenBlack, long count) throws IOException {
+        DataOutputStream output = outputs[(nodeId + 1) % nodeAddresses.size()];
+        output.writeByte(TOKEN_MESSAGE);
+        output.writeBoolean(tokenBlack);
+        output.writeLong(count);
+        output.flush();
+    }
+
+    /*
+     * Sends the outboxes which hold at least the given number of states.
+     */
+    private void sendOutboxes(int minimumBatchSize) throws IOException {
+        for (int node = 0; node < nodeAddresses.size(); node++) {
+            List<byte[]> outbox = stateSpace.getOutbox(node);
+            if (node == nodeId || outbox.size() < minimumBatchSize)
+                continue;
+            DataOutputStream output = outputs[node];
+            output.writeByte(STATES_MESSAGE);
+            output.writeInt(outbox.size());
+            for (byte[] vector : outbox) {
+                output.writeInt(vector.length);
+                output.write(vector);
+            }
+            output.flush();
+            outbox.clear();
+            sentBatches++;
+        }
+    }
+
+    /*
+     * Sends the end of the search or a failure to all the other nodes, which may have
+     * lost their connections already. The text of a failure is cut to what fits in a
+     * UTF string.
+     */
+    private void finish(int messageType, String text) {
+        String failureText = String.valueOf(text);
+        if (failureText.length() > MAXIMUM_FAILURE_TEXT_LENGTH)
+            failureText = failureText.substring(0, MAXIMUM_FAILURE_TEXT_LENGTH);
+        for (int node = 0; node < outputs.length; node++) {
+            if (outputs[node] == null)
+                continue;
+            try {
+                outputs[node].writeByte(messageType);
+                if (messageType == FAILURE_MESSAGE)
+                    outputs[node].writeUTF(failureText);
+                outputs[node].flush();
+            } catch (IOException e) {
+                // The node is gone; it learns of the failure from the others or its connection
+            }
+        }
+    }
+
+    private void close() {
+        closing = true;
+        for (Socket socket : sockets) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing more is sent or received over the connection
+            }
+        }
+    }
+
+    private void receive(int sender, DataInputStream input) {
+        try {
+            while (true) {
+                Message message = new Message(input.readUnsignedByte());
+                switch (message.type) {
+                    case STATES_MESSAGE:
+                        int vectorsCount = input.readInt();
+                        message.vectors = new ArrayList<>(vectorsCount);
+                        for (int i = 0; i < vectorsCount; i++) {
+                            byte[] vector = new byte[input.readInt()];
+                            input.readFully(vector);
+                            message.vectors.add(vector);
+                        }
+                        break;
+                    case TOKEN_MESSAGE:
+                        message.black = input.readBoolean();
+                        message.count = input.readLong();
+                        break;
+                    case TERMINATE_MESSAGE:
+                        break;
+                    case FAILURE_MESSAGE:
+                        message.text = input.readUTF();
+                        break;
+                    default:
+                        throw new IOException("Unknown message " + message.type);
+                }
+                inbox.add(message);
+                if (message.type == TERMINATE_MESSAGE || message.type == FAILURE_MESSAGE)
+                    return;
+            }
+        } catch (IOException e) {
+            if (!closing) {
+                Message failure = new Message(FAILURE_MESSAGE);
+                failure.text = "Connection from node " + sender + " to node " + nodeId + " is lost";
+                inbox.add(failure);
+            }
+        }
+    }
+
+    private static class Message {
+        private final int type;
+        private List<byte[]> vectors;
+        private boolean black;
+        private long count;
+        private String text;
+
+        Message(int type) {
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.rebecalang.modelchecker.corerebeca;
+
+import java.util.function.BiConsumer;
+
+/*
+ * Transitions of the enabled actors of a state, which a depth first search executes one
+ * at a time; the alternatives of the nondeterministic choices of a transition are
+ * transitions of their own here.
+ */
+public interface EnabledActorTransitions {
+
+    boolean hasNextTransition();
+
+    /*
+     * Executes the next transition and passes its state with the label of the transition
+     * to the consumer, if the state is new.
+     */
+    void executeNextTransition(BiConsumer<String, State> newStatesConsumer) throws ModelCheckingException;
+}
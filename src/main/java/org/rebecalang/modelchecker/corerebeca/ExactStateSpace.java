@@ -0,0 +1,122 @@
+package org.rebecalang.modelchecker.corerebeca;
+
+import java.util.Arrays;
+
+/*
+ * Visited states in an open-addressing table of encoded state vectors, keyed by the
+ * 64-bit fingerprints of the states. Vectors with equal fingerprints are told apart
+ * byte by byte, so colliding states are stored side by side instead of being merged.
+ * State objects are kept next to their vectors only when they are needed for the
+ * transition graph.
+ */
+public class ExactStateSpace extends StateSpace {
+	private static final int DEFAULT_EXPECTED_STATES = 1 << 10;
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+	private static final float LOAD_FACTOR = 0.5f;
+
+	boolean retainsStates;
+	long[] fingerprints;
+	byte[][] vectors;
+	State[] states;
+	long vectorBytes;
+
+	public ExactStateSpace(StateCodec stateCodec) {
+		this(stateCodec, DEFAULT_EXPECTED_STATES, false);
+	}
+
+	public ExactStateSpace(StateCodec stateCodec, int expectedStates, boolean retainsStates) {
+		super(stateCodec);
+		this.retainsStates = retainsStates;
+		long requiredCapacity = (long) Math.ceil(Math.max(expectedStates, 1) / LOAD_FACTOR);
+		int capacity = 16;
+		while (capacity < requiredCapacity && capacity < MAXIMUM_CAPACITY)
+			capacity <<= 1;
+		fingerprints = new long[capacity];
+		vectors = new byte[capacity][];
+		if (retainsStates)
+			states = new State[capacity];
+	}
+
+	/*
+	 * The state is encoded once, interning its components; a component which is not
+	 * interned yet makes the state a new one, which is inserted, so lookups of visited
+	 * states still leave the tables as they are.
+	 */
+	@Override
+	public State putIfAbsent(State state) {
+		byte[] vector = stateCodec.encode(state);
+		long fingerprint = state.fingerprint();
+		int index = findSlot(vector, fingerprint);
+		if (vectors[index] != null)
+			return retainsStates ? states[index] : state;
+		fingerprints[index] = fingerprint;
+		vectors[index] = vector;
+		if (retainsStates)
+			states[index] = state;
+		vectorBytes += vector.length;
+		if (++size > vectors.length * LOAD_FACTOR)
+			resize();
+		return null;
+	}
+
+	public State getState(State state) {
+		byte[] vector = stateCodec.encodeIfKnown(state);
+		if (vector == null)
+			return null;
+		int index = findSlot(vector, state.fingerprint());
+		if (vectors[index] == null)
+			return null;
+		return retainsStates ? states[index] : stateCodec.decode(vectors[index]);
+	}
+
+	@Override
+	public boolean hasState(State state) {
+		byte[] vector = stateCodec.encodeIfKnown(state);
+		return vector != null && vectors[findSlot(vector, state.fingerprint())] != null;
+	}
+
+	private int findSlot(byte[] vector, long fingerprint) {
+		int mask = vectors.length - 1;
+		int index = (int) fingerprint & mask;
+		while (vectors[index] != null) {
+			if (fingerprints[index] == fingerprint && Arrays.equals(vectors[index], vector))
+				return index;
+			index = (index + 1) & mask;
+		}
+		return index;
+	}
+
+	private void resize() {
+		if (vectors.length == MAXIMUM_CAPACITY)
+			throw new RebecaRuntimeInterpreterException("State space can not grow beyond " + size + " states");
+		long[] oldFingerprints = fingerprints;
+		byte[][] oldVectors = vectors;
+		State[] oldStates = states;
+		fingerprints = new long[oldVectors.length << 1];
+		vectors = new byte[oldVectors.length << 1][];
+		if (retainsStates)
+			states = new State[oldVectors.length << 1];
+		int mask = vectors.length - 1;
+		for (int i = 0; i < oldVectors.length; i++) {
+			if (oldVectors[i] == null)
+				continue;
+			int index = (int) oldFingerprints[i] & mask;
+			while (vectors[index] != null)
+				index = (index + 1) & mask;
+			fingerprints[index] = oldFingerprints[i];
+			vectors[index] = oldVectors[i];
+			if (retainsStates)
+				states[index] = oldStates[i];
+		}
+	}
+
+	@Override
+	public boolean retainsStates() {
+		return retainsStates;
+	}
+
+	@Override
+	public long getStoredBytes() {
+		return vectorBytes + stateCodec.getComponentBytes();
+	}
+}
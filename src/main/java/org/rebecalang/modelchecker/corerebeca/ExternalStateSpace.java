@@ -0,0 +1,273 @@
+package org.rebecalang.modelchecker.corerebeca;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/*
+ * Visited states and the search frontier of a layered breadth first search, both kept
+ * in files of sorted state vectors. Successors are only buffered and written to sorted
+ * runs; duplicates are removed when a layer is started, by merging the runs with the
+ * visited states. Memory use is bounded by the size of one run.
+ */
+public class ExternalStateSpace extends StateSpace {
+	public static final long DEFAULT_RUN_BYTES = 1 << 26;
+
+	File directory;
+	long runBytes;
+	List<byte[]> pendingVectors = new ArrayList<>();
+	long pendingBytes;
+	List<File> runs = new ArrayList<>();
+	File visitedFile;
+	File layerFile;
+	DataInputStream layerInput;
+	int filesCounter;
+	int polledStates;
+
+	public ExternalStateSpace(StateCodec stateCodec, File parentDirectory) {
+		this(stateCodec, parentDirectory, DEFAULT_RUN_BYTES);
+	}
+
+	public ExternalStateSpace(StateCodec stateCodec, File parentDirectory, long runBytes) {
+		super(stateCodec);
+		this.runBytes = runBytes;
+		try {
+			directory = parentDirectory == null ? Files.createTempDirectory("rebeca-statespace").toFile() :
+					Files.createTempDirectory(parentDirectory.toPath(), "rebeca-statespace").toFile();
+			directory.deleteOnExit();
+			visitedFile = newFile("visited");
+			new FileOutputStream(visitedFile).close();
+		} catch (IOException e) {
+			throw new RebecaRuntimeInterpreterException("Failure in creating state space files: " + e.getMessage());
+		}
+	}
+
+	/*
+	 * Duplicate detection is delayed to the start of the next layer, so every state is
+	 * reported as a visited one here, by returning the state itself. The states which
+	 * turn out to be new get their ids when they are polled from their layer.
+	 */
+	@Override
+	public State putIfAbsent(State state) {
+		byte[] vector = stateCodec.encode(state);
+		pendingVectors.add(vector);
+		pendingBytes += vector.length;
+		if (pendingBytes >= runBytes)
+			writeRun();
+		return state;
+	}
+
+	@Override
+	public boolean hasState(State state) {
+		byte[] vector = stateCodec.encodeIfKnown(state);
+		if (vector == null)
+			return false;
+		try (VectorReader reader = new VectorReader(visitedFile)) {
+			while (reader.current != null) {
+				int comparison = Arrays.compareUnsigned(reader.current, vector);
+				if (comparison >= 0)
+					return comparison == 0;
+				reader.advance();
+			}
+			return false;
+		} catch (IOException e) {
+			throw new RebecaRuntimeInterpreterException("Failure in reading state space files: " + e.getMessage());
+		}
+	}
+
+	/*
+	 * Turns the states added since the previous call into the next layer, leaving out the
+	 * ones which are visited before. Returns false if there is no new state.
+	 */
+	public boolean startNextLayer() {
+		try {
+			closeLayer();
+			writeRun();
+			layerFile = newFile("layer");
+			File newVisitedFile = newFile("visited");
+			long newStates = 0;
+			List<VectorReader> runReaders = new ArrayList<>();
+			PriorityQueue<VectorReader> mergeQueue = new PriorityQueue<>(
+					(first, second) -> Arrays.compareUnsigned(first.current, second.current));
+			try (VectorReader visitedReader = new VectorReader(visitedFile);
+				 DataOutputStream layerOutput = openOutput(layerFile);
+				 DataOutputStream visitedOutput = openOutput(newVisitedFile)) {
+				for (File run : runs) {
+					VectorReader runReader = new VectorReader(run);
+					runReaders.add(runReader);
+					if (runReader.current != null)
+						mergeQueue.add(runReader);
+				}
+				byte[] previousCandidate = null;
+				while (!mergeQueue.isEmpty()) {
+					VectorReader runReader = mergeQueue.poll();
+					byte[] candidate = runReader.current;
+					if (runReader.advance())
+						mergeQueue.add(runReader);
+					if (previousCandidate != null && Arrays.equals(previousCandidate, candidate))
+						continue;
+					previousCandidate = candidate;
+					int comparison = -1;
+					while (visitedReader.current != null &&
+							(comparison = Arrays.compareUnsigned(visitedReader.current, candidate)) < 0) {
+						write(visitedOutput, visitedReader.current);
+						visitedReader.advance();
+					}
+					if (visitedReader.current != null && comparison == 0)
+						continue;
+					write(visitedOutput, candidate);
+					write(layerOutput, candidate);
+					newStates++;
+				}
+				while (visitedReader.current != null) {
+					write(visitedOutput, visitedReader.current);
+					visitedReader.advance();
+				}
+			} finally {
+				for (VectorReader runReader : runReaders)
+					runReader.close();
+			}
+			for (File run : runs)
+				run.delete();
+			runs.clear();
+			visitedFile.delete();
+			visitedFile = newVisitedFile;
+			size += newStates;
+			layerInput = new DataInputStream(new BufferedInputStream(new FileInputStream(layerFile)));
+			return newStates > 0;
+		} catch (IOException e) {
+			throw new RebecaRuntimeInterpreterException("Failure in writing state space files: " + e.getMessage());
+		}
+	}
+
+	/*
+	 * Returns the next state of the current layer, or null when the layer is exhausted.
+	 */
+	public State pollLayer() {
+		try {
+			byte[] vector = read(layerInput);
+			if (vector == null)
+				return null;
+			State state = stateCodec.decode(vector);
+			state.setId(polledStates++);
+			return state;
+		} catch (IOException e) {
+			throw new RebecaRuntimeInterpreterException("Failure in reading state space files: " + e.getMessage());
+		}
+	}
+
+	private void writeRun() {
+		if (pendingVectors.isEmpty())
+			return;
+		pendingVectors.sort(Arrays::compareUnsigned);
+		File run = newFile("run");
+		try (DataOutputStream runOutput = openOutput(run)) {
+			byte[] previousVector = null;
+			for (byte[] vector : pendingVectors) {
+				if (previousVector == null || !Arrays.equals(previousVector, vector))
+					write(runOutput, vector);
+				previousVector = vector;
+			}
+		} catch (IOException e) {
+			throw new RebecaRuntimeInterpreterException("Failure in writing state space files: " + e.getMessage());
+		}
+		runs.add(run);
+		pendingVectors.clear();
+		pendingBytes = 0;
+	}
+
+	private void closeLayer() throws IOException {
+		if (layerInput == null)
+			return;
+		layerInput.close();
+		layerInput = null;
+		layerFile.delete();
+	}
+
+	private File newFile(String prefix) {
+		File file = new File(directory, prefix + "-" + filesCounter++);
+		file.deleteOnExit();
+		return file;
+	}
+
+	private static DataOutputStream openOutput(File file) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+	}
+
+	private static void write(DataOutputStream output, byte[] vector) throws IOException {
+		output.writeInt(vector.length);
+		output.write(vector);
+	}
+
+	private static byte[] read(DataInputStream input) throws IOException {
+		int length;
+		try {
+			length = input.readInt();
+		} catch (EOFException e) {
+			return null;
+		}
+		byte[] vector = new byte[length];
+		input.readFully(vector);
+		return vector;
+	}
+
+	@Override
+	public long getStoredBytes() {
+		return visitedFile.length();
+	}
+
+	/*
+	 * Deletes the files; an IOException is thrown after all of them are tried.
+	 */
+	@Override
+	public void close() {
+		IOException failure = null;
+		try {
+			closeLayer();
+		} catch (IOException e) {
+			failure = e;
+		}
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files)
+				if (!file.delete())
+					failure = new IOException("Failure in deleting state space file " + file);
+			if (!directory.delete())
+				failure = new IOException("Failure in deleting state space directory " + directory);
+		}
+		if (failure != null)
+			throw new UncheckedIOException(failure);
+	}
+
+	private static class VectorReader implements AutoCloseable {
+		private final DataInputStream input;
+		private byte[] current;
+
+		VectorReader(File file) throws IOException {
+			input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			advance();
+		}
+
+		boolean advance() throws IOException {
+			current = read(input);
+			return current != null;
+		}
+
+		@Override
+		public void close() throws IOException {
+			input.close();
+		}
+	}
+}
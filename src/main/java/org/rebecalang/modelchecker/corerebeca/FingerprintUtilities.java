@@ -0,0 +1,146 @@
+package org.rebecalang.modelchecker.corerebeca;
+
+import org.rebecalang.modelchecker.corerebeca.rilinterpreter.ProgramCounter;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Iterator;
+import java.util.List;
+
+/*
+ * 64-bit fingerprints of states. Actor references are fingerprinted and compared by
+ * actor name only; the referenced actor's content is already part of the global state.
+ */
+public class FingerprintUtilities {
+
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+    public static final long SECOND_SEED = 0x2545F4914F6CDD1DL;
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+    private static final long ACTOR_REFERENCE_TAG = 0x7A3D5C1B9E2F4861L;
+    private static final long LIST_TAG = 0x3C6EF372FE94F82BL;
+    private static final long WORD_MULTIPLIER_1 = 0x87C37B91114253D5L;
+    private static final long WORD_MULTIPLIER_2 = 0x4CF5AD432745937FL;
+    public static final long QUEUE_BASE = 0x9FB21C651E98DF25L;
+    public static final long QUEUE_BASE_INVERSE = inverse(QUEUE_BASE);
+    private static final long INTEGER_FINGERPRINT = fingerprint(Integer.class.getName());
+    private static final long BOOLEAN_FINGERPRINT = fingerprint(Boolean.class.getName());
+    private static final long BYTE_FINGERPRINT = fingerprint(Byte.class.getName());
+    private static final long SHORT_FINGERPRINT = fingerprint(Short.class.getName());
+    private static final long DOUBLE_FINGERPRINT = fingerprint(Double.class.getName());
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static long inverse(long odd) {
+        long result = odd;
+        for (int i = 0; i < 5; i++)
+            result *= 2 - odd * result;
+        return result;
+    }
+
+    public static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    public static long combine(long hash, long value) {
+        return mix(hash ^ (value + SEED + (hash << 6) + (hash >>> 2)));
+    }
+
+    public static long fingerprint(String value) {
+        if (value == null)
+            return 0;
+        long result = FNV_OFFSET_BASIS;
+        for (int i = 0; i < value.length(); i++) {
+            result ^= value.charAt(i);
+            result *= FNV_PRIME;
+        }
+        return mix(result);
+    }
+
+    public static long fingerprint(byte[] vector) {
+        return fingerprint(vector, SEED);
+    }
+
+    public static long fingerprint(byte[] vector, long seed) {
+        long result = seed ^ vector.length;
+        int index = 0;
+        for (; index + Long.BYTES <= vector.length; index += Long.BYTES) {
+            long word = (long) LONG_VIEW.get(vector, index);
+            result = Long.rotateLeft(result ^ Long.rotateLeft(word * WORD_MULTIPLIER_1, 31) * WORD_MULTIPLIER_2, 27) * 5 + 0x52DCE729;
+        }
+        long tail = 0;
+        for (int shift = 0; index < vector.length; index++, shift += 8)
+            tail |= (vector[index] & 0xFFL) << shift;
+        result ^= Long.rotateLeft(tail * WORD_MULTIPLIER_1, 31) * WORD_MULTIPLIER_2;
+        return mix(result);
+    }
+
+    public static long fingerprintOfValue(Object value) {
+        if (value == null)
+            return 0;
+        if (value instanceof ActorDescriptor)
+            return combine(ACTOR_REFERENCE_TAG, ((ActorDescriptor) value).getNameFingerprint());
+        if (value instanceof ProgramCounter)
+            return ((ProgramCounter) value).fingerprint();
+        if (value instanceof String)
+            return fingerprint((String) value);
+        if (value instanceof Integer)
+            return fingerprintOfInt((Integer) value);
+        if (value instanceof Boolean)
+            return fingerprintOfBoolean((Boolean) value);
+        if (value instanceof Double)
+            return fingerprintOfDouble((Double) value);
+        if (value instanceof List) {
+            long result = LIST_TAG;
+            for (Object element : (List<?>) value)
+                result = combine(result, fingerprintOfValue(element));
+            return result;
+        }
+        return combine(fingerprint(value.getClass().getName()), value.hashCode());
+    }
+
+    /*
+     * Fingerprints of primitive values, equal to the fingerprints of their boxed values.
+     */
+    public static long fingerprintOfInt(int value) {
+        return combine(INTEGER_FINGERPRINT, value);
+    }
+
+    public static long fingerprintOfBoolean(boolean value) {
+        return combine(BOOLEAN_FINGERPRINT, Boolean.hashCode(value));
+    }
+
+    public static long fingerprintOfByte(byte value) {
+        return combine(BYTE_FINGERPRINT, value);
+    }
+
+    public static long fingerprintOfShort(short value) {
+        return combine(SHORT_FINGERPRINT, value);
+    }
+
+    public static long fingerprintOfDouble(double value) {
+        return combine(DOUBLE_FINGERPRINT, Double.doubleToLongBits(value));
+    }
+
+    public static boolean valueEquals(Object first, Object second) {
+        if (first == second)
+            return true;
+        if (first == null || second == null)
+            return false;
+        if (first instanceof List) {
+            if (!(second instanceof List) || ((List<?>) first).size() != ((List<?>) second).size())
+                return false;
+            Iterator<?> secondIterator = ((List<?>) second).iterator();
+            for (Object element : (List<?>) first)
+                if (!valueEquals(element, secondIterator.next()))
+                    return false;
+            return true;
+        }
+        return first.equals(second);
+    }
+}
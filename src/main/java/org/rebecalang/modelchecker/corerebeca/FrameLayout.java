@@ -0,0 +1,95 @@
+package org.rebecalang.modelchecker.corerebeca;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Slot layout of activation records: maps the names of the variables of a scope to the
+ * indices of their values in the records. Layouts are created when the RIL model is
+ * loaded and are shared by all the records of the same scope; slots are only appended,
+ * so a slot index stays valid while a layout grows.
+ *
+ * A slot of a variable whose type is declared has the kind of that type, which decides the
+ * lane of the variable's values in the records.
+ */
+public class FrameLayout {
+
+    private final int id;
+    private final FrameLayouts frameLayouts;
+    private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[0];
+    private volatile long[] nameFingerprints = new long[0];
+    private volatile byte[] declaredKinds = new byte[0];
+
+    FrameLayout(int id, FrameLayouts frameLayouts) {
+        this.id = id;
+        this.frameLayouts = frameLayouts;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /*
+     * Returns the slot of the variable, or -1 if the layout has no slot for it.
+     */
+    public int getSlot(String name) {
+        Integer slot = slots.get(name);
+        return slot == null ? -1 : slot;
+    }
+
+    public synchronized int addSlot(String name) {
+        Integer slot = slots.get(name);
+        if (slot != null)
+            return slot;
+        int newSlot = names.length;
+        long[] newNameFingerprints = Arrays.copyOf(nameFingerprints, newSlot + 1);
+        newNameFingerprints[newSlot] = FingerprintUtilities.fingerprint(name);
+        String[] newNames = Arrays.copyOf(names, newSlot + 1);
+        newNames[newSlot] = name;
+        nameFingerprints = newNameFingerprints;
+        names = newNames;
+        slots.put(name, newSlot);
+        frameLayouts.layoutGrown(this, name);
+        return newSlot;
+    }
+
+    /*
+     * Adds the slot of a variable whose values have the declared kind, or declares the kind
+     * of its slot if the layout has one.
+     */
+    public synchronized int addSlot(String name, byte declaredKind) {
+        int slot = addSlot(name);
+        byte[] newDeclaredKinds = Arrays.copyOf(declaredKinds, Math.max(declaredKinds.length, slot + 1));
+        newDeclaredKinds[slot] = declaredKind;
+        declaredKinds = newDeclaredKinds;
+        return slot;
+    }
+
+    /*
+     * Returns the declared kind of the slot, or UNDEFINED if the type of its variable is not
+     * known.
+     */
+    public byte getDeclaredKind(int slot) {
+        byte[] kinds = declaredKinds;
+        return slot < kinds.length ? kinds[slot] : ActivationRecord.UNDEFINED;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String getName(int slot) {
+        return names[slot];
+    }
+
+    public long getNameFingerprint(int slot) {
+        return nameFingerprints[slot];
+    }
+
+    @Override
+    public String toString() {
+        return id + Arrays.toString(names);
+    }
+}
@@ -0,0 +1,331 @@
+package org.rebecalang.modelchecker.corerebeca;
+
+import org.rebecalang.compiler.modelcompiler.corerebeca.objectmodel.FormalParameterDeclaration;
+import org.rebecalang.compiler.modelcompiler.corerebeca.objectmodel.Type;
+import org.rebecalang.modelchecker.corerebeca.rilinterpreter.InstructionUtilities;
+import org.rebecalang.modeltransformer.ril.RILModel;
+import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.*;
+import org.rebecalang.modeltransformer.ril.corerebeca.translator.expresiontranslator.AbstractExpressionTranslator;
+
+import java.util.*;
+import java.util.function.Function;
+
+/*
+ * Frame layouts of a model and the addresses of the variables of its RIL instructions.
+ * Records of the reactive classes of actors have one layout per class, message servers,
+ * methods and constructors one per RIL method and blocks one per PushAR instruction.
+ *
+ * Addresses are resolved when the RIL model is loaded by following the blocks each method
+ * pushes and pops along its jumps; a variable is resolved to the closest scope whose
+ * layout has a slot for it. At run time a resolved slot which is not defined yet falls
+ * back to the lookup by name, so a layout may hold variables that are declared later.
+ * Methods whose blocks can not be followed statically keep their variables unresolved.
+ *
+ * Each address remembers the layouts of the scopes its variable was looked up in before
+ * the scope defining it. If one of those layouts gets a slot for the variable after the
+ * resolution, the variable may be found closer, so the address is invalidated; the
+ * addresses of other variables and layouts stay in use.
+ *
+ * RIL instructions do not carry the types of variables, so the kinds of the slots are
+ * declared from the model: state variables when the class records are built and formal
+ * parameters before the resolution.
+ */
+public class FrameLayouts {
+
+    private static final VariableAddress UNRESOLVED = new VariableAddress(-1, null, -1);
+
+    private final List<FrameLayout> layouts = new ArrayList<>();
+    private final Map<String, FrameLayout> classLayouts = new HashMap<>();
+    private final Map<String, FrameLayout> methodLayouts = new HashMap<>();
+    private final Map<InstructionBean, FrameLayout> blockLayouts = new IdentityHashMap<>();
+    private final Map<Variable, VariableAddress> addresses = new IdentityHashMap<>();
+    private final Map<VariableAddress, VariableAddress> internedAddresses = new HashMap<>();
+    private final Map<FrameLayout, List<VariableAddress>> shadowedAddresses = new IdentityHashMap<>();
+    private final Map<String, String> definingMethodNames = new HashMap<>();
+    private final Map<String, Map<String, Byte>> parameterKinds = new HashMap<>();
+    private volatile boolean resolved;
+
+    private FrameLayout createLayout() {
+        FrameLayout layout = new FrameLayout(layouts.size(), this);
+        layouts.add(layout);
+        return layout;
+    }
+
+    /*
+     * Layouts of classes are created while the records of the initial actor states are
+     * built, before the RIL model is resolved.
+     */
+    public FrameLayout getClassLayout(String className) {
+        return classLayouts.computeIfAbsent(className, name -> createLayout());
+    }
+
+    /*
+     * Kind of the values of variables of the type: the kind of a primitive type, or
+     * UNDEFINED if the lane of the values is chosen by their classes.
+     */
+    public static byte kindOf(Type type) {
+        if (type == null)
+            return ActivationRecord.UNDEFINED;
+        switch (type.getTypeName()) {
+            case "int":
+                return ActivationRecord.INT;
+            case "boolean":
+                return ActivationRecord.BOOLEAN;
+            case "byte":
+                return ActivationRecord.BYTE;
+            case "short":
+                return ActivationRecord.SHORT;
+            case "double":
+                return ActivationRecord.DOUBLE;
+            default:
+                return ActivationRecord.UNDEFINED;
+        }
+    }
+
+    /*
+     * Declares the kinds of the formal parameters of a RIL method; the slots are added to
+     * the method's layout when the RIL model is resolved.
+     */
+    public void declareParameters(String methodName, List<FormalParameterDeclaration> parameters) {
+        Map<String, Byte> kinds = parameterKinds.computeIfAbsent(methodName, name -> new HashMap<>());
+        for (FormalParameterDeclaration parameter : parameters) {
+            byte kind = kindOf(parameter.getType());
+            if (kind != ActivationRecord.UNDEFINED)
+                kinds.put(parameter.getName(), kind);
+        }
+    }
+
+    public FrameLayout getMethodLayout(String methodName) {
+        FrameLayout layout = methodLayouts.get(methodName);
+        if (layout == null)
+            throw new RebecaRuntimeInterpreterException("Unknown method " + methodName);
+        return layout;
+    }
+
+    public FrameLayout getBlockLayout(InstructionBean pushInstruction) {
+        FrameLayout layout = blockLayouts.get(pushInstruction);
+        if (layout == null)
+            throw new RebecaRuntimeInterpreterException("Block of " + pushInstruction + " is not in the RIL model");
+        return layout;
+    }
+
+    public FrameLayout getLayout(int id) {
+        return layouts.get(id);
+    }
+
+    public VariableAddress getAddress(Variable variable) {
+        VariableAddress address = addresses.get(variable);
+        return address == UNRESOLVED || address == null || !address.isValid() ? null : address;
+    }
+
+    /*
+     * Returns the name of the RIL method which implements the given method of a class,
+     * which may be inherited from one of its ancestors.
+     */
+    public String getDefiningMethodName(String methodName) {
+        return definingMethodNames.getOrDefault(methodName, methodName);
+    }
+
+    /*
+     * Invalidates the addresses of the variable with the name which were resolved past the
+     * layout; variables the RIL model does not declare are not expected.
+     */
+    void layoutGrown(FrameLayout layout, String name) {
+        if (!resolved)
+            return;
+        for (VariableAddress address : shadowedAddresses.getOrDefault(layout, Collections.emptyList()))
+            if (address.getLayout().getName(address.getSlot()).equals(name))
+                address.invalidate();
+    }
+
+    /*
+     * Resolves the RIL model against the class records of the actors of the initial state,
+     * before any message server or constructor is executed.
+     */
+    public void resolve(RILModel rilModel, State initialState) {
+        Map<String, List<FrameLayout>> classChains = new HashMap<>();
+        Map<String, List<String>> classNameChains = new HashMap<>();
+        for (BaseActorState actorState : initialState.getAllActorStates()) {
+            for (ActivationRecord record : actorState.getActorScopeStack().getActivationRecords()) {
+                List<FrameLayout> classChain = new ArrayList<>();
+                List<String> classNameChain = new ArrayList<>();
+                for (ActivationRecord cursor = record; cursor != null; cursor = cursor.getPreviousScope()) {
+                    classChain.add(cursor.getLayout());
+                    classNameChain.add(cursor.getRelatedRebecType());
+                }
+                classChains.putIfAbsent(record.getRelatedRebecType(), classChain);
+                classNameChains.putIfAbsent(record.getRelatedRebecType(), classNameChain);
+            }
+        }
+
+        Map<String, Set<String>> parametersNames = new HashMap<>();
+        Set<String> methodSimpleNames = new HashSet<>();
+        for (String methodName : rilModel.getMethodNames()) {
+            methodSimpleNames.add(simpleName(methodName));
+            for (InstructionBean instruction : rilModel.getInstructionList(methodName)) {
+                if (instruction instanceof PushARInstructionBean)
+                    blockLayouts.put(instruction, createLayout());
+                if (instruction instanceof MethodCallInstructionBean) {
+                    MethodCallInstructionBean methodCall = (MethodCallInstructionBean) instruction;
+                    if (methodCall.getMethodName().contains("."))
+                        parametersNames.computeIfAbsent(simpleName(methodCall.getMethodName()),
+                                name -> new HashSet<>()).addAll(methodCall.getParametersNames());
+                }
+            }
+        }
+
+        for (String className : classNameChains.keySet())
+            for (String methodSimpleName : methodSimpleNames)
+                for (String ancestorName : classNameChains.get(className)) {
+                    String methodName = ancestorName + "." + methodSimpleName;
+                    if (rilModel.getInstructionList(methodName) != null) {
+                        definingMethodNames.put(className + "." + methodSimpleName, methodName);
+                        break;
+                    }
+                }
+
+        for (String methodName : rilModel.getMethodNames()) {
+            FrameLayout methodLayout = createLayout();
+            methodLayout.addSlot(InstructionUtilities.PC_STRING);
+            methodLayout.addSlot(AbstractExpressionTranslator.RETURN_VALUE);
+            methodLayout.addSlot("sender");
+            for (String parameterName : parametersNames.getOrDefault(simpleName(methodName), Collections.emptySet()))
+                methodLayout.addSlot(parameterName);
+            for (Map.Entry<String, Byte> parameterKind :
+                    parameterKinds.getOrDefault(methodName, Collections.emptyMap()).entrySet())
+                methodLayout.addSlot(parameterKind.getKey(), parameterKind.getValue());
+            methodLayouts.put(methodName, methodLayout);
+        }
+
+        for (String methodName : rilModel.getMethodNames())
+            resolveMethod(methodName, rilModel.getInstructionList(methodName), methodLayouts.get(methodName),
+                    classChains.get(methodName.split("\\.")[0]));
+        resolved = true;
+    }
+
+    private void resolveMethod(String methodName, List<InstructionBean> instructions,
+                               FrameLayout methodLayout, List<FrameLayout> classChain) {
+        FrameLayout[][] blocks = followBlocks(methodName, instructions, methodLayout);
+        for (int lineNumber = 0; lineNumber < instructions.size(); lineNumber++) {
+            InstructionBean instruction = instructions.get(lineNumber);
+            List<Variable> variables = new ArrayList<>();
+            if (instruction instanceof AssignmentInstructionBean) {
+                AssignmentInstructionBean assignment = (AssignmentInstructionBean) instruction;
+                addVariable(variables, assignment.getLeftVarName());
+                addVariable(variables, assignment.getFirstOperand());
+                addVariable(variables, assignment.getSecondOperand());
+            } else if (instruction instanceof JumpIfNotInstructionBean) {
+                addVariable(variables, ((JumpIfNotInstructionBean) instruction).getCondition());
+            } else if (instruction instanceof CallMsgSrvInstructionBean) {
+                addVariable(variables, ((CallMsgSrvInstructionBean) instruction).getReceiver());
+            } else if (instruction instanceof MethodCallInstructionBean) {
+                addVariable(variables, ((MethodCallInstructionBean) instruction).getBase());
+                for (Object parameter : ((MethodCallInstructionBean) instruction).getParameters())
+                    addVariable(variables, parameter);
+            } else if (instruction instanceof ExternalMethodCallInstructionBean) {
+                ExternalMethodCallInstructionBean externalMethodCall = (ExternalMethodCallInstructionBean) instruction;
+                addVariable(variables, externalMethodCall.getBase());
+                addVariable(variables, externalMethodCall.getFunctionCallResult());
+                if (externalMethodCall.getParameters() != null)
+                    for (Object parameter : externalMethodCall.getParameters())
+                        addVariable(variables, parameter);
+            }
+            for (Variable variable : variables) {
+                VariableAddress address = blocks == null || blocks[lineNumber] == null ? null :
+                        resolveVariable(variable.getVarName(), blocks[lineNumber], methodLayout, classChain);
+                addresses.merge(variable, address == null ? UNRESOLVED : address,
+                        (first, second) -> first.equals(second) ? first : UNRESOLVED);
+            }
+        }
+    }
+
+    private static void addVariable(List<Variable> variables, Object operand) {
+        if (operand instanceof Variable)
+            variables.add((Variable) operand);
+    }
+
+    /*
+     * Returns the layouts of the blocks which are open before each instruction, from the
+     * outermost one, or null if an instruction is reached with different blocks.
+     */
+    private FrameLayout[][] followBlocks(String methodName, List<InstructionBean> instructions,
+                                         FrameLayout methodLayout) {
+        FrameLayout[][] blocks = new FrameLayout[instructions.size()][];
+        Deque<Integer> worklist = new ArrayDeque<>();
+        if (!instructions.isEmpty()) {
+            blocks[0] = new FrameLayout[0];
+            worklist.push(0);
+        }
+        while (!worklist.isEmpty()) {
+            int lineNumber = worklist.pop();
+            FrameLayout[] openBlocks = blocks[lineNumber];
+            InstructionBean instruction = instructions.get(lineNumber);
+            if (instruction instanceof PushARInstructionBean) {
+                openBlocks = Arrays.copyOf(openBlocks, openBlocks.length + 1);
+                openBlocks[openBlocks.length - 1] = blockLayouts.get(instruction);
+            } else if (instruction instanceof PopARInstructionBean) {
+                int numberOfPops = ((PopARInstructionBean) instruction).getNumberOfPops();
+                if (numberOfPops > openBlocks.length)
+                    return null;
+                openBlocks = Arrays.copyOf(openBlocks, openBlocks.length - numberOfPops);
+            } else if (instruction instanceof DeclarationInstructionBean) {
+                String varName = ((DeclarationInstructionBean) instruction).getVarName();
+                (openBlocks.length == 0 ? methodLayout : openBlocks[openBlocks.length - 1]).addSlot(varName);
+            }
+            if (instruction instanceof EndMethodInstructionBean || instruction instanceof EndMsgSrvInstructionBean)
+                continue;
+            if (instruction instanceof JumpIfNotInstructionBean) {
+                JumpIfNotInstructionBean jump = (JumpIfNotInstructionBean) instruction;
+                if (!methodName.equals(jump.getMethodName()) ||
+                        !flow(blocks, jump.getLineNumber(), openBlocks, worklist))
+                    return null;
+                if (jump.getCondition() == null)
+                    continue;
+            }
+            if (!flow(blocks, lineNumber + 1, openBlocks, worklist))
+                return null;
+        }
+        return blocks;
+    }
+
+    private static boolean flow(FrameLayout[][] blocks, int lineNumber, FrameLayout[] openBlocks,
+                                Deque<Integer> worklist) {
+        if (lineNumber >= blocks.length)
+            return true;
+        if (blocks[lineNumber] == null) {
+            blocks[lineNumber] = openBlocks;
+            worklist.push(lineNumber);
+            return true;
+        }
+        return Arrays.equals(blocks[lineNumber], openBlocks);
+    }
+
+    /*
+     * Looks the variable up from the innermost open block to the outermost class record; the
+     * number of hops of an address is the index of its scope in this order.
+     */
+    private VariableAddress resolveVariable(String varName, FrameLayout[] openBlocks,
+                                            FrameLayout methodLayout, List<FrameLayout> classChain) {
+        List<FrameLayout> scopes = new ArrayList<>();
+        for (int i = openBlocks.length - 1; i >= 0; i--)
+            scopes.add(openBlocks[i]);
+        scopes.add(methodLayout);
+        if (classChain != null)
+            scopes.addAll(classChain);
+        for (int hops = 0; hops < scopes.size(); hops++) {
+            int slot = scopes.get(hops).getSlot(varName);
+            if (slot < 0)
+                continue;
+            VariableAddress address = internedAddresses.computeIfAbsent(
+                    new VariableAddress(hops, scopes.get(hops), slot), Function.identity());
+            for (FrameLayout shadowingLayout : scopes.subList(0, hops))
+                shadowedAddresses.computeIfAbsent(shadowingLayout, layout -> new ArrayList<>()).add(address);
+            return address;
+        }
+        return null;
+    }
+
+    private static String simpleName(String methodName) {
+        return methodName.substring(methodName.indexOf('.') + 1);
+    }
+}
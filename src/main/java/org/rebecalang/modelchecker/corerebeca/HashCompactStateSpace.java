@@ -0,0 +1,89 @@
+package org.rebecalang.modelchecker.corerebeca;
+
+/*
+ * Hash compaction: only the 64-bit fingerprint of a state is kept, in an open-addressing
+ * table of longs. The fingerprint is maintained incrementally by the state, so states
+ * are never encoded. Two different states with the same fingerprint are merged, so the
+ * chance of that is reported as the omission probability.
+ */
+public class HashCompactStateSpace extends StateSpace {
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+	private static final float LOAD_FACTOR = 0.5f;
+	private static final long EMPTY = 0;
+	private static final long SUBSTITUTE_OF_EMPTY = 1;
+
+	long[] fingerprints;
+
+	public HashCompactStateSpace(StateCodec stateCodec, int expectedStates) {
+		super(stateCodec);
+		long requiredCapacity = (long) Math.ceil(Math.max(expectedStates, 1) / LOAD_FACTOR);
+		int capacity = 16;
+		while (capacity < requiredCapacity && capacity < MAXIMUM_CAPACITY)
+			capacity <<= 1;
+		fingerprints = new long[capacity];
+	}
+
+	@Override
+	public State putIfAbsent(State state) {
+		long fingerprint = fingerprintOf(state);
+		int index = findSlot(fingerprints, fingerprint);
+		if (fingerprints[index] != EMPTY)
+			return state;
+		fingerprints[index] = fingerprint;
+		if (++size > fingerprints.length * LOAD_FACTOR)
+			resize();
+		return null;
+	}
+
+	@Override
+	public boolean hasState(State state) {
+		long fingerprint = fingerprintOf(state);
+		return fingerprints[findSlot(fingerprints, fingerprint)] != EMPTY;
+	}
+
+	private long fingerprintOf(State state) {
+		long fingerprint = state.fingerprint();
+		return fingerprint == EMPTY ? SUBSTITUTE_OF_EMPTY : fingerprint;
+	}
+
+	private static int findSlot(long[] fingerprints, long fingerprint) {
+		int mask = fingerprints.length - 1;
+		int index = (int) fingerprint & mask;
+		while (fingerprints[index] != EMPTY && fingerprints[index] != fingerprint)
+			index = (index + 1) & mask;
+		return index;
+	}
+
+	private void resize() {
+		if (fingerprints.length == MAXIMUM_CAPACITY)
+			throw new RebecaRuntimeInterpreterException("State space can not grow beyond " + size + " states");
+		long[] oldFingerprints = fingerprints;
+		fingerprints = new long[oldFingerprints.length << 1];
+		for (long fingerprint : oldFingerprints)
+			if (fingerprint != EMPTY)
+				fingerprints[findSlot(fingerprints, fingerprint)] = fingerprint;
+	}
+
+	@Override
+	public long getStoredBytes() {
+		return (long) fingerprints.length * Long.BYTES;
+	}
+
+	/*
+	 * Probability that some of the n states share a b-bit fingerprint with another one,
+	 * bounded by n^2 / 2^(b+1).
+	 */
+	public static double collisionProbability(long states, int fingerprintBits) {
+		return Math.min(1, (double) states * states / Math.scalb(1.0, fingerprintBits + 1));
+	}
+
+	@Override
+	public double getOmissionProbability() {
+		return collisionProbability(size, Long.SIZE);
+	}
+
+	@Override
+	public double getExpectedCoverage() {
+		return 1 - size / Math.scalb(1.0, Long.SIZE + 1);
+	}
+}
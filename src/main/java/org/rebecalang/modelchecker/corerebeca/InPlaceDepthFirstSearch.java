@@ -0,0 +1,151 @@
+package org.rebecalang.modelchecker.corerebeca;
+
+import org.rebecalang.modelchecker.corerebeca.policy.AbstractPolicy;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/*
+ * Depth first search which executes the transitions in place on a single state instead of
+ * on copies of their source states. Every change of the state by a transition, a push or
+ * pop of a scope, a write of a variable, an operation on a queue or a change of a program
+ * counter, is recorded in an undo log, and the search backtracks by rolling the changes
+ * back; so a transition costs as much as the instructions it executes. A new state is
+ * copied only if the state space keeps the states for the transition graph, and then only
+ * the actor states changed by its transition are copied, the others are shared with its
+ * source state; otherwise the state space keeps only its encoding or fingerprint.
+ *
+ * A transition with nondeterministic choices is executed again from its source state for
+ * each combination of their alternatives, as the state can not be forked at the choice
+ * points.
+ */
+class InPlaceDepthFirstSearch {
+
+    private final CoreRebecaModelChecker modelChecker;
+    private final AbstractPolicy policy;
+    private final StateSpace visitedStates;
+    private final UndoLog undoLog = new UndoLog();
+    private final List<BaseActorState> changedActorStates = new ArrayList<>();
+    private int maximumDepth;
+
+    InPlaceDepthFirstSearch(CoreRebecaModelChecker modelChecker, AbstractPolicy policy, StateSpace visitedStates) {
+        this.modelChecker = modelChecker;
+        this.policy = policy;
+        this.visitedStates = visitedStates;
+    }
+
+    /*
+     * Searches the states reachable from the given state, which is visited already and is
+     * not modified. A deadlock or a failed assertion is thrown with the path to it.
+     */
+    void search(State initialState) throws ModelCheckingException {
+        State currentState = initialState.fork();
+        currentState.setUndoLog(undoLog);
+        Deque<Step> path = new ArrayDeque<>();
+        path.push(new Step(null, initialState, undoLog.mark()));
+        while (!path.isEmpty()) {
+            Step step = path.peek();
+            try {
+                if (step.enabledActors == null)
+                    step.enabledActors = CoreRebecaModelChecker.getEnabledActors(currentState).iterator();
+                if (step.transitionChoices == null) {
+                    if (!step.enabledActors.hasNext()) {
+                        path.pop();
+                        if (!path.isEmpty())
+                            undoLog.rollBack(path.peek().mark);
+                        continue;
+                    }
+                    step.actorState = (ActorSate) step.enabledActors.next();
+                    step.transitionChoices = new ReplayedTransitionChoices();
+                }
+                String transitionLabel = executeTransition(currentState, step.actorState, step.transitionChoices);
+                if (!step.transitionChoices.nextExecution())
+                    step.transitionChoices = null;
+                State newState = store(step, transitionLabel, currentState);
+                if (newState == null) {
+                    undoLog.rollBack(step.mark);
+                } else {
+                    path.push(new Step(transitionLabel, newState, undoLog.mark()));
+                    maximumDepth = Math.max(maximumDepth, path.size() - 1);
+                }
+            } catch (ModelCheckingException e) {
+                throw new CounterexampleException(e.getMessage(), getTrace(path));
+            } catch (AssertionError e) {
+                throw new CounterexampleException("Assertion failed" +
+                        (e.getMessage() == null ? "" : ": " + e.getMessage()), getTrace(path));
+            }
+        }
+    }
+
+    private String executeTransition(State currentState, ActorSate actorState,
+                                     ReplayedTransitionChoices transitionChoices) {
+        String transitionLabelStart = modelChecker.calculateTransitionLabelStart(actorState, actorState.getMessage());
+        currentState.setTransitionChoices(transitionChoices);
+        actorState.execute(currentState, policy);
+        currentState.setTransitionChoices(null);
+        return transitionLabelStart + modelChecker.calculateTransitionLabelEnd(actorState);
+    }
+
+    /*
+     * Adds the current state, reached from the state of the step, to the visited states,
+     * linked to the state of the step if the states are kept, and returns the state which
+     * is kept for it, or null if it was visited before. If the states are not kept the
+     * current state is returned as it is.
+     */
+    private State store(Step step, String transitionLabel, State currentState) {
+        State sourceState = step.state;
+        if (!visitedStates.retainsStates())
+            return visitedStates.putIfAbsent(currentState) == null ? currentState : null;
+        if (visitedStates.hasState(currentState)) {
+            CoreRebecaModelChecker.linkStates(sourceState, transitionLabel, visitedStates.putIfAbsent(currentState));
+            return null;
+        }
+        State newState = sourceState.copy();
+        changedActorStates.clear();
+        undoLog.collectChangedActorStates(step.mark, changedActorStates);
+        for (BaseActorState actorState : changedActorStates)
+            newState.putActorState(actorState.copy());
+        visitedStates.putIfAbsent(newState);
+        newState.setId(modelChecker.stateCounter.getAndIncrement());
+        CoreRebecaModelChecker.linkStates(sourceState, transitionLabel, newState);
+        return newState;
+    }
+
+    private static List<String> getTrace(Deque<Step> path) {
+        List<String> trace = new ArrayList<>();
+        Iterator<Step> steps = path.descendingIterator();
+        while (steps.hasNext()) {
+            Step step = steps.next();
+            if (step.transitionLabel != null)
+                trace.add(step.transitionLabel);
+        }
+        return trace;
+    }
+
+    int getMaximumDepth() {
+        return maximumDepth;
+    }
+
+    /*
+     * State on the path of the search, with the mark of the undo log at which the current
+     * state is this one, its enabled actors whose transitions are not executed yet and the
+     * choices of the actor whose transition is being executed.
+     */
+    private static class Step {
+        private final String transitionLabel;
+        private final State state;
+        private final int mark;
+        private Iterator<BaseActorState> enabledActors;
+        private ActorSate actorState;
+        private ReplayedTransitionChoices transitionChoices;
+
+        Step(String transitionLabel, State state, int mark) {
+            this.transitionLabel = transitionLabel;
+            this.state = state;
+            this.mark = mark;
+        }
+    }
+}
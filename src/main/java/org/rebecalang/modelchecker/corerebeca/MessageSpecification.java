@@ -6,6 +6,17 @@ import java.util.List;
 public class MessageSpecification {
     String messageName;
     List<Object> parameters;
+    /*
+     * Method of the RIL program which serves the message, resolved when the message is sent;
+     * -1 if it is resolved by the message's name. It is not a part of the message's identity.
+     */
+    int methodId = -1;
+
+    public long fingerprint() {
+        long result = FingerprintUtilities.fingerprint(messageName);
+        result = FingerprintUtilities.combine(result, FingerprintUtilities.fingerprintOfValue(parameters));
+        return FingerprintUtilities.combine(result, FingerprintUtilities.fingerprintOfValue(sender));
+    }
 
     @Override
     public int hashCode() {
@@ -13,7 +24,7 @@ public class MessageSpecification {
         int result = 1;
         result = prime * result + ((messageName == null) ? 0 : messageName.hashCode());
         result = prime * result + ((parameters == null) ? 0 : parameters.hashCode());
-        result = prime * result + ((senderActorState == null) ? 0 : senderActorState.getName().hashCode());
+        result = prime * result + ((sender == null) ? 0 : sender.hashCode());
         return result;
     }
 
@@ -34,20 +45,33 @@ public class MessageSpecification {
         if (parameters == null) {
             if (other.parameters != null)
                 return false;
-        } else if (!parameters.equals(other.parameters))
+        } else if (!FingerprintUtilities.valueEquals(parameters, other.parameters))
             return false;
-        if (senderActorState == null) {
-			return other.senderActorState == null;
-        } else return senderActorState.equals(other.senderActorState);
+        if (sender == null) {
+            return other.sender == null;
+        } else return sender.equals(other.sender);
 	}
 
-    BaseActorState senderActorState;
+    ActorDescriptor sender;
 
-    public MessageSpecification(String messageName, ArrayList<Object> parameters, BaseActorState baseActorState) {
+    public MessageSpecification(String messageName, ArrayList<Object> parameters, ActorDescriptor sender) {
         super();
         this.messageName = messageName;
         this.parameters = parameters;
-        this.senderActorState = baseActorState;
+        this.sender = sender;
+    }
+
+    public MessageSpecification(MessageSpecification messageSpecification) {
+        super();
+        this.messageName = messageSpecification.messageName;
+        this.parameters = messageSpecification.parameters == null ? null :
+                new ArrayList<Object>(messageSpecification.parameters);
+        this.sender = messageSpecification.sender;
+        this.methodId = messageSpecification.methodId;
+    }
+
+    public MessageSpecification copy() {
+        return new MessageSpecification(this);
     }
 
     public String getMessageName() {
@@ -66,12 +90,20 @@ public class MessageSpecification {
         this.parameters = parameters;
     }
 
-    public BaseActorState getSenderActorState() {
-        return senderActorState;
+    public int getMethodId() {
+        return methodId;
+    }
+
+    public void setMethodId(int methodId) {
+        this.methodId = methodId;
+    }
+
+    public ActorDescriptor getSender() {
+        return sender;
     }
 
-    public void setSenderActorState(BaseActorState senderActorState) {
-        this.senderActorState = senderActorState;
+    public void setSender(ActorDescriptor sender) {
+        this.sender = sender;
     }
 
 }
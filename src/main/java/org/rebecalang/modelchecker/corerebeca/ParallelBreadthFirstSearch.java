@@ -0,0 +1,84 @@
+package org.rebecalang.modelchecker.corerebeca;
+
+import org.rebecalang.modelchecker.corerebeca.policy.AbstractPolicy;
+
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Breadth first search by a pool of workers. Each worker has a queue of frontier states
+ * which it expands in the order they are found, adding the new states to its own queue;
+ * an idle worker steals the oldest states of the queues of the others. The search is
+ * over when the expansions of all the found states are complete. The workers share the
+ * visited states, so the same states are visited as by the sequential search, though
+ * in another order and with other ids.
+ */
+class ParallelBreadthFirstSearch {
+
+    private final CoreRebecaModelChecker modelChecker;
+    private final RILProgram program;
+    private final int workers;
+    private final ThreadLocal<AbstractPolicy> workerPolicies;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    ParallelBreadthFirstSearch(CoreRebecaModelChecker modelChecker, RILProgram program, AbstractPolicy policy,
+                               int workers) {
+        this.modelChecker = modelChecker;
+        this.program = program;
+        this.workers = workers;
+        this.workerPolicies = ThreadLocal.withInitial(policy::copy);
+    }
+
+    /*
+     * Expands the states reachable from the given state. The first failure of a worker,
+     * like a deadlock, stops the others and is thrown when they have stopped.
+     */
+    void search(State initialState) throws ModelCheckingException {
+        ForkJoinPool pool = new ForkJoinPool(workers, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        initialState.shareActorStates();
+        try {
+            Expansion root = new Expansion(null, initialState);
+            pool.execute(root);
+            root.quietlyJoin();
+        } finally {
+            pool.shutdownNow();
+        }
+        Throwable exception = failure.get();
+        if (exception instanceof ModelCheckingException)
+            throw (ModelCheckingException) exception;
+        if (exception instanceof RuntimeException)
+            throw (RuntimeException) exception;
+        if (exception instanceof Error)
+            throw (Error) exception;
+    }
+
+    /*
+     * Completes when the state and the states found from it are expanded.
+     */
+    @SuppressWarnings("serial")
+    private class Expansion extends CountedCompleter<Void> {
+        private State state;
+
+        Expansion(Expansion parent, State state) {
+            super(parent);
+            this.state = state;
+        }
+
+        @Override
+        public void compute() {
+            try {
+                if (failure.get() == null)
+                    modelChecker.expandState(state, program, workerPolicies.get(), modelChecker.getStateSpace(),
+                            (transitionLabel, newState) -> {
+                                addToPendingCount(1);
+                                new Expansion(this, newState).fork();
+                            });
+            } catch (ModelCheckingException | RuntimeException | Error e) {
+                failure.compareAndSet(null, e);
+            }
+            state = null;
+            tryComplete();
+        }
+    }
+}
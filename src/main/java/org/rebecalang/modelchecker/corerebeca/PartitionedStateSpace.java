@@ -0,0 +1,117 @@
+package org.rebecalang.modelchecker.corerebeca;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Partition of the state space of a distributed search which is owned by one node. The
+ * partition of a state is chosen by its fingerprint. States of this partition are kept in
+ * a local state space; states of other partitions are encoded by a portable codec and
+ * left in the outbox of their owner, to be sent to it, and are taken for visited ones
+ * here.
+ */
+public class PartitionedStateSpace extends StateSpace {
+	private static final long PARTITION_SEED = 0x6A09E667F3BCC909L;
+
+	private final StateSpace localStateSpace;
+	private final int nodeId;
+	private final List<List<byte[]>> outboxes = new ArrayList<>();
+
+	public PartitionedStateSpace(StateCodec portableStateCodec, StateSpace localStateSpace, int nodeId,
+			int nodesCount) {
+		super(portableStateCodec);
+		this.localStateSpace = localStateSpace;
+		this.nodeId = nodeId;
+		for (int node = 0; node < nodesCount; node++)
+			outboxes.add(new ArrayList<byte[]>());
+	}
+
+	public int getOwner(State state) {
+		long hash = FingerprintUtilities.mix(state.fingerprint() ^ PARTITION_SEED);
+		return (int) Long.remainderUnsigned(hash, outboxes.size());
+	}
+
+	public boolean isOwner(State state) {
+		return getOwner(state) == nodeId;
+	}
+
+	/*
+	 * Every node creates the initial state, but only its owner visits it.
+	 */
+	@Override
+	public void addInitialState(State initialState) {
+		this.initialState = initialState;
+		stateCodec.registerActors(initialState);
+		if (isOwner(initialState))
+			localStateSpace.addInitialState(initialState);
+		else
+			localStateSpace.getStateCodec().registerActors(initialState);
+	}
+
+	/*
+	 * A state of another partition is returned as it is, as if it was visited, whether its
+	 * owner has visited it or not; it is neither counted nor given an id by this node, and
+	 * the transition to it is not linked here.
+	 */
+	@Override
+	public State putIfAbsent(State state) {
+		int owner = getOwner(state);
+		if (owner == nodeId)
+			return localStateSpace.putIfAbsent(state);
+		outboxes.get(owner).add(stateCodec.encode(state));
+		return state;
+	}
+
+	/*
+	 * Returns a state sent by another node and adds it, if it is not visited yet;
+	 * otherwise returns null.
+	 */
+	public State putReceivedIfAbsent(byte[] vector) {
+		State state = stateCodec.decode(vector);
+		return localStateSpace.putIfAbsent(state) == null ? state : null;
+	}
+
+	public List<byte[]> getOutbox(int node) {
+		return outboxes.get(node);
+	}
+
+	@Override
+	public boolean hasState(State state) {
+		return isOwner(state) && localStateSpace.hasState(state);
+	}
+
+	@Override
+	public long getStoredBytes() {
+		return localStateSpace.getStoredBytes();
+	}
+
+	@Override
+	public double getOmissionProbability() {
+		return localStateSpace.getOmissionProbability();
+	}
+
+	@Override
+	public double getExpectedCoverage() {
+		return localStateSpace.getExpectedCoverage();
+	}
+
+	@Override
+	public void close() {
+		localStateSpace.close();
+	}
+
+	@Override
+	public int size() {
+		return localStateSpace.size();
+	}
+
+	/*
+	 * Number of the states of this partition only; the states of the other partitions which
+	 * this node reaches are counted by their owners, so the counts of all the nodes add up
+	 * to the states of the model. Transitions are not counted by any node.
+	 */
+	@Override
+	public long getStatesCount() {
+		return localStateSpace.getStatesCount();
+	}
+}
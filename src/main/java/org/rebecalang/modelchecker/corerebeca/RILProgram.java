@@ -0,0 +1,306 @@
+package org.rebecalang.modelchecker.corerebeca;
+
+import org.rebecalang.modelchecker.corerebeca.bytecode.CompiledMethod;
+import org.rebecalang.modelchecker.corerebeca.bytecode.MethodCompiler;
+import org.rebecalang.modelchecker.corerebeca.rilinterpreter.InstructionInterpreter;
+import org.rebecalang.modelchecker.corerebeca.rilinterpreter.ProgramCounter;
+import org.rebecalang.modeltransformer.ril.RILModel;
+import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.AssignmentInstructionBean;
+import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.CallMsgSrvInstructionBean;
+import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.InstructionBean;
+import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.MethodCallInstructionBean;
+import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.NonDetValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Program image of a RIL model, compiled when the model is loaded. Methods are numbered in
+ * the order of their names and program counters refer to them by number. Each instruction
+ * is bound to its interpreter, so an instruction is fetched and dispatched by indexing
+ * arrays; when the program is resolved, interpreters may replace themselves with ones
+ * compiled for their instructions. Program counters are interned per line, as they are
+ * immutable.
+ *
+ * Names of methods which a class inherits are mapped to the numbers of the methods of the
+ * ancestors defining them once the frame layouts of the program are resolved. Classes and
+ * the simple names of methods, their selectors, are numbered as well; the dispatch table
+ * maps a class and a selector to the method which serves it, and each message server call
+ * and method call of the program is bound to its selector. Actors of the model are numbered
+ * in the order of their definitions, which states index their actor states by.
+ *
+ * The alternatives of the nondeterministic values of assignments are listed when the
+ * program is compiled, so the values are not iterated while the program is executed.
+ *
+ * Methods of a resolved program may be compiled to Java classes, which actors execute
+ * instead of interpreting the methods' instructions one by one.
+ */
+public class RILProgram {
+
+    private final RILModel rilModel;
+    private final FrameLayouts frameLayouts = new FrameLayouts();
+    private final Map<String, Integer> methodIds = new HashMap<>();
+    private final String[] methodNames;
+    private final String[] methodClassNames;
+    private final InstructionBean[][] instructions;
+    private final InstructionInterpreter[][] interpreters;
+    private final ProgramCounter[][] programCounters;
+    private final FrameLayout[] methodLayouts;
+    private final Map<String, Integer> classIds = new HashMap<>();
+    private final List<String> classNames = new ArrayList<>();
+    private final Map<String, Integer> selectorIds = new HashMap<>();
+    private final List<String> selectorNames = new ArrayList<>();
+    private final Map<String, Integer> actorIds = new HashMap<>();
+    private final Map<InstructionBean, Integer> callSelectorIds = new IdentityHashMap<>();
+    private final Map<NonDetValue, Object[]> alternatives = new IdentityHashMap<>();
+    private int[][] dispatchTable;
+    private String[][] messageNames;
+    private CompiledMethod[] compiledMethods;
+
+    /*
+     * Interpreters of the instructions are taken from the statement interpreter container,
+     * so it has to be initialized before the program is compiled.
+     */
+    public RILProgram(RILModel rilModel) {
+        this.rilModel = rilModel;
+        List<String> sortedMethodNames = new ArrayList<>(rilModel.getMethodNames());
+        Collections.sort(sortedMethodNames);
+        int methodsCount = sortedMethodNames.size();
+        methodNames = new String[methodsCount];
+        methodClassNames = new String[methodsCount];
+        instructions = new InstructionBean[methodsCount][];
+        interpreters = new InstructionInterpreter[methodsCount][];
+        programCounters = new ProgramCounter[methodsCount][];
+        methodLayouts = new FrameLayout[methodsCount];
+        StatementInterpreterContainer statementInterpreterContainer = StatementInterpreterContainer.getInstance();
+        for (int methodId = 0; methodId < methodsCount; methodId++) {
+            String methodName = sortedMethodNames.get(methodId);
+            methodNames[methodId] = methodName;
+            methodClassNames[methodId] = methodName.substring(0, methodName.indexOf('.'));
+            methodIds.put(methodName, methodId);
+            getClassId(methodClassNames[methodId]);
+            getSelectorId(simpleName(methodName));
+            List<InstructionBean> instructionList = rilModel.getInstructionList(methodName);
+            instructions[methodId] = instructionList.toArray(new InstructionBean[0]);
+            interpreters[methodId] = new InstructionInterpreter[instructionList.size()];
+            for (int lineNumber = 0; lineNumber < instructionList.size(); lineNumber++) {
+                InstructionBean instruction = instructionList.get(lineNumber);
+                interpreters[methodId][lineNumber] = statementInterpreterContainer.retrieveInterpreter(instruction);
+                if (instruction instanceof CallMsgSrvInstructionBean)
+                    callSelectorIds.put(instruction,
+                            getSelectorId(simpleName(((CallMsgSrvInstructionBean) instruction).getMsgsrvName())));
+                if (instruction instanceof AssignmentInstructionBean) {
+                    addAlternatives(((AssignmentInstructionBean) instruction).getFirstOperand());
+                    addAlternatives(((AssignmentInstructionBean) instruction).getSecondOperand());
+                }
+                if (instruction instanceof MethodCallInstructionBean &&
+                        ((MethodCallInstructionBean) instruction).getMethodName().contains("."))
+                    callSelectorIds.put(instruction,
+                            getSelectorId(simpleName(((MethodCallInstructionBean) instruction).getMethodName())));
+            }
+            programCounters[methodId] = new ProgramCounter[instructionList.size() + 1];
+            for (int lineNumber = 0; lineNumber <= instructionList.size(); lineNumber++)
+                programCounters[methodId][lineNumber] = new ProgramCounter(methodId, lineNumber);
+        }
+    }
+
+    private void addAlternatives(Object operand) {
+        if (operand instanceof NonDetValue)
+            alternatives.computeIfAbsent((NonDetValue) operand, RILProgram::listAlternatives);
+    }
+
+    /*
+     * Lists the alternatives of a nondeterministic value, flattening the nondeterministic
+     * values among them, and leaves the value at its first alternative.
+     */
+    private static Object[] listAlternatives(NonDetValue nonDetValue) {
+        List<Object> values = new ArrayList<>();
+        nonDetValue.reset();
+        values.add(nonDetValue.getValue());
+        while (nonDetValue.hasNext()) {
+            nonDetValue.next();
+            values.add(nonDetValue.getValue());
+        }
+        nonDetValue.reset();
+        List<Object> flattenedValues = new ArrayList<>();
+        for (Object value : values) {
+            if (value instanceof NonDetValue)
+                flattenedValues.addAll(Arrays.asList(listAlternatives((NonDetValue) value)));
+            else
+                flattenedValues.add(value);
+        }
+        return flattenedValues.toArray();
+    }
+
+    /*
+     * Returns the alternatives of an operand of an assignment; an operand which is not
+     * nondeterministic is its only alternative.
+     */
+    public Object[] getAlternatives(Object operand) {
+        Object[] operandAlternatives = operand instanceof NonDetValue ? alternatives.get(operand) : null;
+        return operandAlternatives == null ? new Object[]{operand} : operandAlternatives;
+    }
+
+    /*
+     * Resolves the frame layouts of the program against the class records of the actors of
+     * the initial state, before any constructor is executed.
+     */
+    public void resolve(State initialState) {
+        frameLayouts.resolve(rilModel, initialState);
+        for (int methodId = 0; methodId < methodNames.length; methodId++) {
+            methodLayouts[methodId] = frameLayouts.getMethodLayout(methodNames[methodId]);
+            for (int lineNumber = 0; lineNumber < instructions[methodId].length; lineNumber++)
+                if (interpreters[methodId][lineNumber] != null)
+                    interpreters[methodId][lineNumber] = interpreters[methodId][lineNumber]
+                            .compile(instructions[methodId][lineNumber], frameLayouts);
+        }
+        dispatchTable = new int[classNames.size()][selectorNames.size()];
+        messageNames = new String[classNames.size()][selectorNames.size()];
+        for (int classId = 0; classId < classNames.size(); classId++) {
+            for (int selectorId = 0; selectorId < selectorNames.size(); selectorId++) {
+                String messageName = classNames.get(classId) + "." + selectorNames.get(selectorId);
+                Integer methodId = methodIds.get(frameLayouts.getDefiningMethodName(messageName));
+                messageNames[classId][selectorId] = messageName;
+                dispatchTable[classId][selectorId] = methodId == null ? -1 : methodId;
+            }
+        }
+    }
+
+    /*
+     * Compiles the methods of the program once it is resolved, as the compiled methods
+     * call the interpreters which the instructions are bound to then.
+     */
+    public void compileMethods(MethodCompiler methodCompiler) {
+        compiledMethods = methodCompiler.compile(this);
+    }
+
+    /*
+     * Returns the compiled method, or null if the method is interpreted.
+     */
+    public CompiledMethod getCompiledMethod(int methodId) {
+        return compiledMethods == null ? null : compiledMethods[methodId];
+    }
+
+    public FrameLayouts getFrameLayouts() {
+        return frameLayouts;
+    }
+
+    /*
+     * Returns the number of the method which implements the given method of a class, which
+     * may be inherited from one of its ancestors.
+     */
+    public int getMethodId(String methodName) {
+        Integer methodId = methodIds.get(frameLayouts.getDefiningMethodName(methodName));
+        if (methodId == null)
+            throw new RebecaRuntimeInterpreterException("Unknown method " + methodName);
+        return methodId;
+    }
+
+    /*
+     * Returns the number of the method which serves the message, resolving it by the
+     * message's name if the message was not resolved when it was sent.
+     */
+    public int getMethodId(MessageSpecification message) {
+        return message.getMethodId() >= 0 ? message.getMethodId() : getMethodId(message.getMessageName());
+    }
+
+    /*
+     * Returns the number of the method which serves the selector for instances of the class,
+     * or -1 if the class neither defines nor inherits it.
+     */
+    public int getMethodId(int classId, int selectorId) {
+        return dispatchTable[classId][selectorId];
+    }
+
+    public int getMethodsCount() {
+        return methodNames.length;
+    }
+
+    public int getLinesCount(int methodId) {
+        return instructions[methodId].length;
+    }
+
+    public String getMethodName(int methodId) {
+        return methodNames[methodId];
+    }
+
+    /*
+     * Name of the class which defines the method.
+     */
+    public String getClassName(int methodId) {
+        return methodClassNames[methodId];
+    }
+
+    /*
+     * Classes are numbered while the program is compiled and the initial actor states are
+     * built, before the program is resolved.
+     */
+    public int getClassId(String className) {
+        return classIds.computeIfAbsent(className, name -> {
+            classNames.add(name);
+            return classNames.size() - 1;
+        });
+    }
+
+    public int addActor(String actorName) {
+        return actorIds.computeIfAbsent(actorName, name -> actorIds.size());
+    }
+
+    /*
+     * Returns the number of the actor, or -1 if the model defines no actor with the name.
+     */
+    public int getActorId(String actorName) {
+        return actorIds.getOrDefault(actorName, -1);
+    }
+
+    private int getSelectorId(String selectorName) {
+        return selectorIds.computeIfAbsent(selectorName, name -> {
+            selectorNames.add(name);
+            return selectorNames.size() - 1;
+        });
+    }
+
+    /*
+     * Returns the selector of a message server call or a method call of the program.
+     */
+    public int getSelectorId(InstructionBean callInstruction) {
+        Integer selectorId = callSelectorIds.get(callInstruction);
+        if (selectorId == null)
+            throw new RebecaRuntimeInterpreterException(callInstruction + " is not a call of the RIL program");
+        return selectorId;
+    }
+
+    /*
+     * Name of the messages which instances of the class receive for the selector.
+     */
+    public String getMessageName(int classId, int selectorId) {
+        return messageNames[classId][selectorId];
+    }
+
+    public FrameLayout getMethodLayout(int methodId) {
+        return methodLayouts[methodId];
+    }
+
+    public InstructionBean getInstruction(int methodId, int lineNumber) {
+        return instructions[methodId][lineNumber];
+    }
+
+    public InstructionInterpreter getInterpreter(int methodId, int lineNumber) {
+        return interpreters[methodId][lineNumber];
+    }
+
+    public ProgramCounter getProgramCounter(int methodId, int lineNumber) {
+        ProgramCounter[] methodProgramCounters = programCounters[methodId];
+        return lineNumber < methodProgramCounters.length ? methodProgramCounters[lineNumber] :
+                new ProgramCounter(methodId, lineNumber);
+    }
+
+    private static String simpleName(String methodName) {
+        return methodName.substring(methodName.indexOf('.') + 1);
+    }
+}
@@ -0,0 +1,43 @@
+package org.rebecalang.modelchecker.corerebeca;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Choices of a transition which is executed in place. Instead of forking the state at its
+ * choice points, the transition is executed again from its source state for each
+ * combination of the alternatives, which are taken in depth first order: the last choice
+ * point with an alternative left takes its next one and the choice points after it start
+ * over, as they may differ from those of the previous execution.
+ */
+class ReplayedTransitionChoices extends TransitionChoices {
+
+    private final List<int[]> choicePoints = new ArrayList<>();
+    private int nextChoicePoint;
+
+    /*
+     * Returns the alternative of the choice point in this execution; the alternative of a
+     * choice point reached for the first time is the first one.
+     */
+    @Override
+    public int choose(State state, int alternativesCount) {
+        if (nextChoicePoint == choicePoints.size())
+            choicePoints.add(new int[] {0, alternativesCount});
+        return choicePoints.get(nextChoicePoint++)[0];
+    }
+
+    /*
+     * Moves to the combination of the alternatives of the next execution; returns false if
+     * all of them are executed.
+     */
+    boolean nextExecution() {
+        nextChoicePoint = 0;
+        for (int choicePoint = choicePoints.size() - 1; choicePoint >= 0; choicePoint--) {
+            int[] choice = choicePoints.get(choicePoint);
+            if (++choice[0] < choice[1])
+                return true;
+            choicePoints.remove(choicePoint);
+        }
+        return false;
+    }
+}
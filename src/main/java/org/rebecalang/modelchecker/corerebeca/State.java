@@ -1,64 +1,235 @@
 package org.rebecalang.modelchecker.corerebeca;
 
 import org.rebecalang.compiler.utils.Pair;
-import org.rebecalang.modelchecker.corerebeca.rilinterpreter.InstructionUtilities;
 
 import java.io.Serializable;
-import java.util.Hashtable;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
 @SuppressWarnings("serial")
 public class State implements Serializable {
 
-    protected Hashtable<String, BaseActorState> stateInfo;
+    /*
+     * States of the actors, indexed by the ids of their descriptors.
+     */
+    protected BaseActorState[] actorStates;
     protected List<Pair<String, State>> childStates;
     protected List<Pair<String, State>> parentStates;
+    /*
+     * Marks the actors whose states belong to this state only and can be modified in
+     * place; the other actor states are shared with the state this one is copied from.
+     */
+    private boolean[] ownedActorStates;
+    private int[] ownedActorIds;
+    private int ownedActorsCount;
+    /*
+     * Sums of the first and second fingerprints of the shared actor states, which can not
+     * change; the fingerprints of the owned ones are added when the state is fingerprinted.
+     */
+    private long sharedFingerprints;
+    private long sharedSecondFingerprints;
     private int id;
+    /*
+     * Choices of the transition which is being executed on this state, if any.
+     */
+    private transient TransitionChoices transitionChoices;
 
     public State() {
         super();
-        stateInfo = new Hashtable<String, BaseActorState>();
+        actorStates = new BaseActorState[0];
+        ownedActorStates = new boolean[0];
+        ownedActorIds = new int[0];
         childStates = new LinkedList<Pair<String, State>>();
         parentStates = new LinkedList<Pair<String, State>>();
     }
 
-    public void putActorState(String name, BaseActorState baseActorState) {
+    /*
+     * Copies the array of actor states. The copied state shares the actor states with the
+     * given state, which makes them unmodifiable in place in both of the states from now on.
+     */
+    public State(State state) {
+        super();
+        actorStates = state.actorStates.clone();
+        ownedActorStates = new boolean[actorStates.length];
+        ownedActorIds = new int[actorStates.length];
+        childStates = new LinkedList<Pair<String, State>>();
+        parentStates = new LinkedList<Pair<String, State>>();
+        state.shareActorStates();
+        sharedFingerprints = state.sharedFingerprints;
+        sharedSecondFingerprints = state.sharedSecondFingerprints;
+    }
 
-        stateInfo.put(name, baseActorState);
+    public void putActorState(BaseActorState baseActorState) {
+        int actorId = baseActorState.getDescriptor().getId();
+        if (actorId >= actorStates.length) {
+            actorStates = Arrays.copyOf(actorStates, actorId + 1);
+            ownedActorStates = Arrays.copyOf(ownedActorStates, actorId + 1);
+            ownedActorIds = Arrays.copyOf(ownedActorIds, actorId + 1);
+        }
+        if (!ownedActorStates[actorId])
+            own(actorId);
+        actorStates[actorId] = baseActorState;
+    }
+
+    /*
+     * Shares the actor states which this state owns, so that copying it does not change it
+     * any more. A state is shared this way before it is added to a state space, where the
+     * workers of a parallel search may find and copy it at the same time.
+     */
+    public void shareActorStates() {
+        for (int i = 0; i < ownedActorsCount; i++)
+            share(ownedActorIds[i]);
+        ownedActorsCount = 0;
+    }
+
+    private void share(int actorId) {
+        long fingerprint = actorStates[actorId].fingerprint();
+        sharedFingerprints += fingerprint;
+        sharedSecondFingerprints += secondFingerprintOf(fingerprint);
+        ownedActorStates[actorId] = false;
+    }
+
+    private void own(int actorId) {
+        if (actorStates[actorId] != null) {
+            long fingerprint = actorStates[actorId].fingerprint();
+            sharedFingerprints -= fingerprint;
+            sharedSecondFingerprints -= secondFingerprintOf(fingerprint);
+        }
+        ownedActorStates[actorId] = true;
+        ownedActorIds[ownedActorsCount++] = actorId;
+    }
+
+    public BaseActorState getActorState(int actorId) {
+        return actorStates[actorId];
+    }
+
+    public BaseActorState getActorState(ActorDescriptor actorReference) {
+        return actorStates[actorReference.getId()];
     }
 
     public BaseActorState getActorState(String name) {
-        return stateInfo.get(name);
+        if (actorStates.length == 0)
+            return null;
+        int actorId = actorStates[0].getDescriptor().getProgram().getActorId(name);
+        return actorId < 0 ? null : actorStates[actorId];
     }
 
-    public List<BaseActorState> getAllActorStates() {
-        LinkedList<BaseActorState> allActorsState = new LinkedList<BaseActorState>();
-        Iterator<String> iterator = stateInfo.keySet().iterator();
-        while (iterator.hasNext()) {
-            allActorsState.add(stateInfo.get(iterator.next()));
+    /*
+     * Returns the state of the actor to be modified in this state, copying it first if it
+     * is shared with another state.
+     */
+    public BaseActorState getActorStateForUpdate(int actorId) {
+        if (!ownedActorStates[actorId]) {
+            own(actorId);
+            actorStates[actorId] = actorStates[actorId].copy();
         }
-        return allActorsState;
+        return actorStates[actorId];
+    }
+
+    public BaseActorState getActorStateForUpdate(ActorDescriptor actorReference) {
+        return getActorStateForUpdate(actorReference.getId());
+    }
+
+    public int getActorsCount() {
+        return actorStates.length;
+    }
+
+    public State copy() {
+        return new State(this);
+    }
+
+    /*
+     * Copies the state in the middle of a transition. Actor states which this state owns
+     * are copied for the fork, so this state can go on modifying them in place.
+     */
+    public State fork() {
+        boolean[] owned = ownedActorStates.clone();
+        int[] ownedIds = ownedActorIds.clone();
+        int ownedCount = ownedActorsCount;
+        long ownSharedFingerprints = sharedFingerprints;
+        long ownSharedSecondFingerprints = sharedSecondFingerprints;
+        State fork = copy();
+        ownedActorStates = owned;
+        ownedActorIds = ownedIds;
+        ownedActorsCount = ownedCount;
+        sharedFingerprints = fork.sharedFingerprints = ownSharedFingerprints;
+        sharedSecondFingerprints = fork.sharedSecondFingerprints = ownSharedSecondFingerprints;
+        for (int i = 0; i < ownedActorsCount; i++) {
+            int actorId = ownedActorIds[i];
+            fork.actorStates[actorId] = actorStates[actorId].copy();
+            fork.ownedActorStates[actorId] = true;
+            fork.ownedActorIds[fork.ownedActorsCount++] = actorId;
+        }
+        return fork;
+    }
+
+    /*
+     * Makes this state the owner of all its actor states and records their changes in the
+     * given undo log, so that transitions can be executed on this state in place and
+     * rolled back. The state keeps owning its actor states as long as it is only forked.
+     */
+    public void setUndoLog(UndoLog undoLog) {
+        for (int actorId = 0; actorId < actorStates.length; actorId++)
+            getActorStateForUpdate(actorId).setUndoLog(undoLog);
+    }
+
+    public void setTransitionChoices(TransitionChoices transitionChoices) {
+        this.transitionChoices = transitionChoices;
+    }
+
+    /*
+     * Returns the alternative to take at a choice point; states which are not expanded by
+     * the model checker, like the initial state, take the first one.
+     */
+    public int chooseAlternative(int alternativesCount) {
+        return transitionChoices == null ? 0 : transitionChoices.choose(this, alternativesCount);
+    }
+
+    public List<BaseActorState> getAllActorStates() {
+        return new ArrayList<BaseActorState>(Arrays.asList(actorStates));
     }
 
     public List<BaseActorState> getEnabledActors()  {
         LinkedList<BaseActorState> enabledActors = new LinkedList<BaseActorState>();
-        for (BaseActorState baseActorState : getAllActorStates()) {
+        for (BaseActorState baseActorState : actorStates) {
             if (!baseActorState.actorQueueIsEmpty())
                 enabledActors.add(baseActorState);
-            else if (baseActorState.variableIsDefined(InstructionUtilities.PC_STRING))
+            else if (baseActorState.isBusy())
                 enabledActors.add(baseActorState);
         }
         return enabledActors;
     }
 
+    /*
+     * Only the owned actor states are fingerprinted; the shared ones are summed up already.
+     */
+    public long fingerprint() {
+        long result = sharedFingerprints;
+        for (int i = 0; i < ownedActorsCount; i++)
+            result += actorStates[ownedActorIds[i]].fingerprint();
+        return FingerprintUtilities.mix(result);
+    }
+
+    /*
+     * Second fingerprint which combines the fingerprints of the actor states in another
+     * way, so it is not a function of the first one.
+     */
+    public long secondFingerprint() {
+        long result = sharedSecondFingerprints;
+        for (int i = 0; i < ownedActorsCount; i++)
+            result += secondFingerprintOf(actorStates[ownedActorIds[i]].fingerprint());
+        return FingerprintUtilities.mix(result);
+    }
+
+    private static long secondFingerprintOf(long actorStateFingerprint) {
+        return FingerprintUtilities.mix(actorStateFingerprint ^ FingerprintUtilities.SECOND_SEED);
+    }
+
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + ((stateInfo == null) ? 0 : stateInfo.hashCode());
-        return result;
+        return Long.hashCode(fingerprint());
     }
 
     @Override
@@ -70,9 +241,7 @@ public class State implements Serializable {
         if (getClass() != obj.getClass())
             return false;
         State other = (State) obj;
-        if (stateInfo == null) {
-			return other.stateInfo == null;
-        } else return stateInfo.equals(other.stateInfo);
+        return Arrays.equals(actorStates, other.actorStates);
 	}
 
     public int getId() {
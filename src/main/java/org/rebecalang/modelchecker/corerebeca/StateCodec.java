@@ -0,0 +1,634 @@
+package org.rebecalang.modelchecker.corerebeca;
+
+import org.rebecalang.modelchecker.corerebeca.rilinterpreter.ProgramCounter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/*
+ * Encodes states into compact byte vectors and back. Actors are laid out in the order
+ * of their ids, actor references are stored as ids, strings are replaced by interned symbol ids and
+ * every activation record refers to the frame layout of its scope, so a vector
+ * only holds the values. Equal states have equal vectors.
+ *
+ * With collapse compression the part of each actor is interned once in a table of its
+ * reactive class and a state vector only holds the indices of its actors' parts.
+ * Components and symbols are only interned for states which are inserted into a state
+ * space; lookups leave the tables as they are. Several threads can encode states at once:
+ * symbols and components are found without locking and interned under the lock of their
+ * table.
+ */
+public class StateCodec {
+
+	protected static final int NULL_VALUE = 0;
+	protected static final int FALSE_VALUE = 1;
+	protected static final int TRUE_VALUE = 2;
+	protected static final int INTEGER_VALUE = 3;
+	protected static final int ACTOR_VALUE = 4;
+	protected static final int PC_VALUE = 5;
+	protected static final int DOUBLE_VALUE = 6;
+	protected static final int STRING_VALUE = 7;
+	protected static final int LONG_VALUE = 8;
+	protected static final int SHORT_VALUE = 9;
+	protected static final int BYTE_VALUE = 10;
+	protected static final int FLOAT_VALUE = 11;
+	protected static final int CHARACTER_VALUE = 12;
+	protected static final int LIST_VALUE = 13;
+
+	private final Supplier<? extends State> stateFactory;
+	private final Supplier<? extends BaseActorState> actorStateFactory;
+
+	private BaseActorState[] actorTemplates;
+
+	private final Map<String, Integer> symbolIds = new ConcurrentHashMap<>();
+	private final List<String> symbols = new ArrayList<>();
+
+	private boolean collapseCompression;
+	private boolean portable;
+	private ComponentTable[] actorComponentTables;
+	private final Map<String, ComponentTable> componentTables = new HashMap<>();
+
+	/*
+	 * Length of the last encoded vector, the initial capacity of the next one; a stale
+	 * value written by another thread only costs a copy.
+	 */
+	private int lastVectorLength = 64;
+
+	public StateCodec(Supplier<? extends State> stateFactory, Supplier<? extends BaseActorState> actorStateFactory) {
+		this.stateFactory = stateFactory;
+		this.actorStateFactory = actorStateFactory;
+	}
+
+	public void registerActors(State initialState) {
+		actorTemplates = initialState.getAllActorStates().toArray(new BaseActorState[0]);
+		componentTables.clear();
+		actorComponentTables = new ComponentTable[actorTemplates.length];
+		for (int i = 0; i < actorTemplates.length; i++) {
+			actorComponentTables[i] = componentTables.computeIfAbsent(actorTemplates[i].getTypeName(),
+					typeName -> new ComponentTable());
+		}
+	}
+
+	public void setCollapseCompression(boolean collapseCompression) {
+		this.collapseCompression = collapseCompression;
+	}
+
+	public boolean isCollapseCompression() {
+		return collapseCompression;
+	}
+
+	/*
+	 * Portable vectors hold strings instead of the ids of their symbols, so they can be
+	 * decoded by the codec of another model checker of the same program.
+	 */
+	public void setPortable(boolean portable) {
+		this.portable = portable;
+	}
+
+	public byte[] encode(State state) {
+		return encode(state, null);
+	}
+
+	/*
+	 * Encodes the state without interning anything. Returns null if the state has a
+	 * component or a symbol which is not interned yet; such a state is in no state space.
+	 */
+	public byte[] encodeIfKnown(State state) {
+		Lookup lookup = new Lookup();
+		byte[] vector = encode(state, lookup);
+		return lookup.unknownComponent ? null : vector;
+	}
+
+	private byte[] encode(State state, Lookup lookup) {
+		if (collapseCompression)
+			return encodeCollapsed(state, lookup);
+		StateVectorOutput output = new StateVectorOutput(lastVectorLength, lookup);
+		for (int i = 0; i < actorTemplates.length; i++)
+			encodeActorState(state.getActorState(i), output);
+		byte[] vector = output.toByteArray();
+		lastVectorLength = vector.length;
+		return vector;
+	}
+
+	private byte[] encodeCollapsed(State state, Lookup lookup) {
+		StateVectorOutput output = new StateVectorOutput(actorTemplates.length * 2);
+		for (int i = 0; i < actorTemplates.length; i++) {
+			ComponentTable componentTable = actorComponentTables[i];
+			StateVectorOutput componentOutput = new StateVectorOutput(componentTable.lastComponentLength, lookup);
+			encodeActorState(state.getActorState(i), componentOutput);
+			output.writeInt(lookup != null ? find(componentTable, componentOutput.toByteArray(), lookup) :
+					componentTable.intern(componentOutput.toByteArray()));
+		}
+		return output.toByteArray();
+	}
+
+	public State decode(byte[] vector) {
+		State state = stateFactory.get();
+		BaseActorState[] actorStates = new BaseActorState[actorTemplates.length];
+		for (int i = 0; i < actorTemplates.length; i++) {
+			BaseActorState actorState = actorStateFactory.get();
+			actorState.setDescriptor(actorTemplates[i].getDescriptor());
+			actorState.initializeScopeStack();
+			state.putActorState(actorState);
+			actorStates[i] = actorState;
+		}
+		StateVectorInput input = new StateVectorInput(vector);
+		for (int i = 0; i < actorStates.length; i++) {
+			if (collapseCompression)
+				decodeActorState(actorStates[i], new StateVectorInput(
+						actorComponentTables[i].get(input.readInt())));
+			else
+				decodeActorState(actorStates[i], input);
+		}
+		return state;
+	}
+
+	public int getComponentsCount() {
+		int componentsCount = 0;
+		for (ComponentTable componentTable : componentTables.values())
+			componentsCount += componentTable.size();
+		return componentsCount;
+	}
+
+	public long getComponentBytes() {
+		long componentBytes = 0;
+		for (ComponentTable componentTable : componentTables.values())
+			componentBytes += componentTable.getComponentBytes();
+		return componentBytes;
+	}
+
+	protected void encodeActorState(BaseActorState actorState, StateVectorOutput output) {
+		LinkedList<ActivationRecord> activationRecords = actorState.getActorScopeStack().getActivationRecords();
+		output.writeInt(activationRecords.size());
+		for (ActivationRecord activationRecord : activationRecords) {
+			writeSymbol(activationRecord.getRelatedRebecType(), output);
+			output.writeInt(indexOf(activationRecords, activationRecord.getPreviousScope()) + 1);
+			encodeVariables(activationRecord, output);
+		}
+		ProgramCounter pc = actorState.getPC();
+		output.writeInt(pc == null ? 0 : pc.getMethodId() + 1);
+		if (pc != null)
+			output.writeInt(pc.getLineNumber());
+		encodeQueue(actorState, output);
+	}
+
+	protected void decodeActorState(BaseActorState actorState, StateVectorInput input) {
+		ActivationRecord[] decodedRecords = new ActivationRecord[input.readInt()];
+		for (int i = 0; i < decodedRecords.length; i++) {
+			String relatedRebecType = readSymbol(input);
+			int previousScopeIndex = input.readInt();
+			ActivationRecord activationRecord = new ActivationRecord(
+					actorState.getFrameLayouts().getLayout(input.readInt()));
+			activationRecord.setRelatedRebecType(relatedRebecType);
+			activationRecord.setPreviousScope(previousScopeIndex == 0 ? null : decodedRecords[previousScopeIndex - 1]);
+			int slotsCount = input.readInt();
+			for (int slot = 0; slot < slotsCount; slot++)
+				decodeVariable(activationRecord, slot, input);
+			decodedRecords[i] = activationRecord;
+			actorState.getActorScopeStack().pushActivationRecord(activationRecord);
+		}
+		int methodId = input.readInt() - 1;
+		if (methodId >= 0)
+			actorState.setPC(methodId, input.readInt());
+		decodeQueue(actorState, input);
+	}
+
+	protected void encodeQueue(BaseActorState actorState, StateVectorOutput output) {
+		LinkedList<MessageSpecification> queue = ((ActorSate) actorState).getQueue();
+		output.writeInt(queue.size());
+		for (MessageSpecification message : queue)
+			encodeMessage(message, output);
+	}
+
+	protected void decodeQueue(BaseActorState actorState, StateVectorInput input) {
+		int queueSize = input.readInt();
+		for (int i = 0; i < queueSize; i++)
+			actorState.addToQueue(decodeMessage(input));
+	}
+
+	protected void encodeMessage(MessageSpecification message, StateVectorOutput output) {
+		writeSymbol(message.getMessageName(), output);
+		encodeActorReference(message.getSender(), output);
+		List<Object> parameters = message.getParameters();
+		output.writeInt(parameters == null ? 0 : parameters.size() + 1);
+		if (parameters != null)
+			for (Object parameter : parameters)
+				encodeValue(parameter, output);
+	}
+
+	protected MessageSpecification decodeMessage(StateVectorInput input) {
+		String messageName = readSymbol(input);
+		ActorDescriptor sender = decodeActorReference(input);
+		return createMessage(messageName, decodeParameters(input), sender, input);
+	}
+
+	protected MessageSpecification createMessage(String messageName, ArrayList<Object> parameters,
+			ActorDescriptor sender, StateVectorInput input) {
+		return new MessageSpecification(messageName, parameters, sender);
+	}
+
+	private ArrayList<Object> decodeParameters(StateVectorInput input) {
+		int parametersSize = input.readInt();
+		if (parametersSize == 0)
+			return null;
+		ArrayList<Object> parameters = new ArrayList<>(parametersSize - 1);
+		for (int i = 1; i < parametersSize; i++)
+			parameters.add(decodeValue(input));
+		return parameters;
+	}
+
+	protected void encodeActorReference(ActorDescriptor actorReference, StateVectorOutput output) {
+		if (actorReference == null) {
+			output.writeInt(0);
+			return;
+		}
+		int actorId = actorReference.getId();
+		if (actorId >= actorTemplates.length || actorTemplates[actorId].getDescriptor() != actorReference)
+			throw new RebecaRuntimeInterpreterException("Unknown actor " + actorReference.getName() + " in state");
+		output.writeInt(actorId + 1);
+	}
+
+	protected ActorDescriptor decodeActorReference(StateVectorInput input) {
+		int actorId = input.readInt();
+		return actorId == 0 ? null : actorTemplates[actorId - 1].getDescriptor();
+	}
+
+	private void encodeVariables(ActivationRecord activationRecord, StateVectorOutput output) {
+		int slotsCount = activationRecord.getSlotsCount();
+		output.writeInt(activationRecord.getLayout().getId());
+		output.writeInt(slotsCount);
+		for (int slot = 0; slot < slotsCount; slot++)
+			encodeVariable(activationRecord, slot, output);
+	}
+
+	/*
+	 * Primitive variables are written from and read into the records' primitive lanes
+	 * with the tags of their boxed values.
+	 */
+	private void encodeVariable(ActivationRecord activationRecord, int slot, StateVectorOutput output) {
+		long bits = activationRecord.getPrimitive(slot);
+		switch (activationRecord.getKind(slot)) {
+			case ActivationRecord.INT:
+				output.writeByte(INTEGER_VALUE);
+				output.writeSignedInt((int) bits);
+				break;
+			case ActivationRecord.BOOLEAN:
+				output.writeByte(bits != 0 ? TRUE_VALUE : FALSE_VALUE);
+				break;
+			case ActivationRecord.BYTE:
+				output.writeByte(BYTE_VALUE);
+				output.writeSignedInt((byte) bits);
+				break;
+			case ActivationRecord.SHORT:
+				output.writeByte(SHORT_VALUE);
+				output.writeSignedInt((short) bits);
+				break;
+			case ActivationRecord.DOUBLE:
+				output.writeByte(DOUBLE_VALUE);
+				output.writeLong(bits);
+				break;
+			default:
+				encodeValue(activationRecord.getValue(slot), output);
+		}
+	}
+
+	private void decodeVariable(ActivationRecord activationRecord, int slot, StateVectorInput input) {
+		int tag = input.readByte();
+		switch (tag) {
+			case NULL_VALUE:
+				break;
+			case FALSE_VALUE:
+			case TRUE_VALUE:
+				activationRecord.setPrimitive(slot, ActivationRecord.BOOLEAN, tag == TRUE_VALUE ? 1 : 0);
+				break;
+			case INTEGER_VALUE:
+				activationRecord.setPrimitive(slot, ActivationRecord.INT, input.readSignedInt());
+				break;
+			case BYTE_VALUE:
+				activationRecord.setPrimitive(slot, ActivationRecord.BYTE, input.readSignedInt());
+				break;
+			case SHORT_VALUE:
+				activationRecord.setPrimitive(slot, ActivationRecord.SHORT, input.readSignedInt());
+				break;
+			case DOUBLE_VALUE:
+				activationRecord.setPrimitive(slot, ActivationRecord.DOUBLE, input.readLong());
+				break;
+			default:
+				activationRecord.setValue(slot, decodeValue(tag, input));
+		}
+	}
+
+	protected void encodeValue(Object value, StateVectorOutput output) {
+		if (value == null) {
+			output.writeByte(NULL_VALUE);
+		} else if (value instanceof Integer) {
+			output.writeByte(INTEGER_VALUE);
+			output.writeSignedInt((Integer) value);
+		} else if (value instanceof Boolean) {
+			output.writeByte((Boolean) value ? TRUE_VALUE : FALSE_VALUE);
+		} else if (value instanceof ActorDescriptor) {
+			output.writeByte(ACTOR_VALUE);
+			encodeActorReference((ActorDescriptor) value, output);
+		} else if (value instanceof ProgramCounter) {
+			output.writeByte(PC_VALUE);
+			output.writeInt(((ProgramCounter) value).getMethodId());
+			output.writeInt(((ProgramCounter) value).getLineNumber());
+		} else if (value instanceof Double) {
+			output.writeByte(DOUBLE_VALUE);
+			output.writeLong(Double.doubleToLongBits((Double) value));
+		} else if (value instanceof String) {
+			output.writeByte(STRING_VALUE);
+			writeSymbol((String) value, output);
+		} else if (value instanceof Long) {
+			output.writeByte(LONG_VALUE);
+			output.writeLong((Long) value);
+		} else if (value instanceof Short) {
+			output.writeByte(SHORT_VALUE);
+			output.writeSignedInt((Short) value);
+		} else if (value instanceof Byte) {
+			output.writeByte(BYTE_VALUE);
+			output.writeSignedInt((Byte) value);
+		} else if (value instanceof Float) {
+			output.writeByte(FLOAT_VALUE);
+			output.writeInt(Float.floatToIntBits((Float) value));
+		} else if (value instanceof Character) {
+			output.writeByte(CHARACTER_VALUE);
+			output.writeInt((Character) value);
+		} else if (value instanceof List) {
+			output.writeByte(LIST_VALUE);
+			output.writeInt(((List<?>) value).size());
+			for (Object element : (List<?>) value)
+				encodeValue(element, output);
+		} else {
+			throw new RebecaRuntimeInterpreterException("Values of type " + value.getClass().getName() +
+					" can not be stored in a state vector");
+		}
+	}
+
+	protected Object decodeValue(StateVectorInput input) {
+		return decodeValue(input.readByte(), input);
+	}
+
+	protected Object decodeValue(int tag, StateVectorInput input) {
+		switch (tag) {
+			case NULL_VALUE:
+				return null;
+			case FALSE_VALUE:
+				return false;
+			case TRUE_VALUE:
+				return true;
+			case INTEGER_VALUE:
+				return input.readSignedInt();
+			case ACTOR_VALUE:
+				return decodeActorReference(input);
+			case PC_VALUE:
+				int methodId = input.readInt();
+				return new ProgramCounter(methodId, input.readInt());
+			case DOUBLE_VALUE:
+				return Double.longBitsToDouble(input.readLong());
+			case STRING_VALUE:
+				return readSymbol(input);
+			case LONG_VALUE:
+				return input.readLong();
+			case SHORT_VALUE:
+				return (short) input.readSignedInt();
+			case BYTE_VALUE:
+				return (byte) input.readSignedInt();
+			case FLOAT_VALUE:
+				return Float.intBitsToFloat(input.readInt());
+			case CHARACTER_VALUE:
+				return (char) input.readInt();
+			case LIST_VALUE:
+				int size = input.readInt();
+				LinkedList<Object> list = new LinkedList<>();
+				for (int i = 0; i < size; i++)
+					list.add(decodeValue(input));
+				return list;
+			default:
+				throw new RebecaRuntimeInterpreterException("Corrupted state vector, unknown value tag " + tag);
+		}
+	}
+
+	protected void writeSymbol(String symbol, StateVectorOutput output) {
+		if (!portable) {
+			output.writeInt(symbolOf(symbol, output.lookup));
+			return;
+		}
+		byte[] bytes = symbol.getBytes(StandardCharsets.UTF_8);
+		output.writeInt(bytes.length);
+		output.writeBytes(bytes);
+	}
+
+	protected String readSymbol(StateVectorInput input) {
+		if (!portable) {
+			int id = input.readInt();
+			synchronized (symbols) {
+				return symbols.get(id);
+			}
+		}
+		return new String(input.readBytes(input.readInt()), StandardCharsets.UTF_8);
+	}
+
+	private int find(ComponentTable componentTable, byte[] component, Lookup lookup) {
+		Integer id = componentTable.ids.get(new Component(component));
+		if (id != null)
+			return id;
+		lookup.unknownComponent = true;
+		return 0;
+	}
+
+	private int symbolOf(String symbol, Lookup lookup) {
+		Integer id = symbolIds.get(symbol);
+		if (id != null)
+			return id;
+		if (lookup != null) {
+			lookup.unknownComponent = true;
+			return 0;
+		}
+		synchronized (symbols) {
+			return symbolIds.computeIfAbsent(symbol, newSymbol -> {
+				symbols.add(newSymbol);
+				return symbols.size() - 1;
+			});
+		}
+	}
+
+	private static int indexOf(List<ActivationRecord> activationRecords, ActivationRecord activationRecord) {
+		if (activationRecord == null)
+			return -1;
+		int index = 0;
+		for (ActivationRecord cursor : activationRecords) {
+			if (cursor == activationRecord)
+				return index;
+			index++;
+		}
+		throw new RebecaRuntimeInterpreterException("Previous scope of an activation record is not in its scope stack");
+	}
+
+	private static class ComponentTable {
+		private final Map<Component, Integer> ids = new ConcurrentHashMap<>();
+		private final List<byte[]> components = new ArrayList<>();
+		private long componentBytes;
+		private int lastComponentLength = 32;
+
+		int intern(byte[] component) {
+			lastComponentLength = component.length;
+			Component key = new Component(component);
+			Integer id = ids.get(key);
+			if (id != null)
+				return id;
+			synchronized (this) {
+				id = ids.get(key);
+				if (id == null) {
+					id = components.size();
+					components.add(component);
+					ids.put(key, id);
+					componentBytes += component.length;
+				}
+				return id;
+			}
+		}
+
+		synchronized byte[] get(int id) {
+			return components.get(id);
+		}
+
+		synchronized int size() {
+			return components.size();
+		}
+
+		synchronized long getComponentBytes() {
+			return componentBytes;
+		}
+	}
+
+	/*
+	 * Whether a state which is only looked up has a part which is not interned yet.
+	 */
+	private static class Lookup {
+		private boolean unknownComponent;
+	}
+
+	private static class Component {
+		private final byte[] vector;
+		private final int hash;
+
+		Component(byte[] vector) {
+			this.vector = vector;
+			this.hash = Long.hashCode(FingerprintUtilities.fingerprint(vector));
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Component && Arrays.equals(vector, ((Component) obj).vector);
+		}
+	}
+
+	public static class StateVectorOutput {
+		private byte[] buffer;
+		private int position;
+		private final Lookup lookup;
+
+		public StateVectorOutput(int initialCapacity) {
+			this(initialCapacity, null);
+		}
+
+		private StateVectorOutput(int initialCapacity, Lookup lookup) {
+			buffer = new byte[Math.max(initialCapacity, 16)];
+			this.lookup = lookup;
+		}
+
+		/*
+		 * Returns an output for a part of the state which is written to this output later,
+		 * looking its symbols up if this output does.
+		 */
+		public StateVectorOutput createPartOutput(int initialCapacity) {
+			return new StateVectorOutput(initialCapacity, lookup);
+		}
+
+		public void writeByte(int value) {
+			if (position == buffer.length)
+				buffer = Arrays.copyOf(buffer, buffer.length << 1);
+			buffer[position++] = (byte) value;
+		}
+
+		public void writeInt(int value) {
+			while ((value & ~0x7F) != 0) {
+				writeByte((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			writeByte(value);
+		}
+
+		public void writeSignedInt(int value) {
+			writeInt((value << 1) ^ (value >> 31));
+		}
+
+		public void writeLong(long value) {
+			for (int i = 0; i < Long.BYTES; i++, value >>>= 8)
+				writeByte((int) value);
+		}
+
+		public void writeBytes(byte[] bytes) {
+			for (byte value : bytes)
+				writeByte(value);
+		}
+
+		public byte[] toByteArray() {
+			return Arrays.copyOf(buffer, position);
+		}
+	}
+
+	public static class StateVectorInput {
+		private final byte[] buffer;
+		private int position;
+
+		public StateVectorInput(byte[] buffer) {
+			this.buffer = buffer;
+		}
+
+		public int readByte() {
+			return buffer[position++] & 0xFF;
+		}
+
+		public int readInt() {
+			int result = 0;
+			for (int shift = 0; ; shift += 7) {
+				int value = readByte();
+				result |= (value & 0x7F) << shift;
+				if ((value & 0x80) == 0)
+					return result;
+			}
+		}
+
+		public int readSignedInt() {
+			int value = readInt();
+			return (value >>> 1) ^ -(value & 1);
+		}
+
+		public long readLong() {
+			long result = 0;
+			for (int i = 0; i < Long.BYTES; i++)
+				result |= (long) readByte() << (i * 8);
+			return result;
+		}
+
+		public byte[] readBytes(int length) {
+			byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+			position += length;
+			return bytes;
+		}
+	}
+}
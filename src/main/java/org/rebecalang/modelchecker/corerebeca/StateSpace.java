@@ -1,42 +1,74 @@
 package org.rebecalang.modelchecker.corerebeca;
 
-import java.util.Hashtable;
+/*
+ * Set of visited states. States are identified by their encoding; whether the encoding,
+ * a fingerprint of it or only a few bits per state are kept is up to the subclasses.
+ */
+public abstract class StateSpace {
 
-public class StateSpace {
-	Hashtable<Long, State> statespace;
-	State initialState;
-	
-	public StateSpace() {
-		statespace = new Hashtable<Long, State>();
+	protected StateCodec stateCodec;
+	protected State initialState;
+	protected long size;
+
+	protected StateSpace(StateCodec stateCodec) {
+		this.stateCodec = stateCodec;
 	}
 
 	public void addState(State state) {
-		addState(Long.valueOf(state.hashCode()), state);
+		putIfAbsent(state);
 	}
-	
+
 	public void addInitialState(State initialState) {
 		this.initialState = initialState;
+		stateCodec.registerActors(initialState);
 		addState(initialState);
 	}
 
-	public void addState(Long stateKey, State state) {
-		statespace.put(stateKey, state);
-		
+	/*
+	 * Returns null if the given state has not been visited before and adds it to the
+	 * state space. Otherwise returns the stored equal state, or the given state itself
+	 * when states are not retained.
+	 */
+	public abstract State putIfAbsent(State state);
+
+	public abstract boolean hasState(State state);
+
+	public abstract long getStoredBytes();
+
+	public boolean retainsStates() {
+		return false;
 	}
 
-	public State getState(Long stateKey) {
-		return statespace.get(stateKey);
+	/*
+	 * Probability that at least one reachable state was taken for an already visited one.
+	 */
+	public double getOmissionProbability() {
+		return 0;
 	}
 
-	public boolean hasStateWithKey(Long stateKey) {
-		return statespace.containsKey(stateKey);
+	public double getExpectedCoverage() {
+		return 1;
+	}
+
+	/*
+	 * Releases resources held outside of the heap.
+	 */
+	public void close() {
 	}
 
 	public State getInitialState() {
 		return initialState;
 	}
 
+	public StateCodec getStateCodec() {
+		return stateCodec;
+	}
+
 	public int size() {
-		return statespace.size();
+		return (int) Math.min(size, Integer.MAX_VALUE);
+	}
+
+	public long getStatesCount() {
+		return size;
 	}
 }
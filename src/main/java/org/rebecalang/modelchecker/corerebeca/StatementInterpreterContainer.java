@@ -3,15 +3,16 @@ package org.rebecalang.modelchecker.corerebeca;
 import org.rebecalang.modelchecker.corerebeca.rilinterpreter.InstructionInterpreter;
 import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.InstructionBean;
 
-import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class StatementInterpreterContainer {
 
-    Hashtable<Class<? extends InstructionBean>, InstructionInterpreter> interpreters;
-    private static StatementInterpreterContainer instance = new StatementInterpreterContainer();
+    final Map<Class<? extends InstructionBean>, InstructionInterpreter> interpreters;
+    private static final StatementInterpreterContainer instance = new StatementInterpreterContainer();
 
     private StatementInterpreterContainer() {
-        interpreters = new Hashtable<Class<? extends InstructionBean>, InstructionInterpreter>();
+        interpreters = new ConcurrentHashMap<Class<? extends InstructionBean>, InstructionInterpreter>();
     }
 
     public static StatementInterpreterContainer getInstance() {
@@ -26,19 +27,4 @@ public class StatementInterpreterContainer {
     public InstructionInterpreter retrieveInterpreter(InstructionBean ib) {
         return (interpreters.get(ib.getClass()));
     }
-
-    private boolean hasNonterminism;
-
-    public void reportNondeterminism() {
-        hasNonterminism = true;
-    }
-
-    public void clearNondeterminism() {
-        hasNonterminism = false;
-    }
-
-    public boolean hasNondeterminism() {
-        return hasNonterminism;
-    }
-
 }
@@ -0,0 +1,147 @@
+package org.rebecalang.modelchecker.corerebeca;
+
+import org.rebecalang.compiler.utils.Pair;
+import org.rebecalang.modelchecker.corerebeca.policy.AbstractPolicy;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Swarm search, to hunt for bugs in state spaces which are too large to be searched
+ * exhaustively: many independent depth first searches run by a pool of workers. Each
+ * search shuffles the successors of every state by a random seed of its own, so it takes
+ * the interleavings of the actors and the alternatives of the nondeterministic choices in
+ * another order than the others, and keeps its visited states in a small bitstate table
+ * of its own; the states new to a search are also added to the table of the swarm, which
+ * counts the distinct states visited by all of them. The first deadlock or failed assertion found by a search stops the swarm
+ * and is thrown with the transitions which lead to it.
+ */
+class SwarmSearch {
+
+    private final CoreRebecaModelChecker modelChecker;
+    private final RILProgram program;
+    private final AbstractPolicy policy;
+    private final SwarmStateSpace stateSpace;
+    private final int workers;
+    private final int searches;
+    private final long seed;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    SwarmSearch(CoreRebecaModelChecker modelChecker, RILProgram program, AbstractPolicy policy,
+                SwarmStateSpace stateSpace, int workers, int searches, long seed) {
+        this.modelChecker = modelChecker;
+        this.program = program;
+        this.policy = policy;
+        this.stateSpace = stateSpace;
+        this.workers = workers;
+        this.searches = searches;
+        this.seed = seed;
+    }
+
+    /*
+     * Runs the searches of the swarm from the given state, the search number i with the
+     * seed of the swarm plus i.
+     */
+    void search(State initialState) throws ModelCheckingException {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(workers, searches));
+        try {
+            for (int search = 0; search < searches; search++) {
+                long searchSeed = seed + search;
+                pool.execute(() -> runSearch(initialState, searchSeed));
+            }
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ModelCheckingException("Swarm search is interrupted");
+        } finally {
+            pool.shutdownNow();
+        }
+        Throwable exception = failure.get();
+        if (exception instanceof ModelCheckingException)
+            throw (ModelCheckingException) exception;
+        if (exception instanceof RuntimeException)
+            throw (RuntimeException) exception;
+        if (exception instanceof Error)
+            throw (Error) exception;
+    }
+
+    private void runSearch(State initialState, long searchSeed) {
+        if (failure.get() != null)
+            return;
+        try {
+            depthFirstSearch(initialState, searchSeed);
+        } catch (ModelCheckingException | RuntimeException | Error e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    private void depthFirstSearch(State initialState, long searchSeed) throws ModelCheckingException {
+        Random random = new Random(searchSeed);
+        AbstractPolicy searchPolicy = policy.copy();
+        BitstateStateSpace visitedStates = stateSpace.createSearchStateSpace();
+        visitedStates.putIfAbsent(initialState);
+        Deque<Step> path = new ArrayDeque<>();
+        path.push(new Step(null, initialState));
+        try {
+            while (!path.isEmpty() && failure.get() == null) {
+                Step step = path.peek();
+                if (step.successors == null) {
+                    List<Pair<String, State>> successors = new ArrayList<>();
+                    try {
+                        modelChecker.expandState(step.state, program, searchPolicy, visitedStates,
+                                (transitionLabel, newState) -> {
+                                    stateSpace.putIfAbsent(newState);
+                                    successors.add(new Pair<>(transitionLabel, newState));
+                                });
+                    } catch (ModelCheckingException e) {
+                        throw counterexample(e.getMessage(), path, searchSeed);
+                    } catch (AssertionError e) {
+                        throw counterexample("Assertion failed" + (e.getMessage() == null ? "" : ": " + e.getMessage()),
+                                path, searchSeed);
+                    }
+                    Collections.shuffle(successors, random);
+                    step.state = null;
+                    step.successors = successors.iterator();
+                }
+                if (step.successors.hasNext()) {
+                    Pair<String, State> successor = step.successors.next();
+                    path.push(new Step(successor.getFirst(), successor.getSecond()));
+                } else {
+                    path.pop();
+                }
+            }
+        } finally {
+            stateSpace.addSearchStateSpace(visitedStates);
+        }
+    }
+
+    private static CounterexampleException counterexample(String message, Deque<Step> path, long searchSeed) {
+        List<String> trace = new ArrayList<>();
+        Iterator<Step> steps = path.descendingIterator();
+        while (steps.hasNext()) {
+            Step step = steps.next();
+            if (step.transitionLabel != null)
+                trace.add(step.transitionLabel);
+        }
+        return new CounterexampleException(message + " in the search with seed " + searchSeed, trace);
+    }
+
+    /*
+     * State on the path of a search, with the label of the transition to it and its
+     * successors which are not searched yet.
+     */
+    private static class Step {
+        private final String transitionLabel;
+        private State state;
+        private Iterator<Pair<String, State>> successors;
+
+        Step(String transitionLabel, State state) {
+            this.transitionLabel = transitionLabel;
+            this.state = state;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.rebecalang.modelchecker.corerebeca;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * States visited by a swarm search. Each search of the swarm keeps its visited states in
+ * a small bitstate table of its own, which is created by this state space, and adds the
+ * states which are new to it to a bitstate table of the same size shared by the swarm.
+ * The size of this state space is the number of the distinct states in the shared table;
+ * the visits of the searches, which count a state visited by several searches once for
+ * each of them, are added up separately.
+ */
+public class SwarmStateSpace extends StateSpace {
+
+	private final int log2Bits;
+	private final int hashFunctions;
+	private final BitstateStateSpace distinctStates;
+	private final AtomicLong visitsCount = new AtomicLong();
+	private final AtomicLong storedBytes = new AtomicLong();
+
+	public SwarmStateSpace(StateCodec stateCodec, int log2Bits, int hashFunctions) {
+		super(stateCodec);
+		this.log2Bits = log2Bits;
+		this.hashFunctions = hashFunctions;
+		this.distinctStates = new BitstateStateSpace(stateCodec, log2Bits, hashFunctions);
+	}
+
+	public BitstateStateSpace createSearchStateSpace() {
+		return new BitstateStateSpace(stateCodec, log2Bits, hashFunctions);
+	}
+
+	public void addSearchStateSpace(StateSpace searchStateSpace) {
+		visitsCount.addAndGet(searchStateSpace.getStatesCount());
+		storedBytes.addAndGet(searchStateSpace.getStoredBytes());
+	}
+
+	@Override
+	public synchronized State putIfAbsent(State state) {
+		return distinctStates.putIfAbsent(state);
+	}
+
+	@Override
+	public synchronized boolean hasState(State state) {
+		return distinctStates.hasState(state);
+	}
+
+	@Override
+	public long getStoredBytes() {
+		return storedBytes.get() + distinctStates.getStoredBytes();
+	}
+
+	@Override
+	public synchronized double getOmissionProbability() {
+		return distinctStates.getOmissionProbability();
+	}
+
+	@Override
+	public synchronized double getExpectedCoverage() {
+		return distinctStates.getExpectedCoverage();
+	}
+
+	@Override
+	public int size() {
+		return (int) Math.min(getStatesCount(), Integer.MAX_VALUE);
+	}
+
+	@Override
+	public synchronized long getStatesCount() {
+		return distinctStates.getStatesCount();
+	}
+
+	/*
+	 * Number of the states visited by the searches, added up over the searches.
+	 */
+	public long getVisitsCount() {
+		return visitsCount.get();
+	}
+}
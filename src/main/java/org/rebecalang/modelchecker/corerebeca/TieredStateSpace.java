@@ -0,0 +1,279 @@
+package org.rebecalang.modelchecker.corerebeca;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Visited states kept outside of the heap. Encoded states are appended to an arena of
+ * memory-mapped segment files, and an open-addressing index of (fingerprint, offset)
+ * pairs lives in a memory-mapped file as well. Only a small direct-mapped cache of
+ * recently seen vectors stays in the heap, so the state space can grow far beyond the
+ * heap size without putting any pressure on the garbage collector. Mappings are released
+ * as soon as they are superseded, before their files are deleted.
+ */
+public class TieredStateSpace extends StateSpace {
+	private static final int ARENA_SEGMENT_SIZE = 1 << 26;
+	private static final int INDEX_SEGMENT_ENTRIES_LOG2 = 26;
+	private static final int INDEX_SEGMENT_ENTRIES = 1 << INDEX_SEGMENT_ENTRIES_LOG2;
+	private static final int ENTRY_SIZE = 2 * Long.BYTES;
+	private static final long MAXIMUM_CAPACITY = 1L << 40;
+	private static final float LOAD_FACTOR = 0.5f;
+	private static final int HOT_STATES = 1 << 14;
+	private static final long EMPTY = 0;
+	private static final Object UNSAFE;
+	private static final Method INVOKE_CLEANER;
+
+	static {
+		Object unsafe = null;
+		Method invokeCleaner = null;
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			unsafe = theUnsafe.get(null);
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			/* Without the cleaner, mappings are released when they are garbage collected */
+		}
+		UNSAFE = unsafe;
+		INVOKE_CLEANER = invokeCleaner;
+	}
+
+	File directory;
+	List<RandomAccessFile> arenaFiles = new ArrayList<>();
+	List<MappedByteBuffer> arenaSegments = new ArrayList<>();
+	int arenaPosition;
+	long arenaBytes;
+
+	RandomAccessFile indexFile;
+	File indexFileName;
+	MappedByteBuffer[] indexSegments;
+	long capacity;
+	int indexGeneration;
+
+	long[] hotFingerprints = new long[HOT_STATES];
+	byte[][] hotVectors = new byte[HOT_STATES][];
+
+	public TieredStateSpace(StateCodec stateCodec, int expectedStates, File parentDirectory) {
+		super(stateCodec);
+		try {
+			directory = parentDirectory == null ? Files.createTempDirectory("rebeca-statespace").toFile() :
+					Files.createTempDirectory(parentDirectory.toPath(), "rebeca-statespace").toFile();
+			directory.deleteOnExit();
+			long requiredCapacity = (long) Math.ceil(Math.max(expectedStates, 1) / LOAD_FACTOR);
+			long initialCapacity = 16;
+			while (initialCapacity < requiredCapacity)
+				initialCapacity <<= 1;
+			mapIndex(initialCapacity);
+			mapArenaSegment();
+		} catch (IOException e) {
+			throw new RebecaRuntimeInterpreterException("Failure in creating state space files: " + e.getMessage());
+		}
+	}
+
+	/*
+	 * The state is encoded once, interning its components; a component which is not
+	 * interned yet makes the state a new one, which is inserted.
+	 */
+	@Override
+	public State putIfAbsent(State state) {
+		byte[] vector = stateCodec.encode(state);
+		long fingerprint = fingerprintOf(state);
+		int hotSlot = (int) fingerprint & (HOT_STATES - 1);
+		if (hotFingerprints[hotSlot] == fingerprint && Arrays.equals(hotVectors[hotSlot], vector))
+			return state;
+		hotFingerprints[hotSlot] = fingerprint;
+		hotVectors[hotSlot] = vector;
+		long slot = findSlot(vector, fingerprint);
+		if (readEntry(slot, 0) != EMPTY)
+			return state;
+		writeEntry(slot, fingerprint, append(vector) + 1);
+		if (++size > capacity * LOAD_FACTOR)
+			resize();
+		return null;
+	}
+
+	@Override
+	public boolean hasState(State state) {
+		byte[] vector = stateCodec.encodeIfKnown(state);
+		return vector != null && readEntry(findSlot(vector, fingerprintOf(state)), 0) != EMPTY;
+	}
+
+	private static long fingerprintOf(State state) {
+		long fingerprint = state.fingerprint();
+		return fingerprint == EMPTY ? 1 : fingerprint;
+	}
+
+	private long findSlot(byte[] vector, long fingerprint) {
+		long mask = capacity - 1;
+		long slot = fingerprint & mask;
+		long storedFingerprint;
+		while ((storedFingerprint = readEntry(slot, 0)) != EMPTY) {
+			if (storedFingerprint == fingerprint && arenaEquals(readEntry(slot, Long.BYTES) - 1, vector))
+				return slot;
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private long readEntry(long slot, int field) {
+		return indexSegments[(int) (slot >>> INDEX_SEGMENT_ENTRIES_LOG2)]
+				.getLong((int) (slot & (INDEX_SEGMENT_ENTRIES - 1)) * ENTRY_SIZE + field);
+	}
+
+	private void writeEntry(long slot, long fingerprint, long offset) {
+		MappedByteBuffer segment = indexSegments[(int) (slot >>> INDEX_SEGMENT_ENTRIES_LOG2)];
+		int position = (int) (slot & (INDEX_SEGMENT_ENTRIES - 1)) * ENTRY_SIZE;
+		segment.putLong(position, fingerprint);
+		segment.putLong(position + Long.BYTES, offset);
+	}
+
+	private long append(byte[] vector) {
+		if (vector.length + Integer.BYTES > ARENA_SEGMENT_SIZE)
+			throw new RebecaRuntimeInterpreterException("State vector of " + vector.length +
+					" bytes does not fit in a state space segment");
+		if (arenaPosition + Integer.BYTES + vector.length > ARENA_SEGMENT_SIZE) {
+			try {
+				mapArenaSegment();
+			} catch (IOException e) {
+				throw new RebecaRuntimeInterpreterException("Failure in extending state space files: " + e.getMessage());
+			}
+		}
+		MappedByteBuffer segment = arenaSegments.get(arenaSegments.size() - 1);
+		long offset = ((long) (arenaSegments.size() - 1) << 32) | arenaPosition;
+		segment.putInt(arenaPosition, vector.length);
+		arenaPosition += Integer.BYTES;
+		for (byte value : vector)
+			segment.put(arenaPosition++, value);
+		arenaBytes += Integer.BYTES + vector.length;
+		return offset;
+	}
+
+	private boolean arenaEquals(long offset, byte[] vector) {
+		MappedByteBuffer segment = arenaSegments.get((int) (offset >>> 32));
+		int position = (int) offset;
+		if (segment.getInt(position) != vector.length)
+			return false;
+		position += Integer.BYTES;
+		for (int i = 0; i < vector.length; i++)
+			if (segment.get(position + i) != vector[i])
+				return false;
+		return true;
+	}
+
+	private void mapArenaSegment() throws IOException {
+		File segmentFile = new File(directory, "arena-" + arenaSegments.size());
+		segmentFile.deleteOnExit();
+		RandomAccessFile file = new RandomAccessFile(segmentFile, "rw");
+		arenaFiles.add(file);
+		arenaSegments.add(file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, ARENA_SEGMENT_SIZE));
+		arenaPosition = 0;
+	}
+
+	private void mapIndex(long newCapacity) throws IOException {
+		indexFileName = new File(directory, "index-" + indexGeneration++);
+		indexFileName.deleteOnExit();
+		indexFile = new RandomAccessFile(indexFileName, "rw");
+		int segmentsCount = (int) ((newCapacity + INDEX_SEGMENT_ENTRIES - 1) >>> INDEX_SEGMENT_ENTRIES_LOG2);
+		indexSegments = new MappedByteBuffer[segmentsCount];
+		long segmentBytes = Math.min(newCapacity, INDEX_SEGMENT_ENTRIES) * ENTRY_SIZE;
+		for (int i = 0; i < segmentsCount; i++)
+			indexSegments[i] = indexFile.getChannel().map(FileChannel.MapMode.READ_WRITE, i * segmentBytes, segmentBytes);
+		capacity = newCapacity;
+	}
+
+	private void resize() {
+		if (capacity == MAXIMUM_CAPACITY)
+			throw new RebecaRuntimeInterpreterException("State space can not grow beyond " + size + " states");
+		MappedByteBuffer[] oldSegments = indexSegments;
+		long oldCapacity = capacity;
+		RandomAccessFile oldIndexFile = indexFile;
+		File oldIndexFileName = indexFileName;
+		try {
+			mapIndex(oldCapacity << 1);
+			long mask = capacity - 1;
+			for (long oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+				MappedByteBuffer oldSegment = oldSegments[(int) (oldSlot >>> INDEX_SEGMENT_ENTRIES_LOG2)];
+				int position = (int) (oldSlot & (INDEX_SEGMENT_ENTRIES - 1)) * ENTRY_SIZE;
+				long fingerprint = oldSegment.getLong(position);
+				if (fingerprint == EMPTY)
+					continue;
+				long slot = fingerprint & mask;
+				while (readEntry(slot, 0) != EMPTY)
+					slot = (slot + 1) & mask;
+				writeEntry(slot, fingerprint, oldSegment.getLong(position + Long.BYTES));
+			}
+			for (MappedByteBuffer oldSegment : oldSegments)
+				unmap(oldSegment);
+			oldIndexFile.close();
+			Files.delete(oldIndexFileName.toPath());
+		} catch (IOException e) {
+			throw new RebecaRuntimeInterpreterException("Failure in extending state space files: " + e.getMessage());
+		}
+	}
+
+	@Override
+	public long getStoredBytes() {
+		return arenaBytes + capacity * ENTRY_SIZE;
+	}
+
+	/*
+	 * Releases the mappings and deletes the files; an IOException is thrown after all of
+	 * them are tried.
+	 */
+	@Override
+	public void close() {
+		if (indexSegments == null)
+			return;
+		for (MappedByteBuffer indexSegment : indexSegments)
+			unmap(indexSegment);
+		for (MappedByteBuffer arenaSegment : arenaSegments)
+			unmap(arenaSegment);
+		indexSegments = null;
+		arenaSegments.clear();
+		IOException failure = null;
+		List<RandomAccessFile> files = new ArrayList<>(arenaFiles);
+		files.add(indexFile);
+		for (RandomAccessFile file : files) {
+			try {
+				file.close();
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+		File[] directoryFiles = directory.listFiles();
+		if (directoryFiles != null)
+			for (File file : directoryFiles)
+				if (!file.delete())
+					failure = new IOException("Failure in deleting state space file " + file);
+		if (!directory.delete())
+			failure = new IOException("Failure in deleting state space directory " + directory);
+		if (failure != null)
+			throw new UncheckedIOException(failure);
+	}
+
+	/*
+	 * Unmaps the buffer right away instead of when it is garbage collected. The buffer
+	 * must not be used afterwards.
+	 */
+	private static void unmap(MappedByteBuffer buffer) {
+		if (INVOKE_CLEANER == null)
+			return;
+		try {
+			INVOKE_CLEANER.invoke(UNSAFE, buffer);
+		} catch (ReflectiveOperationException e) {
+			throw new RebecaRuntimeInterpreterException("Failure in releasing state space files: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package org.rebecalang.modelchecker.corerebeca;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/*
+ * Nondeterministic choices of the executions of a transition. At a choice point which is
+ * reached for the first time the execution takes the first alternative and forks the
+ * state for each of the others; a fork is resumed with the alternative it was forked for
+ * and makes its own choices at the choice points after it. So the instructions before a
+ * choice point are executed once for all of its alternatives.
+ */
+public class TransitionChoices {
+
+    private final Deque<Fork> forks = new ArrayDeque<>();
+    private int resumedAlternative = -1;
+
+    /*
+     * Returns the alternative to take at a choice point of the execution on the given state,
+     * which has not executed the instruction of the choice point yet.
+     */
+    public int choose(State state, int alternativesCount) {
+        if (resumedAlternative >= 0) {
+            int alternative = resumedAlternative;
+            resumedAlternative = -1;
+            return alternative;
+        }
+        for (int alternative = alternativesCount - 1; alternative > 0; alternative--)
+            forks.push(new Fork(state.fork(), alternative));
+        return 0;
+    }
+
+    /*
+     * Returns the state of the next fork, to be executed from the choice point it was
+     * forked at, or null if all alternatives of the transition are executed.
+     */
+    public State resumeNextFork() {
+        Fork fork = forks.poll();
+        if (fork == null)
+            return null;
+        resumedAlternative = fork.alternative;
+        return fork.state;
+    }
+
+    private static class Fork {
+        private final State state;
+        private final int alternative;
+
+        Fork(State state, int alternative) {
+            this.state = state;
+            this.alternative = alternative;
+        }
+    }
+}
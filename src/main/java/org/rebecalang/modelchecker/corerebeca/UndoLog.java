@@ -0,0 +1,149 @@
+package org.rebecalang.modelchecker.corerebeca;
+
+import org.rebecalang.modelchecker.corerebeca.rilinterpreter.ProgramCounter;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Changes made in place to the actor states of a state, each recorded as the operation
+ * and the old values which undo it. The changes are kept in arrays which grow with the
+ * deepest transition and are reused by the next ones, so recording a change allocates
+ * nothing. A mark is the number of the recorded changes; rolling back to a mark undoes
+ * the changes recorded after it, the last one first.
+ */
+public class UndoLog {
+
+    private static final byte SLOT_WRITE = 0;
+    private static final byte SCOPE_PUSH = 1;
+    private static final byte SCOPE_POP = 2;
+    private static final byte PC_CHANGE = 3;
+    private static final byte QUEUE_ADD = 4;
+    private static final byte QUEUE_POLL = 5;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private byte[] operations = new byte[INITIAL_CAPACITY];
+    /*
+     * The changed actor state, and the scope stack, record, program counter or message of
+     * the change with its slot, the kind, bits and reference of the old value of a slot,
+     * and the old hash of the stack or queue with the old tail power of a queue.
+     */
+    private BaseActorState[] actorStates = new BaseActorState[INITIAL_CAPACITY];
+    private Object[] subjects = new Object[INITIAL_CAPACITY];
+    private ActivationRecord[] records = new ActivationRecord[INITIAL_CAPACITY];
+    private int[] slots = new int[INITIAL_CAPACITY];
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+    private long[] bits = new long[INITIAL_CAPACITY];
+    private Object[] references = new Object[INITIAL_CAPACITY];
+    private long[] hashes = new long[INITIAL_CAPACITY];
+    private long[] powers = new long[INITIAL_CAPACITY];
+    private int size;
+
+    void recordSlotWrite(BaseActorState actorState, ActorScopeStack actorScopeStack, ActivationRecord record,
+                         int slot) {
+        int entry = add(SLOT_WRITE, actorState, actorScopeStack, actorScopeStack.recordsHash);
+        byte kind = record.getKind(slot);
+        records[entry] = record;
+        slots[entry] = slot;
+        kinds[entry] = kind;
+        bits[entry] = kind == ActivationRecord.UNDEFINED ? 0 : record.getPrimitive(slot);
+        references[entry] = kind == ActivationRecord.REFERENCE ? record.getValue(slot) : null;
+    }
+
+    void recordScopePush(BaseActorState actorState, ActorScopeStack actorScopeStack) {
+        add(SCOPE_PUSH, actorState, actorScopeStack, actorScopeStack.recordsHash);
+    }
+
+    void recordScopePop(BaseActorState actorState, ActorScopeStack actorScopeStack, ActivationRecord record) {
+        int entry = add(SCOPE_POP, actorState, actorScopeStack, actorScopeStack.recordsHash);
+        records[entry] = record;
+    }
+
+    void recordPCChange(BaseActorState actorState, ProgramCounter oldPC) {
+        add(PC_CHANGE, actorState, oldPC, 0);
+    }
+
+    void recordQueueAdd(ActorSate actorState, long queueHash, long tailPower) {
+        int entry = add(QUEUE_ADD, actorState, null, queueHash);
+        powers[entry] = tailPower;
+    }
+
+    void recordQueuePoll(ActorSate actorState, MessageSpecification message, long queueHash, long tailPower) {
+        int entry = add(QUEUE_POLL, actorState, message, queueHash);
+        powers[entry] = tailPower;
+    }
+
+    private int add(byte operation, BaseActorState actorState, Object subject, long hash) {
+        if (size == operations.length)
+            grow();
+        operations[size] = operation;
+        actorStates[size] = actorState;
+        subjects[size] = subject;
+        hashes[size] = hash;
+        return size++;
+    }
+
+    private void grow() {
+        int capacity = operations.length << 1;
+        operations = Arrays.copyOf(operations, capacity);
+        actorStates = Arrays.copyOf(actorStates, capacity);
+        subjects = Arrays.copyOf(subjects, capacity);
+        records = Arrays.copyOf(records, capacity);
+        slots = Arrays.copyOf(slots, capacity);
+        kinds = Arrays.copyOf(kinds, capacity);
+        bits = Arrays.copyOf(bits, capacity);
+        references = Arrays.copyOf(references, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+        powers = Arrays.copyOf(powers, capacity);
+    }
+
+    public int mark() {
+        return size;
+    }
+
+    public void rollBack(int mark) {
+        while (size > mark) {
+            int entry = --size;
+            switch (operations[entry]) {
+                case SLOT_WRITE:
+                    ((ActorScopeStack) subjects[entry]).undoWrite(records[entry], slots[entry], kinds[entry],
+                            bits[entry], references[entry], hashes[entry]);
+                    break;
+                case SCOPE_PUSH:
+                    ((ActorScopeStack) subjects[entry]).undoPush(hashes[entry]);
+                    break;
+                case SCOPE_POP:
+                    ((ActorScopeStack) subjects[entry]).undoPop(records[entry], hashes[entry]);
+                    break;
+                case PC_CHANGE:
+                    actorStates[entry].undoPCChange((ProgramCounter) subjects[entry]);
+                    break;
+                case QUEUE_ADD:
+                    ((ActorSate) actorStates[entry]).undoAddToQueue(hashes[entry], powers[entry]);
+                    break;
+                default:
+                    ((ActorSate) actorStates[entry]).undoPollFromQueue((MessageSpecification) subjects[entry],
+                            hashes[entry], powers[entry]);
+            }
+            actorStates[entry] = null;
+            subjects[entry] = null;
+            records[entry] = null;
+            references[entry] = null;
+        }
+    }
+
+    /*
+     * Adds the actor states changed after the mark to the given list, each once.
+     */
+    public void collectChangedActorStates(int mark, List<BaseActorState> changedActorStates) {
+        for (int entry = mark; entry < size; entry++) {
+            BaseActorState actorState = actorStates[entry];
+            boolean collected = false;
+            for (int i = 0; i < changedActorStates.size() && !collected; i++)
+                collected = changedActorStates.get(i) == actorState;
+            if (!collected)
+                changedActorStates.add(actorState);
+        }
+    }
+}
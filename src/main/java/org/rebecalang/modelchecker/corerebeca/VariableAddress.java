@@ -0,0 +1,56 @@
+package org.rebecalang.modelchecker.corerebeca;
+
+/*
+ * Location of a variable resolved at RIL load time: the record reached by following
+ * previousScope hops times from the recent record, which has the given layout, and the
+ * slot of the variable in it. An address is invalidated when a scope closer than its
+ * record may define the variable, and is not used from then on.
+ */
+public class VariableAddress {
+
+    private final int hops;
+    private final FrameLayout layout;
+    private final int slot;
+    private volatile boolean valid = true;
+
+    public VariableAddress(int hops, FrameLayout layout, int slot) {
+        this.hops = hops;
+        this.layout = layout;
+        this.slot = slot;
+    }
+
+    public int getHops() {
+        return hops;
+    }
+
+    public FrameLayout getLayout() {
+        return layout;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    void invalidate() {
+        valid = false;
+    }
+
+    @Override
+    public int hashCode() {
+        return (hops * 31 + layout.getId()) * 31 + slot;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof VariableAddress))
+            return false;
+        VariableAddress other = (VariableAddress) obj;
+        return hops == other.hops && layout == other.layout && slot == other.slot;
+    }
+}
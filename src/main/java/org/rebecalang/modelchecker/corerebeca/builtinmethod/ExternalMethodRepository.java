@@ -1,6 +1,7 @@
 package org.rebecalang.modelchecker.corerebeca.builtinmethod;
 
-import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.rebecalang.modelchecker.corerebeca.BaseActorState;
 import org.rebecalang.modelchecker.corerebeca.State;
@@ -8,11 +9,11 @@ import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.ExternalMet
 
 public class ExternalMethodRepository {
 
-	private static ExternalMethodRepository builtInMethodRepository = new ExternalMethodRepository();
-	private Hashtable<String, ExternalMethodExecutor> executors;
+	private static final ExternalMethodRepository builtInMethodRepository = new ExternalMethodRepository();
+	private final Map<String, ExternalMethodExecutor> executors;
 
 	private ExternalMethodRepository() {
-		executors = new Hashtable<String, ExternalMethodExecutor>();
+		executors = new ConcurrentHashMap<String, ExternalMethodExecutor>();
 	}
 
 	public static ExternalMethodRepository getInstance() {
@@ -27,7 +28,7 @@ public class ExternalMethodRepository {
 		externalMethodExecutor = executors.get(IndependentMethodExecutor.KEY);
 		Object returnValue = externalMethodExecutor.execute(methodCallInstructionBean, baseActorState, globalState);
 		if(methodCallInstructionBean.getFunctionCallResult() != null)
-			baseActorState.setVariableValue(methodCallInstructionBean.getFunctionCallResult().toString(), returnValue);
+			baseActorState.setVariableValue(methodCallInstructionBean.getFunctionCallResult(), returnValue);
 		return null;
 	}
 
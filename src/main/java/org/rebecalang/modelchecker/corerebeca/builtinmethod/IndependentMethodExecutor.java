@@ -4,6 +4,8 @@ import static org.junit.Assert.assertTrue;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.rebecalang.modelchecker.corerebeca.BaseActorState;
 import org.rebecalang.modelchecker.corerebeca.State;
@@ -42,7 +44,10 @@ public class IndependentMethodExecutor implements ExternalMethodExecutor {
 			return null;
 		}
 		if(methodCallInstructionBean.getMethodName().equals("getAllActors")) {
-			return globalState.getAllActorStates();
+			List<Object> allActors = new ArrayList<>();
+			for (BaseActorState actorState : globalState.getAllActorStates())
+				allActors.add(actorState.getDescriptor());
+			return allActors;
 		}
 		
 		throw new RuntimeException("unknown built-in method call");
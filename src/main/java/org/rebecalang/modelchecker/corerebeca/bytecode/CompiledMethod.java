@@ -0,0 +1,31 @@
+package org.rebecalang.modelchecker.corerebeca.bytecode;
+
+import org.rebecalang.modelchecker.corerebeca.BaseActorState;
+import org.rebecalang.modelchecker.corerebeca.RILProgram;
+import org.rebecalang.modelchecker.corerebeca.RebecaRuntimeInterpreterException;
+import org.rebecalang.modelchecker.corerebeca.State;
+import org.rebecalang.modelchecker.corerebeca.VariableAddress;
+import org.rebecalang.modelchecker.corerebeca.policy.AbstractPolicy;
+import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.Variable;
+
+/*
+ * Class generated for a method of a RIL program by the method compiler. It executes the
+ * method from a line until the policy breaks the execution or the actor continues out of
+ * the straight-line code of the method: after a call, the end of the method or a jump to
+ * another method. The instructions which are not written out in Java are executed by the
+ * interpreters they are bound to in the program.
+ */
+public abstract class CompiledMethod {
+
+    public abstract void execute(BaseActorState baseActorState, State globalState, AbstractPolicy policy,
+                                 int lineNumber);
+
+    protected static VariableAddress addressOf(RILProgram program, Object variable) {
+        return program.getFrameLayouts().getAddress((Variable) variable);
+    }
+
+    protected RebecaRuntimeInterpreterException lineOutOfMethod(int lineNumber) {
+        return new RebecaRuntimeInterpreterException("Line " + lineNumber + " is out of the compiled method " +
+                getClass().getSimpleName());
+    }
+}
@@ -0,0 +1,485 @@
+package org.rebecalang.modelchecker.corerebeca.bytecode;
+
+import org.rebecalang.modelchecker.corerebeca.ActivationRecord;
+import org.rebecalang.modelchecker.corerebeca.ActorDescriptor;
+import org.rebecalang.modelchecker.corerebeca.ActorScopeStack;
+import org.rebecalang.modelchecker.corerebeca.BaseActorState;
+import org.rebecalang.modelchecker.corerebeca.MessageSpecification;
+import org.rebecalang.modelchecker.corerebeca.RILProgram;
+import org.rebecalang.modelchecker.corerebeca.RebecaRuntimeInterpreterException;
+import org.rebecalang.modelchecker.corerebeca.State;
+import org.rebecalang.modelchecker.corerebeca.VariableAddress;
+import org.rebecalang.modelchecker.corerebeca.policy.AbstractPolicy;
+import org.rebecalang.modelchecker.corerebeca.rilinterpreter.CallMsgSrvInstructionInterpreter;
+import org.rebecalang.modelchecker.corerebeca.rilinterpreter.CompiledAssignmentInterpreter;
+import org.rebecalang.modelchecker.corerebeca.rilinterpreter.InstructionInterpreter;
+import org.rebecalang.modelchecker.corerebeca.rilinterpreter.JumpIfNotInstructionInterpreter;
+import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.AssignmentInstructionBean;
+import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.CallMsgSrvInstructionBean;
+import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.InstructionBean;
+import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.JumpIfNotInstructionBean;
+import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.Variable;
+
+import javax.tools.*;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.util.*;
+
+/*
+ * Compiles the methods of a resolved RIL program to Java classes, which are compiled in
+ * process by the system Java compiler and loaded by a class loader of their own.
+ *
+ * The class of a method has a case per line, and the lines of straight-line code fall
+ * through to each other without fetching the program counter. Assignments of ints and
+ * booleans, jumps within the method and sends are written out as Java, reading and
+ * writing the slots of the variables at the addresses they are resolved to; the other
+ * instructions, and assignments whose operands turn out not to be ints or booleans, are
+ * executed by their interpreters from call sites of their own. The policy is told of each
+ * instruction and asked whether to break after it, as in the interpreter's loop, so break
+ * points and the alternatives of nondeterministic assignments are kept. Jumps within the
+ * method continue at the line they set; other control transfers return to the caller,
+ * which fetches the next method.
+ */
+public class MethodCompiler {
+
+    /*
+     * Longer methods are interpreted, to keep the generated code within the size of a
+     * class file method.
+     */
+    public static final int MAX_COMPILED_LINES = 1024;
+
+    private static final String GENERATED_PACKAGE = "org.rebecalang.modelchecker.corerebeca.bytecode.generated";
+
+    public static boolean isAvailable() {
+        return ToolProvider.getSystemJavaCompiler() != null;
+    }
+
+    /*
+     * Returns the compiled methods of the program by method number; methods which are not
+     * compiled are null.
+     */
+    public CompiledMethod[] compile(RILProgram program) {
+        JavaCompiler javaCompiler = ToolProvider.getSystemJavaCompiler();
+        if (javaCompiler == null)
+            throw new RebecaRuntimeInterpreterException("No Java compiler is available to compile the RIL program");
+
+        List<JavaFileObject> sources = new ArrayList<>();
+        String[] classNames = new String[program.getMethodsCount()];
+        for (int methodId = 0; methodId < classNames.length; methodId++) {
+            if (program.getLinesCount(methodId) > MAX_COMPILED_LINES)
+                continue;
+            classNames[methodId] = "Method" + methodId;
+            sources.add(new SourceFile(GENERATED_PACKAGE + "." + classNames[methodId],
+                    generateSource(program, methodId, classNames[methodId])));
+        }
+
+        Map<String, ByteArrayOutputStream> classFiles = new HashMap<>();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<String> options = Arrays.asList("-classpath", getClassPath(), "-proc:none", "-g:none");
+        try (StandardJavaFileManager standardFileManager = javaCompiler.getStandardFileManager(diagnostics, null, null)) {
+            JavaFileManager fileManager = new ForwardingJavaFileManager<JavaFileManager>(standardFileManager) {
+                @Override
+                public JavaFileObject getJavaFileForOutput(Location location, String className,
+                                                           JavaFileObject.Kind kind, FileObject sibling) {
+                    ByteArrayOutputStream classFile = new ByteArrayOutputStream();
+                    classFiles.put(className, classFile);
+                    return new ClassFile(className, kind, classFile);
+                }
+            };
+            if (!sources.isEmpty() &&
+                    !javaCompiler.getTask(null, fileManager, diagnostics, options, null, sources).call())
+                throw new RebecaRuntimeInterpreterException("Compilation of the RIL program failed: " +
+                        diagnostics.getDiagnostics());
+        } catch (IOException e) {
+            throw new RebecaRuntimeInterpreterException("Compilation of the RIL program failed: " + e.getMessage());
+        }
+
+        GeneratedClassLoader classLoader = new GeneratedClassLoader(CompiledMethod.class.getClassLoader(), classFiles);
+        CompiledMethod[] compiledMethods = new CompiledMethod[classNames.length];
+        for (int methodId = 0; methodId < classNames.length; methodId++) {
+            if (classNames[methodId] == null)
+                continue;
+            try {
+                compiledMethods[methodId] = classLoader.loadClass(GENERATED_PACKAGE + "." + classNames[methodId])
+                        .asSubclass(CompiledMethod.class)
+                        .getConstructor(RILProgram.class, int.class)
+                        .newInstance(program, methodId);
+            } catch (ReflectiveOperationException e) {
+                throw new RebecaRuntimeInterpreterException("Loading the compiled method " +
+                        program.getMethodName(methodId) + " failed: " + e);
+            }
+        }
+        return compiledMethods;
+    }
+
+    private static String generateSource(RILProgram program, int methodId, String className) {
+        int linesCount = program.getLinesCount(methodId);
+        StringBuilder fields = new StringBuilder();
+        StringBuilder constructor = new StringBuilder();
+        StringBuilder cases = new StringBuilder();
+        for (int lineNumber = 0; lineNumber < linesCount; lineNumber++) {
+            String instruction = "instruction" + lineNumber;
+            fields.append("    private final InstructionBean ").append(instruction).append(";\n");
+            fields.append("    private final InstructionInterpreter interpreter").append(lineNumber).append(";\n");
+            constructor.append("        ").append(instruction)
+                    .append(" = program.getInstruction(methodId, ").append(lineNumber).append(");\n");
+            constructor.append("        interpreter").append(lineNumber)
+                    .append(" = program.getInterpreter(methodId, ").append(lineNumber).append(");\n");
+            LineSource line = new LineSource(program, methodId, lineNumber, fields, constructor, cases);
+            if (!line.compileAssignment() && !line.compileJump() && !line.compileSend())
+                line.interpret();
+        }
+
+        StringBuilder source = new StringBuilder();
+        source.append("package ").append(GENERATED_PACKAGE).append(";\n\n");
+        for (Class<?> importedClass : Arrays.asList(CompiledMethod.class, RILProgram.class, BaseActorState.class,
+                State.class, AbstractPolicy.class, InstructionInterpreter.class, InstructionBean.class,
+                ActivationRecord.class, ActorScopeStack.class, ActorDescriptor.class, MessageSpecification.class,
+                VariableAddress.class, Variable.class, AssignmentInstructionBean.class,
+                JumpIfNotInstructionBean.class, CallMsgSrvInstructionBean.class, ArrayList.class))
+            source.append("import ").append(importedClass.getName()).append(";\n");
+        source.append("\n/* ").append(program.getMethodName(methodId)).append(" */\n");
+        source.append("public final class ").append(className).append(" extends CompiledMethod {\n");
+        source.append("    private final RILProgram program;\n");
+        source.append(fields);
+        source.append("\n    public ").append(className).append("(RILProgram program, int methodId) {\n");
+        source.append("        this.program = program;\n");
+        source.append(constructor);
+        source.append("    }\n");
+        source.append("\n    @Override\n");
+        source.append("    public void execute(BaseActorState baseActorState, State globalState, AbstractPolicy policy,\n");
+        source.append("                        int lineNumber) {\n");
+        source.append("        while (true) {\n");
+        source.append("            switch (lineNumber) {\n");
+        source.append(cases);
+        source.append("                default:\n");
+        source.append("                    throw lineOutOfMethod(lineNumber);\n");
+        source.append("            }\n");
+        source.append("        }\n");
+        source.append("    }\n");
+        source.append("}\n");
+        return source.toString();
+    }
+
+    /*
+     * The source of one line: its fields, their initialization and its case. Assignments of
+     * ints and booleans, jumps within the method and sends of messages without arguments
+     * are written out in Java; the code of an assignment falls back to the interpreter of
+     * the line where the compiled assignment interpreter would, so both change the state in
+     * the same way. Other instructions are executed by their interpreters.
+     */
+    private static class LineSource {
+        private final RILProgram program;
+        private final int methodId;
+        private final int lineNumber;
+        private final InstructionBean instruction;
+        private final InstructionInterpreter interpreter;
+        private final StringBuilder fields;
+        private final StringBuilder constructor;
+        private final StringBuilder cases;
+
+        LineSource(RILProgram program, int methodId, int lineNumber,
+                   StringBuilder fields, StringBuilder constructor, StringBuilder cases) {
+            this.program = program;
+            this.methodId = methodId;
+            this.lineNumber = lineNumber;
+            this.instruction = program.getInstruction(methodId, lineNumber);
+            this.interpreter = program.getInterpreter(methodId, lineNumber);
+            this.fields = fields;
+            this.constructor = constructor;
+            this.cases = cases;
+        }
+
+        boolean compileAssignment() {
+            if (!(instruction instanceof AssignmentInstructionBean) ||
+                    !(interpreter instanceof CompiledAssignmentInterpreter))
+                return false;
+            AssignmentInstructionBean aib = (AssignmentInstructionBean) instruction;
+            String operator = aib.getOperator();
+            VariableAddress target = addressOf(aib.getLeftVarName());
+            if (target == null || !isCompilableOperand(aib.getFirstOperand()) ||
+                    (operator == null) != (aib.getSecondOperand() == null) ||
+                    (operator != null && !isCompilableOperand(aib.getSecondOperand())))
+                return false;
+
+            String guard;
+            String kind;
+            String value;
+            if (operator == null) {
+                guard = "(firstKind == ActivationRecord.INT || firstKind == ActivationRecord.BOOLEAN)";
+                kind = "firstKind";
+                value = "firstBits";
+            } else {
+                switch (operator) {
+                    case "+":
+                    case "-":
+                    case "*":
+                        guard = "firstKind == ActivationRecord.INT && secondKind == ActivationRecord.INT";
+                        kind = "ActivationRecord.INT";
+                        value = "(int) firstBits " + operator + " (int) secondBits";
+                        break;
+                    case "/":
+                    case "%":
+                        guard = "firstKind == ActivationRecord.INT && secondKind == ActivationRecord.INT && " +
+                                "(int) secondBits != 0";
+                        kind = "ActivationRecord.INT";
+                        value = "(int) firstBits " + operator + " (int) secondBits";
+                        break;
+                    case "<":
+                    case "<=":
+                    case ">":
+                    case ">=":
+                        guard = "firstKind == ActivationRecord.INT && secondKind == ActivationRecord.INT";
+                        kind = "ActivationRecord.BOOLEAN";
+                        value = "((int) firstBits " + operator + " (int) secondBits ? 1 : 0)";
+                        break;
+                    case "&&":
+                    case "||":
+                        guard = "firstKind == ActivationRecord.BOOLEAN && secondKind == ActivationRecord.BOOLEAN";
+                        kind = "ActivationRecord.BOOLEAN";
+                        value = "((firstBits " + operator.charAt(0) + " secondBits) != 0 ? 1 : 0)";
+                        break;
+                    case "==":
+                    case "!=":
+                        guard = "firstKind == secondKind && " +
+                                "(firstKind == ActivationRecord.INT || firstKind == ActivationRecord.BOOLEAN)";
+                        kind = "ActivationRecord.BOOLEAN";
+                        value = "((int) firstBits " + operator + " (int) secondBits ? 1 : 0)";
+                        break;
+                    default:
+                        return false;
+                }
+            }
+
+            String targetField = addField("VariableAddress", "target",
+                    "addressOf(program, ((AssignmentInstructionBean) instruction" + lineNumber + ").getLeftVarName())");
+            openCase();
+            line("ActorScopeStack stack = baseActorState.getActorScopeStack();");
+            readOperand("first", aib.getFirstOperand(), "getFirstOperand");
+            if (operator != null)
+                readOperand("second", aib.getSecondOperand(), "getSecondOperand");
+            line("if (" + targetField + ".isValid() && " + guard + " &&");
+            line("        stack.setPrimitiveValue(" + targetField + ", " + kind + ", " + value + "))");
+            line("    baseActorState.increasePC();");
+            line("else");
+            line("    interpreter" + lineNumber + ".interpret(instruction" + lineNumber + ", baseActorState, globalState);");
+            line("if (policy.isBreakable())");
+            line("    return;");
+            closeCase();
+            return true;
+        }
+
+        boolean compileJump() {
+            if (!jumpsWithinMethod(program, methodId, lineNumber))
+                return false;
+            JumpIfNotInstructionBean jiib = (JumpIfNotInstructionBean) instruction;
+            int targetLine = jiib.getLineNumber();
+            Object condition = jiib.getCondition();
+            if (condition == null) {
+                openCase();
+                line("baseActorState.setPC(" + methodId + ", " + targetLine + ");");
+                line("if (policy.isBreakable())");
+                line("    return;");
+                line("lineNumber = " + targetLine + ";");
+                line("continue;");
+                closeCase();
+                return true;
+            }
+            VariableAddress address = condition instanceof Variable ? addressOf(condition) : null;
+            if (address == null)
+                return false;
+            String conditionField = addField("VariableAddress", "condition",
+                    "addressOf(program, ((JumpIfNotInstructionBean) instruction" + lineNumber + ").getCondition())");
+            int slot = address.getSlot();
+            openCase();
+            line("ActivationRecord record = " + conditionField + ".isValid() ?");
+            line("        baseActorState.getActorScopeStack().getDefiningRecord(" + conditionField + ") : null;");
+            line("if (record == null || record.getKind(" + slot + ") != ActivationRecord.BOOLEAN) {");
+            line("    interpreter" + lineNumber + ".interpret(instruction" + lineNumber + ", baseActorState, globalState);");
+            line("    lineNumber = baseActorState.getPC().getLineNumber();");
+            line("} else if (record.getPrimitive(" + slot + ") == 0) {");
+            line("    baseActorState.setPC(" + methodId + ", " + targetLine + ");");
+            line("    lineNumber = " + targetLine + ";");
+            line("} else {");
+            line("    baseActorState.increasePC();");
+            line("    lineNumber = " + (lineNumber + 1) + ";");
+            line("}");
+            line("if (policy.isBreakable())");
+            line("    return;");
+            line("continue;");
+            closeCase();
+            return true;
+        }
+
+        boolean compileSend() {
+            if (instruction == null || instruction.getClass() != CallMsgSrvInstructionBean.class ||
+                    interpreter == null || interpreter.getClass() != CallMsgSrvInstructionInterpreter.class)
+                return false;
+            int selectorId = program.getSelectorId(instruction);
+            String receiverField = addField("Variable", "receiver",
+                    "((CallMsgSrvInstructionBean) instruction" + lineNumber + ").getReceiver()");
+            openCase();
+            line("ActorDescriptor receiver = (ActorDescriptor) baseActorState.retrieveVariableValue(" +
+                    receiverField + ");");
+            line("BaseActorState receiverState = globalState.getActorStateForUpdate(receiver);");
+            line("MessageSpecification message = new MessageSpecification(");
+            line("        program.getMessageName(receiver.getClassId(), " + selectorId + "),");
+            line("        new ArrayList<Object>(), baseActorState.getDescriptor());");
+            line("message.setMethodId(program.getMethodId(receiver.getClassId(), " + selectorId + "));");
+            line("receiverState.addToQueue(message);");
+            line("baseActorState.increasePC();");
+            line("if (policy.isBreakable())");
+            line("    return;");
+            closeCase();
+            return true;
+        }
+
+        void interpret() {
+            openCase();
+            line("interpreter" + lineNumber + ".interpret(instruction" + lineNumber + ", baseActorState, globalState);");
+            if (interpreter != null && interpreter.continuesAtNextLine()) {
+                line("if (policy.isBreakable())");
+                line("    return;");
+            } else if (jumpsWithinMethod(program, methodId, lineNumber)) {
+                line("if (policy.isBreakable())");
+                line("    return;");
+                line("lineNumber = baseActorState.getPC().getLineNumber();");
+                line("continue;");
+            } else {
+                line("return;");
+            }
+            closeCase();
+        }
+
+        private boolean isCompilableOperand(Object operand) {
+            return operand instanceof Integer || operand instanceof Boolean ||
+                    (operand instanceof Variable && addressOf(operand) != null);
+        }
+
+        /*
+         * Declares the kind and the bits of an operand as locals of the case.
+         */
+        private void readOperand(String name, Object operand, String getter) {
+            if (operand instanceof Integer) {
+                line("byte " + name + "Kind = ActivationRecord.INT;");
+                line("long " + name + "Bits = " + operand + ";");
+            } else if (operand instanceof Boolean) {
+                line("byte " + name + "Kind = ActivationRecord.BOOLEAN;");
+                line("long " + name + "Bits = " + ((Boolean) operand ? 1 : 0) + ";");
+            } else {
+                int slot = addressOf(operand).getSlot();
+                String field = addField("VariableAddress", name,
+                        "addressOf(program, ((AssignmentInstructionBean) instruction" + lineNumber + ")." +
+                                getter + "())");
+                line("ActivationRecord " + name + " = " + field + ".isValid() ? stack.getDefiningRecord(" +
+                        field + ") : null;");
+                line("byte " + name + "Kind = " + name + " == null ? ActivationRecord.UNDEFINED : " + name +
+                        ".getKind(" + slot + ");");
+                line("long " + name + "Bits = " + name + " == null ? 0 : " + name + ".getPrimitive(" + slot + ");");
+            }
+        }
+
+        private VariableAddress addressOf(Object variable) {
+            return program.getFrameLayouts().getAddress((Variable) variable);
+        }
+
+        private String addField(String type, String name, String initializer) {
+            String field = name + lineNumber;
+            fields.append("    private final ").append(type).append(' ').append(field).append(";\n");
+            constructor.append("        ").append(field).append(" = ").append(initializer).append(";\n");
+            return field;
+        }
+
+        private void openCase() {
+            cases.append("                case ").append(lineNumber).append(": {\n");
+            line("policy.executedInstruction(instruction" + lineNumber + ");");
+        }
+
+        private void closeCase() {
+            cases.append("                }\n");
+        }
+
+        private void line(String code) {
+            cases.append("                    ").append(code).append('\n');
+        }
+    }
+
+    private static boolean jumpsWithinMethod(RILProgram program, int methodId, int lineNumber) {
+        InstructionBean instruction = program.getInstruction(methodId, lineNumber);
+        return instruction instanceof JumpIfNotInstructionBean &&
+                program.getInterpreter(methodId, lineNumber) instanceof JumpIfNotInstructionInterpreter &&
+                program.getMethodName(methodId).equals(((JumpIfNotInstructionBean) instruction).getMethodName());
+    }
+
+    /*
+     * The class path of the application, extended with the locations of the model checker
+     * and the RIL instructions in case they are loaded by a class loader of their own.
+     */
+    private static String getClassPath() {
+        Set<String> classPath = new LinkedHashSet<>(
+                Arrays.asList(System.getProperty("java.class.path").split(File.pathSeparator)));
+        for (Class<?> referencedClass : Arrays.asList(CompiledMethod.class, InstructionBean.class)) {
+            CodeSource codeSource = referencedClass.getProtectionDomain().getCodeSource();
+            if (codeSource == null || codeSource.getLocation() == null)
+                continue;
+            try {
+                classPath.add(Paths.get(codeSource.getLocation().toURI()).toString());
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                // Locations which are not files can not be given to the compiler
+            }
+        }
+        return String.join(File.pathSeparator, classPath);
+    }
+
+    private static class SourceFile extends SimpleJavaFileObject {
+        private final String source;
+
+        SourceFile(String className, String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    private static class ClassFile extends SimpleJavaFileObject {
+        private final OutputStream outputStream;
+
+        ClassFile(String className, Kind kind, OutputStream outputStream) {
+            super(URI.create("bytes:///" + className.replace('.', '/') + kind.extension), kind);
+            this.outputStream = outputStream;
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return outputStream;
+        }
+    }
+
+    private static class GeneratedClassLoader extends ClassLoader {
+        private final Map<String, ByteArrayOutputStream> classFiles;
+
+        GeneratedClassLoader(ClassLoader parent, Map<String, ByteArrayOutputStream> classFiles) {
+            super(parent);
+            this.classFiles = classFiles;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            ByteArrayOutputStream classFile = classFiles.get(name);
+            if (classFile == null)
+                throw new ClassNotFoundException(name);
+            byte[] bytes = classFile.toByteArray();
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package org.rebecalang.modelchecker.corerebeca.copy;
+
+import org.rebecalang.modelchecker.corerebeca.State;
+
+/*
+ * Shares all actor states with the source state; an actor state is copied only when it
+ * is retrieved for update, i.e. for the executing actor and the receivers of its messages.
+ */
+public class CopyOnWriteStateCopyStrategy implements StateCopyStrategy {
+
+    @Override
+    public State copyState(State state) {
+        return state.copy();
+    }
+}
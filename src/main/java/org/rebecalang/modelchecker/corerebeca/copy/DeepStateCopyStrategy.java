@@ -0,0 +1,19 @@
+package org.rebecalang.modelchecker.corerebeca.copy;
+
+import org.rebecalang.modelchecker.corerebeca.State;
+
+/*
+ * Copies all actor states with their copy constructors, so the copy shares no actor state
+ * with the source state. Actor references are descriptors, which are valid in any state,
+ * so they are kept as they are.
+ */
+public class DeepStateCopyStrategy implements StateCopyStrategy {
+
+    @Override
+    public State copyState(State state) {
+        State newState = state.copy();
+        for (int actorId = 0; actorId < newState.getActorsCount(); actorId++)
+            newState.getActorStateForUpdate(actorId);
+        return newState;
+    }
+}
@@ -0,0 +1,39 @@
+package org.rebecalang.modelchecker.corerebeca.copy;
+
+import com.rits.cloning.Cloner;
+import org.rebecalang.compiler.utils.Pair;
+import org.rebecalang.modelchecker.corerebeca.ActorDescriptor;
+import org.rebecalang.modelchecker.corerebeca.FrameLayout;
+import org.rebecalang.modelchecker.corerebeca.State;
+import org.rebecalang.modelchecker.corerebeca.rilinterpreter.ProgramCounter;
+
+import java.util.List;
+
+/*
+ * Deep clones the whole state by reflection. The links to the neighbor states are
+ * detached during cloning so that the transition graph is not cloned as well. Descriptors,
+ * frame layouts and program counters are shared by all the states and are not cloned.
+ * The links are detached under the lock of the state, under which the workers of a
+ * parallel search link the states.
+ */
+public class ReflectiveStateCopyStrategy implements StateCopyStrategy {
+    private final Cloner cloner;
+
+    public ReflectiveStateCopyStrategy() {
+        cloner = new Cloner();
+        cloner.dontCloneInstanceOf(ActorDescriptor.class, FrameLayout.class, ProgramCounter.class);
+    }
+
+    @Override
+    public State copyState(State state) {
+        synchronized (state) {
+            List<Pair<String, State>> childStates = state.getChildStates();
+            List<Pair<String, State>> parentStates = state.getParentStates();
+            state.clearLinks();
+            State newState = cloner.deepClone(state);
+            state.setParentStates(parentStates);
+            state.setChildStates(childStates);
+            return newState;
+        }
+    }
+}
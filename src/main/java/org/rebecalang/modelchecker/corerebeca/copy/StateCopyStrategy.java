@@ -0,0 +1,13 @@
+package org.rebecalang.modelchecker.corerebeca.copy;
+
+import org.rebecalang.modelchecker.corerebeca.State;
+
+/*
+ * Creates the state a transition is executed on from its source state. The returned
+ * state must not share anything with the source which is modified in place; actor states
+ * are retrieved for modification through State.getActorStateForUpdate.
+ */
+public interface StateCopyStrategy {
+
+    State copyState(State state);
+}
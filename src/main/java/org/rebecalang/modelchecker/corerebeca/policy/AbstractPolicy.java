@@ -13,4 +13,9 @@ public abstract class AbstractPolicy {
     public abstract void executedInstruction(InstructionBean ib);
 
     public abstract void pick(MessageSpecification executableMessage);
+
+    /*
+     * Returns a new policy of the same kind, for a worker of a parallel search.
+     */
+    public abstract AbstractPolicy copy();
 }
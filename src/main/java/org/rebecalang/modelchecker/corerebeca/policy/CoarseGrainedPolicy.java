@@ -22,4 +22,8 @@ public class CoarseGrainedPolicy extends AbstractPolicy {
         breakable = false;
     }
 
+    @Override
+    public AbstractPolicy copy() {
+        return new CoarseGrainedPolicy();
+    }
 }
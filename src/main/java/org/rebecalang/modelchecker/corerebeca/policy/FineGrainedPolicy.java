@@ -24,4 +24,9 @@ public class FineGrainedPolicy extends AbstractPolicy {
     public void pick(MessageSpecification executableMessage) {
         breakable = true;
     }
+
+    @Override
+    public AbstractPolicy copy() {
+        return new FineGrainedPolicy();
+    }
 }
@@ -4,26 +4,40 @@ import org.rebecalang.compiler.modelcompiler.SemanticCheckerUtils;
 import org.rebecalang.modelchecker.corerebeca.*;
 import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.AssignmentInstructionBean;
 import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.InstructionBean;
+import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.NonDetValue;
 import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.Variable;
 
 public class AssignmentInstructionInterpreter extends InstructionInterpreter {
 
     public void interpret(InstructionBean ib, BaseActorState baseActorState, State globalState) {
         AssignmentInstructionBean aib = (AssignmentInstructionBean) ib;
-        Object valueFirst = InstructionUtilities.getValue(aib.getFirstOperand(), baseActorState);
-        Object valueSecond = InstructionUtilities.getValue(aib.getSecondOperand(), baseActorState);
+        Object firstOperand = aib.getFirstOperand();
+        Object secondOperand = aib.getSecondOperand();
+        if (firstOperand instanceof NonDetValue || secondOperand instanceof NonDetValue) {
+            /*
+             * An assignment is one choice point, with an alternative per combination of the
+             * alternatives of its operands.
+             */
+            RILProgram program = baseActorState.getProgram();
+            Object[] firstAlternatives = program.getAlternatives(firstOperand);
+            Object[] secondAlternatives = program.getAlternatives(secondOperand);
+            int alternative = globalState.chooseAlternative(firstAlternatives.length * secondAlternatives.length);
+            firstOperand = firstAlternatives[alternative / secondAlternatives.length];
+            secondOperand = secondAlternatives[alternative % secondAlternatives.length];
+        }
+        Object valueFirst = InstructionUtilities.getValue(firstOperand, baseActorState);
+        Object valueSecond = InstructionUtilities.getValue(secondOperand, baseActorState);
         Object result = valueFirst;
         String operator = aib.getOperator();
         if (operator != null) {
-            if (valueFirst instanceof BaseActorState) {
+            if (valueFirst instanceof ActorDescriptor) {
                 if (operator.equals("=="))
-                    result = (((BaseActorState) valueFirst).getName().
-                            equals(((BaseActorState) valueSecond).getName()));
+                    result = valueFirst.equals(valueSecond);
                 else if (operator.equals("!="))
-                    result = !(((BaseActorState) valueFirst).getName().
-                            equals(((BaseActorState) valueSecond).getName()));
+                    result = !valueFirst.equals(valueSecond);
                 else if (operator.equals("instanceof")) //ToDo: polymorphism remaining
-                    result = checkSecondIsAncestor(((BaseActorState) valueFirst).getActorScopeStack(), valueSecond.toString());
+                    result = checkSecondIsAncestor(globalState.getActorState((ActorDescriptor) valueFirst).getActorScopeStack(),
+                            valueSecond.toString());
                 else
                     throw new RebecaRuntimeInterpreterException(
                             "this case should not happen!! should've been reported as an error by compiler!");
@@ -31,10 +45,23 @@ public class AssignmentInstructionInterpreter extends InstructionInterpreter {
                 result = SemanticCheckerUtils.evaluateConstantTerm(operator, null, valueFirst, valueSecond);
         }
 
-        baseActorState.setVariableValue(((Variable) aib.getLeftVarName()).getVarName(), result);
+        baseActorState.setVariableValue((Variable) aib.getLeftVarName(), result);
         baseActorState.increasePC();
     }
 
+    /*
+     * Assignments of variables are compiled to evaluators of their operators; assignments
+     * with nondeterministic operands are interpreted, as they report their alternatives.
+     */
+    @Override
+    public InstructionInterpreter compile(InstructionBean ib, FrameLayouts frameLayouts) {
+        AssignmentInstructionBean aib = (AssignmentInstructionBean) ib;
+        if (!(aib.getLeftVarName() instanceof Variable) || aib.getFirstOperand() instanceof NonDetValue ||
+                aib.getSecondOperand() instanceof NonDetValue)
+            return this;
+        return new CompiledAssignmentInterpreter(this, aib, frameLayouts);
+    }
+
     private boolean checkSecondIsAncestor(ActorScopeStack currentScope, String actorType) {
         ActivationRecord cursor = currentScope.getActivationRecords().getLast();
         while (cursor != null) {
@@ -44,4 +71,9 @@ public class AssignmentInstructionInterpreter extends InstructionInterpreter {
         }
         return false;
     }
+
+    @Override
+    public boolean continuesAtNextLine() {
+        return true;
+    }
 }
@@ -1,7 +1,9 @@
 package org.rebecalang.modelchecker.corerebeca.rilinterpreter;
 
+import org.rebecalang.modelchecker.corerebeca.ActorDescriptor;
 import org.rebecalang.modelchecker.corerebeca.BaseActorState;
 import org.rebecalang.modelchecker.corerebeca.MessageSpecification;
+import org.rebecalang.modelchecker.corerebeca.RILProgram;
 import org.rebecalang.modelchecker.corerebeca.State;
 import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.CallMsgSrvInstructionBean;
 import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.InstructionBean;
@@ -13,10 +15,19 @@ public class CallMsgSrvInstructionInterpreter extends InstructionInterpreter {
     @Override
     public void interpret(InstructionBean ib, BaseActorState baseActorState, State globalState) {
         CallMsgSrvInstructionBean cmib = (CallMsgSrvInstructionBean) ib;
-        BaseActorState receiverState = (BaseActorState) baseActorState.retrieveVariableValue(cmib.getReceiver());
-        String msgSrvName = receiverState.getTypeName() + "." + cmib.getMsgsrvName().split("\\.")[1];
-        MessageSpecification msgSpec = new MessageSpecification(msgSrvName, new ArrayList<Object>(), baseActorState);
+        ActorDescriptor receiver = (ActorDescriptor) baseActorState.retrieveVariableValue(cmib.getReceiver());
+        BaseActorState receiverState = globalState.getActorStateForUpdate(receiver);
+        RILProgram program = baseActorState.getProgram();
+        int selectorId = program.getSelectorId(cmib);
+        MessageSpecification msgSpec = new MessageSpecification(program.getMessageName(receiver.getClassId(), selectorId),
+                new ArrayList<Object>(), baseActorState.getDescriptor());
+        msgSpec.setMethodId(program.getMethodId(receiver.getClassId(), selectorId));
         receiverState.addToQueue(msgSpec);
         baseActorState.increasePC();
     }
+
+    @Override
+    public boolean continuesAtNextLine() {
+        return true;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,300 @@
+package org.rebecalang.modelchecker.corerebeca.rilinterpreter;
+
+import org.rebecalang.modelchecker.corerebeca.*;
+import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.AssignmentInstructionBean;
+import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.InstructionBean;
+import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.Variable;
+
+/*
+ * Interpreter of one assignment, compiled when the RIL program is resolved. Its operands are
+ * constants, packed with their kinds, or variables resolved to their slots, and its operator
+ * is bound to the int and boolean operations which implement it, so an assignment of an int
+ * or a boolean neither looks up names nor boxes values. Comparisons of actor references are
+ * compiled to identity checks, as there is one descriptor per actor.
+ *
+ * Assignments of other values, operators the compiler's evaluation of constant terms is
+ * left to and variables which are not defined at their addresses are interpreted by the
+ * interpreter of assignments.
+ */
+public class CompiledAssignmentInterpreter extends InstructionInterpreter {
+
+    /*
+     * Primitive values are packed with their kind in the upper half of a long, so a packed
+     * value is never NOT_PRIMITIVE.
+     */
+    private static final long NOT_PRIMITIVE = 0;
+
+    private final AssignmentInstructionInterpreter assignmentInterpreter;
+    private final VariableAddress target;
+    private final Operand first;
+    private final Operand second;
+    private final boolean hasOperator;
+    private final PrimitiveOperator intOperator;
+    private final PrimitiveOperator booleanOperator;
+    private final boolean comparesReferences;
+    private final boolean negated;
+
+    public CompiledAssignmentInterpreter(AssignmentInstructionInterpreter assignmentInterpreter,
+                                         AssignmentInstructionBean aib, FrameLayouts frameLayouts) {
+        this.assignmentInterpreter = assignmentInterpreter;
+        this.target = frameLayouts.getAddress((Variable) aib.getLeftVarName());
+        this.first = Operand.of(aib.getFirstOperand(), frameLayouts);
+        this.second = aib.getSecondOperand() == null ? null : Operand.of(aib.getSecondOperand(), frameLayouts);
+        String operator = aib.getOperator();
+        this.hasOperator = operator != null;
+        this.intOperator = operator == null ? null : PrimitiveOperator.ofInts(operator);
+        this.booleanOperator = operator == null ? null : PrimitiveOperator.ofBooleans(operator);
+        this.comparesReferences = "==".equals(operator) || "!=".equals(operator);
+        this.negated = "!=".equals(operator);
+    }
+
+    @Override
+    public void interpret(InstructionBean ib, BaseActorState baseActorState, State globalState) {
+        if (target != null && target.isValid() && assign(baseActorState.getActorScopeStack()))
+            baseActorState.increasePC();
+        else
+            assignmentInterpreter.interpret(ib, baseActorState, globalState);
+    }
+
+    @Override
+    public boolean continuesAtNextLine() {
+        return true;
+    }
+
+    /*
+     * Returns false, having changed nothing, if the assignment is left to the interpreter.
+     */
+    private boolean assign(ActorScopeStack actorScopeStack) {
+        long result = first.read(actorScopeStack);
+        if (hasOperator) {
+            if (second == null)
+                return false;
+            if (result == NOT_PRIMITIVE)
+                return comparesReferences && assignReferenceComparison(actorScopeStack);
+            PrimitiveOperator operator = kindOf(result) == ActivationRecord.INT ? intOperator : booleanOperator;
+            long secondValue = second.read(actorScopeStack);
+            if (operator == null || secondValue == NOT_PRIMITIVE || kindOf(secondValue) != kindOf(result))
+                return false;
+            result = operator.apply(valueOf(result), valueOf(secondValue));
+        }
+        return result != NOT_PRIMITIVE &&
+                actorScopeStack.setPrimitiveValue(target, kindOf(result), valueOf(result));
+    }
+
+    private boolean assignReferenceComparison(ActorScopeStack actorScopeStack) {
+        Object firstReference = first.readReference(actorScopeStack);
+        Object secondReference = second.readReference(actorScopeStack);
+        if (!(firstReference instanceof ActorDescriptor) || !(secondReference instanceof ActorDescriptor))
+            return false;
+        return actorScopeStack.setPrimitiveValue(target, ActivationRecord.BOOLEAN,
+                (firstReference == secondReference) != negated ? 1 : 0);
+    }
+
+    private static long pack(byte kind, int value) {
+        return ((long) kind << 32) | (value & 0xFFFFFFFFL);
+    }
+
+    private static long packBoolean(boolean value) {
+        return pack(ActivationRecord.BOOLEAN, value ? 1 : 0);
+    }
+
+    private static byte kindOf(long packedValue) {
+        return (byte) (packedValue >>> 32);
+    }
+
+    private static int valueOf(long packedValue) {
+        return (int) packedValue;
+    }
+
+    private static abstract class Operand {
+
+        static Operand of(Object operand, FrameLayouts frameLayouts) {
+            if (operand instanceof Variable)
+                return new SlotOperand(frameLayouts.getAddress((Variable) operand));
+            return new ConstantOperand(operand);
+        }
+
+        /*
+         * Returns the packed value of the operand, or NOT_PRIMITIVE if it is not an int or a
+         * boolean defined at its address.
+         */
+        abstract long read(ActorScopeStack actorScopeStack);
+
+        /*
+         * Returns the value of the operand if it is a reference defined at its address.
+         */
+        abstract Object readReference(ActorScopeStack actorScopeStack);
+    }
+
+    private static class ConstantOperand extends Operand {
+        private final long packedValue;
+        private final Object value;
+
+        ConstantOperand(Object value) {
+            this.value = value;
+            if (value instanceof Integer)
+                packedValue = pack(ActivationRecord.INT, (Integer) value);
+            else if (value instanceof Boolean)
+                packedValue = packBoolean((Boolean) value);
+            else
+                packedValue = NOT_PRIMITIVE;
+        }
+
+        @Override
+        long read(ActorScopeStack actorScopeStack) {
+            return packedValue;
+        }
+
+        @Override
+        Object readReference(ActorScopeStack actorScopeStack) {
+            return value;
+        }
+    }
+
+    private static class SlotOperand extends Operand {
+        private final VariableAddress address;
+
+        SlotOperand(VariableAddress address) {
+            this.address = address;
+        }
+
+        @Override
+        long read(ActorScopeStack actorScopeStack) {
+            ActivationRecord record = address == null || !address.isValid() ? null :
+                    actorScopeStack.getDefiningRecord(address);
+            if (record == null)
+                return NOT_PRIMITIVE;
+            byte kind = record.getKind(address.getSlot());
+            if (kind != ActivationRecord.INT && kind != ActivationRecord.BOOLEAN)
+                return NOT_PRIMITIVE;
+            return pack(kind, (int) record.getPrimitive(address.getSlot()));
+        }
+
+        @Override
+        Object readReference(ActorScopeStack actorScopeStack) {
+            ActivationRecord record = address == null || !address.isValid() ? null :
+                    actorScopeStack.getDefiningRecord(address);
+            if (record == null || record.getKind(address.getSlot()) != ActivationRecord.REFERENCE)
+                return null;
+            return record.getValue(address.getSlot());
+        }
+    }
+
+    /*
+     * Operations on two ints or two booleans; they return NOT_PRIMITIVE where the compiler's
+     * evaluation throws, so the interpreter reports the failure.
+     */
+    private enum PrimitiveOperator {
+        INT_ADD {
+            long apply(int x, int y) {
+                return pack(ActivationRecord.INT, x + y);
+            }
+        },
+        INT_SUBTRACT {
+            long apply(int x, int y) {
+                return pack(ActivationRecord.INT, x - y);
+            }
+        },
+        INT_MULTIPLY {
+            long apply(int x, int y) {
+                return pack(ActivationRecord.INT, x * y);
+            }
+        },
+        INT_DIVIDE {
+            long apply(int x, int y) {
+                return y == 0 ? NOT_PRIMITIVE : pack(ActivationRecord.INT, x / y);
+            }
+        },
+        INT_REMAINDER {
+            long apply(int x, int y) {
+                return y == 0 ? NOT_PRIMITIVE : pack(ActivationRecord.INT, x % y);
+            }
+        },
+        INT_LESS {
+            long apply(int x, int y) {
+                return packBoolean(x < y);
+            }
+        },
+        INT_LESS_OR_EQUAL {
+            long apply(int x, int y) {
+                return packBoolean(x <= y);
+            }
+        },
+        INT_GREATER {
+            long apply(int x, int y) {
+                return packBoolean(x > y);
+            }
+        },
+        INT_GREATER_OR_EQUAL {
+            long apply(int x, int y) {
+                return packBoolean(x >= y);
+            }
+        },
+        EQUAL {
+            long apply(int x, int y) {
+                return packBoolean(x == y);
+            }
+        },
+        NOT_EQUAL {
+            long apply(int x, int y) {
+                return packBoolean(x != y);
+            }
+        },
+        BOOLEAN_AND {
+            long apply(int x, int y) {
+                return packBoolean((x & y) != 0);
+            }
+        },
+        BOOLEAN_OR {
+            long apply(int x, int y) {
+                return packBoolean((x | y) != 0);
+            }
+        };
+
+        abstract long apply(int x, int y);
+
+        static PrimitiveOperator ofInts(String operator) {
+            switch (operator) {
+                case "+":
+                    return INT_ADD;
+                case "-":
+                    return INT_SUBTRACT;
+                case "*":
+                    return INT_MULTIPLY;
+                case "/":
+                    return INT_DIVIDE;
+                case "%":
+                    return INT_REMAINDER;
+                case "<":
+                    return INT_LESS;
+                case "<=":
+                    return INT_LESS_OR_EQUAL;
+                case ">":
+                    return INT_GREATER;
+                case ">=":
+                    return INT_GREATER_OR_EQUAL;
+                case "==":
+                    return EQUAL;
+                case "!=":
+                    return NOT_EQUAL;
+                default:
+                    return null;
+            }
+        }
+
+        static PrimitiveOperator ofBooleans(String operator) {
+            switch (operator) {
+                case "&&":
+                    return BOOLEAN_AND;
+                case "||":
+                    return BOOLEAN_OR;
+                case "==":
+                    return EQUAL;
+                case "!=":
+                    return NOT_EQUAL;
+                default:
+                    return null;
+            }
+        }
+    }
+}
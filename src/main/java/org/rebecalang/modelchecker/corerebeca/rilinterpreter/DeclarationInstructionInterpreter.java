@@ -13,4 +13,9 @@ public class DeclarationInstructionInterpreter extends InstructionInterpreter {
         baseActorState.addVariableToRecentScope(dib.getVarName(), 0);
         baseActorState.increasePC();
     }
+
+    @Override
+    public boolean continuesAtNextLine() {
+        return true;
+    }
 }
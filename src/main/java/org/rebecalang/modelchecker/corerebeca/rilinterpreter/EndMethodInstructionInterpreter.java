@@ -10,7 +10,7 @@ public class EndMethodInstructionInterpreter extends InstructionInterpreter {
     @Override
     public void interpret(InstructionBean ib, BaseActorState baseActorState, State globalState) {
         Object retreivedReturnVariableValue = baseActorState.retrieveVariableValue(AbstractExpressionTranslator.RETURN_VALUE);
-        baseActorState.popFromActorScope();
+        baseActorState.returnFromMethod();
         baseActorState.setVariableValue(AbstractExpressionTranslator.RETURN_VALUE, retreivedReturnVariableValue);
     }
 
@@ -9,7 +9,7 @@ public class EndMsgSrvInstructionInterpreter extends InstructionInterpreter {
     @Override
     public void interpret(InstructionBean ib, BaseActorState baseActorState, State globalState) {
         baseActorState.popFromActorScope();
-//		actorState.clearPC();
+        baseActorState.clearPC();
     }
 
     @Override
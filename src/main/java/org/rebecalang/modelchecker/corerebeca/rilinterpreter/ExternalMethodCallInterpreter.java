@@ -15,4 +15,9 @@ public class ExternalMethodCallInterpreter extends InstructionInterpreter {
 
         baseActorState.increasePC();
     }
+
+    @Override
+    public boolean continuesAtNextLine() {
+        return true;
+    }
 }
@@ -1,11 +1,27 @@
 package org.rebecalang.modelchecker.corerebeca.rilinterpreter;
 
 import org.rebecalang.modelchecker.corerebeca.BaseActorState;
+import org.rebecalang.modelchecker.corerebeca.FrameLayouts;
 import org.rebecalang.modelchecker.corerebeca.State;
 import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.InstructionBean;
 
 public abstract class InstructionInterpreter {
 
 	public abstract void interpret (InstructionBean ib, BaseActorState baseActorState, State globalState);
-	
+
+	/*
+	 * Returns the interpreter which executes the given instruction of a resolved RIL program;
+	 * an interpreter may return one specialized for the instruction.
+	 */
+	public InstructionInterpreter compile(InstructionBean ib, FrameLayouts frameLayouts) {
+		return this;
+	}
+
+	/*
+	 * Whether the interpreter always continues with the next line of the method, so code
+	 * compiled for the method may fall through to it.
+	 */
+	public boolean continuesAtNextLine() {
+		return false;
+	}
 }
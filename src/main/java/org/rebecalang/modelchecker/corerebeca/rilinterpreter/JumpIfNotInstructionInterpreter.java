@@ -13,7 +13,7 @@ public class JumpIfNotInstructionInterpreter extends InstructionInterpreter {
     public void interpret(InstructionBean ib, BaseActorState baseActorState, State globalState) {
         JumpIfNotInstructionBean jiib = (JumpIfNotInstructionBean) ib;
         if (jiib.getCondition() == null) {
-            baseActorState.setPC(jiib.getMethodName(), jiib.getLineNumber());
+            baseActorState.setPC(baseActorState.getProgram().getMethodId(jiib.getMethodName()), jiib.getLineNumber());
             return;
         }
         Object tempCond = jiib.getCondition();
@@ -21,7 +21,7 @@ public class JumpIfNotInstructionInterpreter extends InstructionInterpreter {
             tempCond = (Boolean) baseActorState.retrieveVariableValue((Variable) jiib.getCondition());
         }
         if (tempCond == Boolean.FALSE) {
-            baseActorState.setPC(jiib.getMethodName(), jiib.getLineNumber());
+            baseActorState.setPC(baseActorState.getProgram().getMethodId(jiib.getMethodName()), jiib.getLineNumber());
         } else {
             baseActorState.increasePC();
         }
@@ -1,6 +1,9 @@
 package org.rebecalang.modelchecker.corerebeca.rilinterpreter;
 
+import org.rebecalang.modelchecker.corerebeca.ActorDescriptor;
 import org.rebecalang.modelchecker.corerebeca.BaseActorState;
+import org.rebecalang.modelchecker.corerebeca.RILProgram;
+import org.rebecalang.modelchecker.corerebeca.RebecaRuntimeInterpreterException;
 import org.rebecalang.modelchecker.corerebeca.State;
 import org.rebecalang.modelchecker.timedrebeca.TimedActorState;
 import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.InstructionBean;
@@ -18,7 +21,7 @@ public class MethodCallInstructionInterpreter extends InstructionInterpreter {
         MethodCallInstructionBean mcib = (MethodCallInstructionBean) ib;
         if (mcib.getMethodName().equals("delay$int")) handleDelayMethod(mcib, baseActorState);
         else {
-            BaseActorState receiverState = (BaseActorState) baseActorState.retrieveVariableValue(mcib.getBase());
+            ActorDescriptor receiver = (ActorDescriptor) baseActorState.retrieveVariableValue(mcib.getBase());
             List<Object> calculatedValuesOfParams = new LinkedList<Object>();
             for (int cnt = 0; cnt < mcib.getParameters().size(); cnt++) {
                 Object paramValue = mcib.getParameters().get(cnt);
@@ -27,13 +30,23 @@ public class MethodCallInstructionInterpreter extends InstructionInterpreter {
                 else
                     calculatedValuesOfParams.add(paramValue);
             }
-            baseActorState.pushInActorScope(baseActorState.getTypeName(), receiverState.getTypeName());
+            /*
+             * Records of methods are linked to the record of the class defining the method, so
+             * their variables can be resolved statically.
+             */
+            RILProgram program = baseActorState.getProgram();
+            int methodId = program.getMethodId(receiver.getClassId(), program.getSelectorId(mcib));
+            if (methodId < 0)
+                throw new RebecaRuntimeInterpreterException("Unknown method " + receiver.getTypeName() + "." +
+                        mcib.getMethodName().split("\\.")[1]);
+            baseActorState.pushInActorScope(baseActorState.getTypeName(), program.getClassName(methodId),
+                    program.getMethodLayout(methodId));
             for (int cnt = 0; cnt < mcib.getParameters().size(); cnt++) {
                 Object paramValue = calculatedValuesOfParams.get(cnt);
                 String paramName = mcib.getParametersNames().get(cnt);
                 baseActorState.addVariableToRecentScope(paramName, paramValue);
             }
-            baseActorState.initializePC(receiverState.getTypeName() + "." + mcib.getMethodName().split("\\.")[1], 0);
+            baseActorState.initializePC(methodId, 0);
         }
         return;
     }
@@ -11,5 +11,8 @@ public class NOPInstructionInterpreter extends InstructionInterpreter {
         baseActorState.increasePC();
     }
 
-
+    @Override
+    public boolean continuesAtNextLine() {
+        return true;
+    }
 }
@@ -16,4 +16,8 @@ public class PopARInstructionInterpreter extends InstructionInterpreter {
         baseActorState.increasePC();
     }
 
+    @Override
+    public boolean continuesAtNextLine() {
+        return true;
+    }
 }
@@ -1,31 +1,49 @@
 package org.rebecalang.modelchecker.corerebeca.rilinterpreter;
 
+import org.rebecalang.modelchecker.corerebeca.FingerprintUtilities;
+
 import java.io.Serializable;
 
+/*
+ * Location of the next instruction of an actor: the number of a method of the RIL program
+ * and a line in it. Program counters are immutable and interned by the program.
+ */
 @SuppressWarnings("serial")
 public class ProgramCounter implements Serializable {
-	private String methodName;
-	private int lineNumber;
-	
-	public ProgramCounter() {}
-	
-	public ProgramCounter(String methodName, int lineNumber) {
-		this.methodName = methodName;
+	private final int methodId;
+	private final int lineNumber;
+
+	public ProgramCounter(int methodId, int lineNumber) {
+		this.methodId = methodId;
 		this.lineNumber = lineNumber;
 	}
 
-	public String getMethodName() {
-		return methodName;
-	}
-	public void setMethodName(String methodName) {
-		this.methodName = methodName;
+	public int getMethodId() {
+		return methodId;
 	}
+
 	public int getLineNumber() {
 		return lineNumber;
 	}
-	public void setLineNumber(int lineNumber) {
-		this.lineNumber = lineNumber;
+
+	public long fingerprint() {
+		return FingerprintUtilities.combine(FingerprintUtilities.mix(methodId), lineNumber);
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(fingerprint());
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ProgramCounter other = (ProgramCounter) obj;
+		return methodId == other.methodId && lineNumber == other.lineNumber;
 	}
-	
-	
 }
@@ -8,7 +8,8 @@ public class PushARInstructionInterpreter extends InstructionInterpreter {
 
     @Override
     public void interpret(InstructionBean ib, BaseActorState baseActorState, State globalState) {
-        baseActorState.pushInActorScope(baseActorState.getTypeName());
+        baseActorState.pushInActorScope(baseActorState.getTypeName(),
+                baseActorState.getFrameLayouts().getBlockLayout(ib));
         baseActorState.increasePC();
     }
 
@@ -17,4 +18,8 @@ public class PushARInstructionInterpreter extends InstructionInterpreter {
         return "PUSH AR";
     }
 
+    @Override
+    public boolean continuesAtNextLine() {
+        return true;
+    }
 }
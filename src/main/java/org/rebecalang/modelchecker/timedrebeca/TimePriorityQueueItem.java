@@ -1,5 +1,8 @@
 package org.rebecalang.modelchecker.timedrebeca;
 
+import org.rebecalang.modelchecker.corerebeca.FingerprintUtilities;
+import org.rebecalang.modelchecker.corerebeca.MessageSpecification;
+
 public class TimePriorityQueueItem<T> implements Comparable<TimePriorityQueueItem> {
     private int time;
     private T item;
@@ -21,4 +24,31 @@ public class TimePriorityQueueItem<T> implements Comparable<TimePriorityQueueIte
     public int compareTo(TimePriorityQueueItem timePriorityQueueItem) {
         return -Integer.compare(timePriorityQueueItem.time, this.time);
     }
+
+    public long fingerprint() {
+        long itemFingerprint = item instanceof MessageSpecification ?
+                ((MessageSpecification) item).fingerprint() : FingerprintUtilities.fingerprintOfValue(item);
+        return FingerprintUtilities.combine(time, itemFingerprint);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(fingerprint());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        TimePriorityQueueItem<?> other = (TimePriorityQueueItem<?>) obj;
+        if (time != other.time)
+            return false;
+        if (item == null) {
+            return other.item == null;
+        } else return item.equals(other.item);
+    }
 }
@@ -1,17 +1,14 @@
 package org.rebecalang.modelchecker.timedrebeca;
 
-import org.rebecalang.compiler.modelcompiler.corerebeca.objectmodel.ReactiveClassDeclaration;
-import org.rebecalang.compiler.modelcompiler.corerebeca.objectmodel.Type;
-import org.rebecalang.compiler.utils.CodeCompilationException;
 import org.rebecalang.modelchecker.corerebeca.*;
+import org.rebecalang.modelchecker.corerebeca.bytecode.CompiledMethod;
 import org.rebecalang.modelchecker.corerebeca.policy.AbstractPolicy;
-import org.rebecalang.modelchecker.corerebeca.rilinterpreter.InstructionInterpreter;
-import org.rebecalang.modelchecker.corerebeca.rilinterpreter.InstructionUtilities;
 import org.rebecalang.modelchecker.corerebeca.rilinterpreter.ProgramCounter;
-import org.rebecalang.modeltransformer.ril.RILModel;
 import org.rebecalang.modeltransformer.ril.corerebeca.rilinstruction.InstructionBean;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.PriorityQueue;
 
 import static org.rebecalang.modelchecker.timedrebeca.TimedRebecaModelChecker.CURRENT_TIME;
@@ -20,6 +17,10 @@ import static org.rebecalang.modelchecker.timedrebeca.TimedRebecaModelChecker.RE
 @SuppressWarnings("serial")
 public class TimedActorState extends BaseActorState {
     private PriorityQueue<TimePriorityQueueItem<TimedMessageSpecification>> queue;
+    /*
+     * Order independent sum of the items' hashes, as the queue is compared as a multiset.
+     */
+    private long queueHash;
 
     public int getCurrentTime() {
         return (int) this.retrieveVariableValue(CURRENT_TIME);
@@ -45,15 +46,25 @@ public class TimedActorState extends BaseActorState {
         setQueue(new PriorityQueue<TimePriorityQueueItem<TimedMessageSpecification>>());
     }
 
+    public TimedActorState(TimedActorState timedActorState) {
+        super(timedActorState);
+        this.queue = new PriorityQueue<>(timedActorState.queue);
+        this.queueHash = timedActorState.queueHash;
+    }
+
+    @Override
+    public TimedActorState copy() {
+        return new TimedActorState(this);
+    }
+
+    @Override
+    protected long queueFingerprint() {
+        return queueHash;
+    }
+
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + ((actorScopeStack == null) ? 0 : actorScopeStack.hashCode());
-        result = prime * result + ((name == null) ? 0 : name.hashCode());
-        result = prime * result + ((queue == null) ? 0 : queue.hashCode());
-        result = prime * result + ((typeName == null) ? 0 : typeName.hashCode());
-        return result;
+        return Long.hashCode(fingerprint());
     }
 
     @Override
@@ -70,19 +81,29 @@ public class TimedActorState extends BaseActorState {
                 return false;
         } else if (!actorScopeStack.equals(other.actorScopeStack))
             return false;
-        if (name == null) {
-            if (other.name != null)
+        if (descriptor == null) {
+            if (other.descriptor != null)
                 return false;
-        } else if (!name.equals(other.name))
+        } else if (!descriptor.equals(other.descriptor))
+            return false;
+        if (pc == null) {
+            if (other.pc != null)
+                return false;
+        } else if (!pc.equals(other.pc))
             return false;
         if (queue == null) {
             if (other.queue != null)
                 return false;
-        } else if (!queue.equals(other.queue))
+        } else if (other.queue == null || !getSortedQueue().equals(other.getSortedQueue()))
             return false;
-        if (typeName == null) {
-            return other.typeName == null;
-        } else return typeName.equals(other.typeName);
+        return true;
+    }
+
+    private List<TimePriorityQueueItem<TimedMessageSpecification>> getSortedQueue() {
+        List<TimePriorityQueueItem<TimedMessageSpecification>> sortedQueue = new ArrayList<>(queue);
+        sortedQueue.sort(Comparator.comparingInt(TimePriorityQueueItem<TimedMessageSpecification>::getTime)
+                .thenComparingLong(TimePriorityQueueItem::fingerprint));
+        return sortedQueue;
     }
 
     public PriorityQueue<TimePriorityQueueItem<TimedMessageSpecification>> getQueue() {
@@ -91,12 +112,17 @@ public class TimedActorState extends BaseActorState {
 
     public void setQueue(PriorityQueue<TimePriorityQueueItem<TimedMessageSpecification>> queue) {
         this.queue = queue;
+        queueHash = 0;
+        for (TimePriorityQueueItem<TimedMessageSpecification> item : queue)
+            queueHash += item.fingerprint();
     }
 
     @Override
     public void addToQueue(MessageSpecification msgSpec) {
         TimedMessageSpecification timedMsgSpec = ((TimedMessageSpecification) msgSpec);
-        queue.add(new TimePriorityQueueItem(timedMsgSpec.minStartTime, timedMsgSpec));
+        TimePriorityQueueItem<TimedMessageSpecification> item = new TimePriorityQueueItem(timedMsgSpec.minStartTime, timedMsgSpec);
+        queue.add(item);
+        queueHash += item.fingerprint();
     }
 
     @Override
@@ -104,70 +130,30 @@ public class TimedActorState extends BaseActorState {
         return queue.isEmpty();
     }
 
-    public void resumeExecution(State state, RILModel transformedRILModel, AbstractPolicy policy) {
+    public void resumeExecution(State state, AbstractPolicy policy) {
+        RILProgram program = getProgram();
         do {
             ProgramCounter pc = getPC();
-
-            String methodName = pc.getMethodName();
-            Type currentType = null;
-            try {
-                currentType = typeSystem.getType(pc.getMethodName().split("\\.")[0]);
-            } catch (CodeCompilationException e) {
-                e.printStackTrace();
+            CompiledMethod compiledMethod = program.getCompiledMethod(pc.getMethodId());
+            if (compiledMethod != null) {
+                compiledMethod.execute(this, state, policy, pc.getLineNumber());
+            } else {
+                InstructionBean instruction = program.getInstruction(pc.getMethodId(), pc.getLineNumber());
+                policy.executedInstruction(instruction);
+                program.getInterpreter(pc.getMethodId(), pc.getLineNumber()).interpret(instruction, this, state);
             }
-
-            while (transformedRILModel.getInstructionList(methodName) == null) {
-                try {
-                    ReactiveClassDeclaration rcd = (ReactiveClassDeclaration)typeSystem.getMetaData(currentType);
-                    if (rcd.getExtends() == null)
-                        break;
-                    currentType = rcd.getExtends();
-                    methodName = currentType.getTypeName() + "." + pc.getMethodName().split("\\.")[1];
-                } catch (CodeCompilationException e) {
-                    e.printStackTrace();
-                }
-            }
-
-            int lineNumber = pc.getLineNumber();
-            InstructionBean instruction = transformedRILModel.getInstructionList(methodName).get(lineNumber);
-            InstructionInterpreter interpreter = StatementInterpreterContainer.getInstance().retrieveInterpreter(instruction);
-            policy.executedInstruction(instruction);
-            interpreter.interpret(instruction, this, state);
         } while (!policy.isBreakable());
     }
 
-    public void execute(State state, RILModel transformedRILModel, AbstractPolicy policy, TimedMessageSpecification executableMessage) {
+    public void execute(State state, AbstractPolicy policy, TimedMessageSpecification executableMessage) {
         policy.pick(executableMessage);
-//        String msgName = getTypeName() + "." + executableMessage.getMessageName().split("\\.")[1];
-//        if (!transformedRILModel.getMethodNames().contains(msgName)) {
-//            msgName = executableMessage.getMessageName();
-//        }
-
-        String msgName = executableMessage.getMessageName();
-        Type currentType = null;
-        try {
-            currentType = typeSystem.getType(executableMessage.getMessageName().split("\\.")[0]);
-        } catch (CodeCompilationException e) {
-            e.printStackTrace();
-        }
-
-        while (!transformedRILModel.getMethodNames().contains(msgName)) {
-            try {
-                ReactiveClassDeclaration rcd = (ReactiveClassDeclaration)typeSystem.getMetaData(currentType);
-                if (rcd.getExtends() == null)
-                    break;
-                currentType = rcd.getExtends();
-                msgName = currentType.getTypeName() + "." + executableMessage.getMessageName().split("\\.")[1];
-            } catch (CodeCompilationException e) {
-                e.printStackTrace();
-            }
-        }
-
-        String relatedRebecType = msgName.split("\\.")[0];
-        actorScopeStack.pushInScopeStack(getTypeName(), relatedRebecType);
-        addVariableToRecentScope("sender", executableMessage.getSenderActorState());
-        initializePC(msgName, 0);
-        resumeExecution(state, transformedRILModel, policy);
+        RILProgram program = getProgram();
+        int methodId = program.getMethodId(executableMessage);
+        actorScopeStack.pushInScopeStack(getTypeName(), program.getClassName(methodId),
+                program.getMethodLayout(methodId));
+        addVariableToRecentScope("sender", executableMessage.getSender());
+        initializePC(methodId, 0);
+        resumeExecution(state, policy);
     }
 
     @Override
@@ -176,7 +162,7 @@ public class TimedActorState extends BaseActorState {
     }
 
     public int firstTimeActorCanPeekNewMessage() {
-        if (this.variableIsDefined(InstructionUtilities.PC_STRING)) {
+        if (isBusy()) {
             throw new RuntimeException("This version supports coarse grained execution.");
         } else {
             if (!this.actorQueueIsEmpty()) {
@@ -191,7 +177,9 @@ public class TimedActorState extends BaseActorState {
     public ArrayList<TimedMessageSpecification> getEnabledMsgs(int enablingTime) throws ModelCheckingException {
         ArrayList<TimedMessageSpecification> enabledMsgs = new ArrayList<>();
         while (this.queue.peek() != null && this.queue.peek().getTime() <= enablingTime) {
-            TimedMessageSpecification curMsg = this.queue.poll().getItem();
+            TimePriorityQueueItem<TimedMessageSpecification> item = this.queue.poll();
+            queueHash -= item.fingerprint();
+            TimedMessageSpecification curMsg = item.getItem();
             if (curMsg.maxStartTime < getCurrentTime()) throw new ModelCheckingException("Deadlock");
             enabledMsgs.add(curMsg);
         }
@@ -1,6 +1,7 @@
 package org.rebecalang.modelchecker.timedrebeca;
 
-import org.rebecalang.modelchecker.corerebeca.BaseActorState;
+import org.rebecalang.modelchecker.corerebeca.ActorDescriptor;
+import org.rebecalang.modelchecker.corerebeca.FingerprintUtilities;
 import org.rebecalang.modelchecker.corerebeca.MessageSpecification;
 
 import java.util.ArrayList;
@@ -12,11 +13,45 @@ public class TimedMessageSpecification extends MessageSpecification {
     public TimedMessageSpecification(
             String messageName,
             ArrayList<Object> parameters,
-            BaseActorState baseActorState,
+            ActorDescriptor sender,
             int minStartTime,
             int maxStartTime) {
-        super(messageName, parameters, baseActorState);
+        super(messageName, parameters, sender);
         this.maxStartTime = maxStartTime;
         this.minStartTime = minStartTime;
     }
+
+    public TimedMessageSpecification(TimedMessageSpecification timedMessageSpecification) {
+        super(timedMessageSpecification);
+        this.minStartTime = timedMessageSpecification.minStartTime;
+        this.maxStartTime = timedMessageSpecification.maxStartTime;
+    }
+
+    @Override
+    public TimedMessageSpecification copy() {
+        return new TimedMessageSpecification(this);
+    }
+
+    @Override
+    public long fingerprint() {
+        long result = FingerprintUtilities.combine(super.fingerprint(), minStartTime);
+        return FingerprintUtilities.combine(result, maxStartTime);
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = super.hashCode();
+        result = prime * result + minStartTime;
+        result = prime * result + maxStartTime;
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!super.equals(obj))
+            return false;
+        TimedMessageSpecification other = (TimedMessageSpecification) obj;
+        return minStartTime == other.minStartTime && maxStartTime == other.maxStartTime;
+    }
 }
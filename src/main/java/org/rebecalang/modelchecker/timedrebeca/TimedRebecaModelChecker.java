@@ -6,16 +6,16 @@ import org.rebecalang.compiler.modelcompiler.timedrebeca.TimedRebecaTypeSystem;
 import org.rebecalang.compiler.utils.ExceptionContainer;
 import org.rebecalang.modelchecker.RebecaModelChecker;
 import org.rebecalang.modelchecker.corerebeca.*;
-import org.rebecalang.modelchecker.corerebeca.rilinterpreter.InstructionUtilities;
 import org.rebecalang.modelchecker.timedrebeca.rilinterpreter.CallTimedMsgSrvInstructionInterpreter;
-import org.rebecalang.modeltransformer.ril.RILModel;
 import org.rebecalang.modeltransformer.ril.Rebeca2RILModelTransformer;
 import org.rebecalang.modeltransformer.ril.timedrebeca.rilinstruction.CallTimedMsgSrvInstructionBean;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.PriorityQueue;
+import java.util.function.BiConsumer;
 
 @Component
 public class TimedRebecaModelChecker extends CoreRebecaModelChecker {
@@ -36,81 +36,197 @@ public class TimedRebecaModelChecker extends CoreRebecaModelChecker {
     protected void addRequiredScopeToScopeStack(BaseActorState baseActorState, ArrayList<ReactiveClassDeclaration> actorSeries) {
         addTimedScopeToScopeStack(baseActorState);
         for (ReactiveClassDeclaration actor : actorSeries) {
-            baseActorState.pushInActorScope(actor.getName());
+            baseActorState.pushInActorScope(actor.getName(),
+                    baseActorState.getFrameLayouts().getClassLayout(actor.getName()));
             addStateVarsToRelatedScope(baseActorState, actor);
         }
     }
 
     private void addTimedScopeToScopeStack(BaseActorState baseActorState) {
-        baseActorState.pushInActorScope("TimedRebec");
+        baseActorState.pushInActorScope("TimedRebec",
+                baseActorState.getFrameLayouts().getClassLayout("TimedRebec"));
         baseActorState.addVariableToRecentScope(CURRENT_TIME, 0);
         baseActorState.addVariableToRecentScope(RESUMING_TIME, 0);
-        baseActorState.addVariableToRecentScope("self", baseActorState);
+        baseActorState.addVariableToRecentScope("self", baseActorState.getDescriptor());
     }
 
-    private TimedState executeNewState(
+    /*
+     * Executes the transition of the actor and the alternatives of its nondeterministic
+     * choices, which are resumed from the states forked at their choice points, and passes
+     * the new states to the consumer.
+     */
+    private void executeNewStates(
+            TimedState parentState,
             TimedState currentState,
             TimedActorState actorState,
-            RILModel transformedRILModel,
-            int stateCounter,
             boolean resume,
-            TimedMessageSpecification msg) {
+            TimedMessageSpecification msg,
+            NewStatesConsumer newStatesConsumer) throws ModelCheckingException {
 
+        TransitionChoices transitionChoices = new TransitionChoices();
         TimedState newState = (TimedState) cloneState(currentState);
-        TimedActorState newActorState = (TimedActorState) newState.getActorState(actorState.getName());
+        do {
+            executeAlternative(parentState, newState, actorState, transitionChoices, resume, msg, newStatesConsumer);
+            resume = true;
+        } while ((newState = (TimedState) transitionChoices.resumeNextFork()) != null);
+    }
+
+    /*
+     * Executes one alternative of the transition of the actor on the given copy of the
+     * current state, which is the copy made for the transition or one of its forks.
+     */
+    private void executeAlternative(
+            TimedState parentState,
+            TimedState newState,
+            TimedActorState actorState,
+            TransitionChoices transitionChoices,
+            boolean resume,
+            TimedMessageSpecification msg,
+            NewStatesConsumer newStatesConsumer) throws ModelCheckingException {
+        newState.setTransitionChoices(transitionChoices);
+        TimedActorState newActorState = (TimedActorState) newState.getActorStateForUpdate(actorState.getDescriptor());
         if (resume)
-            newActorState.resumeExecution(newState, transformedRILModel, modelCheckingPolicy);
+            newActorState.resumeExecution(newState, modelCheckingPolicy);
         else
-            newActorState.execute(newState, transformedRILModel, modelCheckingPolicy, msg);
+            newActorState.execute(newState, modelCheckingPolicy, msg);
+        newState.setTransitionChoices(null);
         String transitionLabel = calculateTransitionLabel(actorState, newActorState, msg);
-        Long stateKey = (long) newState.hashCode();
-        if (!statespace.hasStateWithKey(stateKey)) {
-            newState.setId(stateCounter++);
-            statespace.addState(stateKey, newState);
+        TimedState storedState = storeNewState(parentState, newState, transitionLabel);
+        if (storedState != null)
+            newStatesConsumer.accept(transitionLabel, storedState);
+    }
+
+    private TimedState storeNewState(TimedState parentState, TimedState newState, String transitionLabel) {
+        State repeatedState = statespace.putIfAbsent(newState);
+        if (repeatedState == null) {
+            newState.setId(stateCounter.getAndIncrement());
             newState.clearLinks();
-            currentState.addChildState(transitionLabel, newState);
-            newState.addParentState(transitionLabel, currentState);
+            if (statespace.retainsStates()) {
+                parentState.addChildState(transitionLabel, newState);
+                newState.addParentState(transitionLabel, parentState);
+            }
+            return newState;
+        }
+        if (statespace.retainsStates()) {
+            parentState.addChildState(transitionLabel, repeatedState);
+            repeatedState.addParentState(transitionLabel, parentState);
+        }
+        return null;
+    }
+
+    /*
+     * Executes the transitions of an enabled actor of the current state, which is the
+     * stored state after its time step.
+     */
+    private void executeActorTransitions(
+            TimedState storedState,
+            TimedState currentState,
+            TimedActorState currentActorState,
+            int enablingTime,
+            NewStatesConsumer newStatesConsumer) throws ModelCheckingException {
+        if (currentActorState.isBusy()) {
+            executeNewStates(storedState, currentState, currentActorState, true, null, newStatesConsumer);
         } else {
-            State repeatedState = statespace.getState(stateKey);
-            currentState.addChildState(transitionLabel, repeatedState);
-            repeatedState.addParentState(transitionLabel, currentState);
+            TimedActorState polledActorState =
+                    (TimedActorState) currentState.getActorStateForUpdate(currentActorState.getDescriptor());
+            for (TimedMessageSpecification msg : polledActorState.getEnabledMsgs(enablingTime))
+                executeNewStates(storedState, currentState, currentActorState, false, msg, newStatesConsumer);
         }
-        return newState;
     }
 
+    @Override
+    protected void doFineGrainedModelChecking(RILProgram program) throws ModelCheckingException {
+        stateCounter.set(1);
+        if (searchStrategy.equals(DEPTH_FIRST_SEARCH)) {
+            doDepthFirstModelChecking(program);
+            return;
+        }
+        if (!searchStrategy.equals(BREADTH_FIRST_SEARCH))
+            throw new ModelCheckingException("Search strategy " + searchStrategy + " is not supported for timed models");
+        PriorityQueue<TimePriorityQueueItem<TimedState>> nextStatesQueue = new PriorityQueue<>();
+
+        TimedState initialState = (TimedState) statespace.getInitialState();
+        nextStatesQueue.add(new TimePriorityQueueItem(initialState.getEnablingTime(), initialState));
+
+        while (!nextStatesQueue.isEmpty()) {
+            TimePriorityQueueItem timePriorityQueueItem = nextStatesQueue.poll();
+            TimedState storedState = (TimedState) timePriorityQueueItem.getItem();
+            // time steps and message polling below must not alter the state kept in the state space
+            TimedState currentState = (TimedState) cloneState(storedState);
+            int enablingTime = currentState.getEnablingTime();
+            currentState.checkForTimeStep(enablingTime);
+            List<TimedActorState> enabledActors = currentState.getEnabledActors(enablingTime);
+
+            for (TimedActorState currentActorState : enabledActors)
+                executeActorTransitions(storedState, currentState, currentActorState, enablingTime,
+                        (transitionLabel, newState) -> nextStatesQueue.add(
+                                new TimePriorityQueueItem(newState.getEnablingTime(), newState)));
+        }
+        if (statespace.retainsStates())
+            RebecaModelChecker.printStateSpace(initialState);
+        else
+            RebecaModelChecker.printStateSpaceStatistics(statespace);
+    }
 
+    /*
+     * The enabled actors of a state are those of its copy after the time step, in which
+     * their transitions are executed: the resumed execution of a busy actor, or one for
+     * each of the enabled messages of the actor, and then those from the forks at their
+     * choice points. The messages of an actor are polled when its first transition is
+     * executed.
+     */
     @Override
-    protected void doFineGrainedModelChecking(RILModel transformedRILModel) throws ModelCheckingException {
-        int stateCounter = 1;
-            PriorityQueue<TimePriorityQueueItem<TimedState>> nextStatesQueue = new PriorityQueue<>();
-
-            TimedState initialState = (TimedState) statespace.getInitialState();
-            nextStatesQueue.add(new TimePriorityQueueItem(initialState.getEnablingTime(), initialState));
-
-            while (!nextStatesQueue.isEmpty()) {
-                TimePriorityQueueItem timePriorityQueueItem = nextStatesQueue.poll();
-                TimedState currentState = (TimedState) timePriorityQueueItem.getItem();
-                int enablingTime = currentState.getEnablingTime();
-                currentState.checkForTimeStep(enablingTime);
-                List<TimedActorState> enabledActors = currentState.getEnabledActors(enablingTime);
-
-                for (TimedActorState currentActorState : enabledActors) {
-                    do {
-                        if (currentActorState.variableIsDefined(InstructionUtilities.PC_STRING)) {
-                            TimedState newState = executeNewState(currentState, currentActorState, transformedRILModel,
-                                    stateCounter, true, null);
-                            nextStatesQueue.add(new TimePriorityQueueItem(newState.getEnablingTime(), newState));
-                        } else {
-                            for (TimedMessageSpecification msg : currentActorState.getEnabledMsgs(enablingTime)) {
-                                TimedState newState = executeNewState(currentState, currentActorState, transformedRILModel,
-                                        stateCounter, false, msg);
-                                nextStatesQueue.add(new TimePriorityQueueItem(newState.getEnablingTime(), newState));
-                            }
+    protected EnabledActorTransitions getEnabledActorTransitions(State state, RILProgram program)
+            throws ModelCheckingException {
+        TimedState storedState = (TimedState) state;
+        TimedState currentState = (TimedState) cloneState(storedState);
+        int enablingTime = currentState.getEnablingTime();
+        currentState.checkForTimeStep(enablingTime);
+        List<TimedActorState> enabledActors = currentState.getEnabledActors(enablingTime);
+        return new EnabledActorTransitions() {
+            private int nextActor;
+            private TimedActorState actorState;
+            private Iterator<TimedMessageSpecification> enabledMsgs;
+            private TimedMessageSpecification msg;
+            private boolean resume;
+            private TransitionChoices transitionChoices;
+            private TimedState nextState;
+
+            @Override
+            public boolean hasNextTransition() {
+                return nextState != null || (enabledMsgs != null && enabledMsgs.hasNext()) ||
+                        nextActor < enabledActors.size();
+            }
+
+            @Override
+            public void executeNextTransition(BiConsumer<String, State> newStatesConsumer) throws ModelCheckingException {
+                if (nextState == null) {
+                    if (enabledMsgs == null || !enabledMsgs.hasNext()) {
+                        actorState = enabledActors.get(nextActor++);
+                        enabledMsgs = null;
+                        if (!actorState.isBusy()) {
+                            TimedActorState polledActorState =
+                                    (TimedActorState) currentState.getActorStateForUpdate(actorState.getDescriptor());
+                            enabledMsgs = polledActorState.getEnabledMsgs(enablingTime).iterator();
+                            if (!enabledMsgs.hasNext())
+                                return;
                         }
-                    } while (StatementInterpreterContainer.getInstance().hasNondeterminism());
+                    }
+                    resume = enabledMsgs == null;
+                    msg = resume ? null : enabledMsgs.next();
+                    transitionChoices = new TransitionChoices();
+                    nextState = (TimedState) cloneState(currentState);
                 }
-        }
-        RebecaModelChecker.printStateSpace(initialState);
+                executeAlternative(storedState, nextState, actorState, transitionChoices, resume, msg,
+                        newStatesConsumer::accept);
+                resume = true;
+                nextState = (TimedState) transitionChoices.resumeNextFork();
+            }
+        };
+    }
+
+    private interface NewStatesConsumer {
+        void accept(String transitionLabel, TimedState newState) throws ModelCheckingException;
     }
 
     protected TimedState createFreshState() {
@@ -121,6 +237,11 @@ public class TimedRebecaModelChecker extends CoreRebecaModelChecker {
         return new TimedActorState();
     }
 
+    @Override
+    protected StateCodec createStateCodec() {
+        return new TimedStateCodec(this::createFreshState, this::createFreshActorState);
+    }
+
     protected void initializeStatementInterpreterContainer() {
         super.initializeStatementInterpreterContainer();
 
@@ -3,7 +3,6 @@ package org.rebecalang.modelchecker.timedrebeca;
 import org.rebecalang.modelchecker.corerebeca.BaseActorState;
 import org.rebecalang.modelchecker.corerebeca.ModelCheckingException;
 import org.rebecalang.modelchecker.corerebeca.State;
-import org.rebecalang.modelchecker.corerebeca.rilinterpreter.InstructionUtilities;
 
 import java.util.ArrayList;
 import java.util.LinkedList;
@@ -11,13 +10,26 @@ import java.util.List;
 
 @SuppressWarnings("serial")
 public class TimedState extends State {
+
+    public TimedState() {
+        super();
+    }
+
+    public TimedState(TimedState timedState) {
+        super(timedState);
+    }
+
+    @Override
+    public TimedState copy() {
+        return new TimedState(this);
+    }
+
     public void checkForTimeStep(int enablingTime) {
-        List<BaseActorState> allActorStates = getAllActorStates();
-        if (!allActorStates.isEmpty()) {
-            int currentTime = ((TimedActorState) allActorStates.get(0)).getCurrentTime();
+        if (getActorsCount() != 0) {
+            int currentTime = ((TimedActorState) getActorState(0)).getCurrentTime();
             if (enablingTime > currentTime) {
-                for (BaseActorState actorState : allActorStates) {
-                    ((TimedActorState) actorState).setCurrentTime(enablingTime);
+                for (int actorId = 0; actorId < getActorsCount(); actorId++) {
+                    ((TimedActorState) getActorStateForUpdate(actorId)).setCurrentTime(enablingTime);
                 }
             }
         }
@@ -26,7 +38,7 @@ public class TimedState extends State {
     public int getEnablingTime() throws ModelCheckingException {
         int minExecutionTime = Integer.MAX_VALUE;
         for (BaseActorState baseActorState : getAllActorStates()) {
-            if (baseActorState.variableIsDefined(InstructionUtilities.PC_STRING))
+            if (baseActorState.isBusy())
 			{
 				minExecutionTime = Math.min(minExecutionTime, ((TimedActorState) baseActorState).getResumingTime());
 			} else {
@@ -44,7 +56,7 @@ public class TimedState extends State {
     public List<TimedActorState> getEnabledActors(int enablingTime) {
         List<TimedActorState> enabledActors = new ArrayList<>();
         for (BaseActorState baseActorState : getAllActorStates()) {
-            if ((baseActorState.variableIsDefined(InstructionUtilities.PC_STRING))) {
+            if (baseActorState.isBusy()) {
                 if (((TimedActorState) baseActorState).getResumingTime() <= enablingTime) {
                     enabledActors.add(((TimedActorState) baseActorState));
                 }
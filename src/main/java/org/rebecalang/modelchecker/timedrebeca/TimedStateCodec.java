@@ -0,0 +1,52 @@
+package org.rebecalang.modelchecker.timedrebeca;
+
+import org.rebecalang.modelchecker.corerebeca.ActorDescriptor;
+import org.rebecalang.modelchecker.corerebeca.BaseActorState;
+import org.rebecalang.modelchecker.corerebeca.MessageSpecification;
+import org.rebecalang.modelchecker.corerebeca.StateCodec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/*
+ * Queues of timed actors are priority queues whose iteration order depends on their
+ * history, so messages are written in the order of their encoded bytes.
+ */
+public class TimedStateCodec extends StateCodec {
+
+	public TimedStateCodec(Supplier<? extends TimedState> stateFactory,
+			Supplier<? extends TimedActorState> actorStateFactory) {
+		super(stateFactory, actorStateFactory);
+	}
+
+	@Override
+	protected void encodeQueue(BaseActorState actorState, StateVectorOutput output) {
+		byte[][] messages = new byte[((TimedActorState) actorState).getQueue().size()][];
+		int index = 0;
+		for (TimePriorityQueueItem<TimedMessageSpecification> item : ((TimedActorState) actorState).getQueue()) {
+			StateVectorOutput messageOutput = output.createPartOutput(16);
+			encodeMessage(item.getItem(), messageOutput);
+			messages[index++] = messageOutput.toByteArray();
+		}
+		Arrays.sort(messages, Arrays::compareUnsigned);
+		output.writeInt(messages.length);
+		for (byte[] message : messages)
+			output.writeBytes(message);
+	}
+
+	@Override
+	protected void encodeMessage(MessageSpecification message, StateVectorOutput output) {
+		super.encodeMessage(message, output);
+		output.writeSignedInt(((TimedMessageSpecification) message).minStartTime);
+		output.writeSignedInt(((TimedMessageSpecification) message).maxStartTime);
+	}
+
+	@Override
+	protected MessageSpecification createMessage(String messageName, ArrayList<Object> parameters,
+			ActorDescriptor sender, StateVectorInput input) {
+		int minStartTime = input.readSignedInt();
+		int maxStartTime = input.readSignedInt();
+		return new TimedMessageSpecification(messageName, parameters, sender, minStartTime, maxStartTime);
+	}
+}
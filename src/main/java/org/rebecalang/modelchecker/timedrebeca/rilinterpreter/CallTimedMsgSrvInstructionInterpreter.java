@@ -1,7 +1,9 @@
 package org.rebecalang.modelchecker.timedrebeca.rilinterpreter;
 
+import org.rebecalang.modelchecker.corerebeca.ActorDescriptor;
 import org.rebecalang.modelchecker.corerebeca.BaseActorState;
 import org.rebecalang.modelchecker.corerebeca.MessageSpecification;
+import org.rebecalang.modelchecker.corerebeca.RILProgram;
 import org.rebecalang.modelchecker.corerebeca.State;
 import org.rebecalang.modelchecker.corerebeca.rilinterpreter.InstructionInterpreter;
 import org.rebecalang.modelchecker.timedrebeca.TimedActorState;
@@ -16,11 +18,19 @@ public class CallTimedMsgSrvInstructionInterpreter extends InstructionInterprete
     @Override
     public void interpret(InstructionBean ib, BaseActorState baseActorState, State globalState) {
         CallTimedMsgSrvInstructionBean ctmib = (CallTimedMsgSrvInstructionBean) ib;
-        TimedActorState receiverState = (TimedActorState) baseActorState.retrieveVariableValue(ctmib.getReceiver());
-        String msgSrvName = receiverState.getTypeName() + "." + ctmib.getMsgsrvName().split("\\.")[1];
-        MessageSpecification msgSpec = new TimedMessageSpecification(msgSrvName, new ArrayList<>(),
-                baseActorState, (int)ctmib.getAfter(), (int)ctmib.getDeadline());
+        ActorDescriptor receiver = (ActorDescriptor) baseActorState.retrieveVariableValue(ctmib.getReceiver());
+        TimedActorState receiverState = (TimedActorState) globalState.getActorStateForUpdate(receiver);
+        RILProgram program = baseActorState.getProgram();
+        int selectorId = program.getSelectorId(ctmib);
+        MessageSpecification msgSpec = new TimedMessageSpecification(program.getMessageName(receiver.getClassId(), selectorId),
+                new ArrayList<>(), baseActorState.getDescriptor(), (int)ctmib.getAfter(), (int)ctmib.getDeadline());
+        msgSpec.setMethodId(program.getMethodId(receiver.getClassId(), selectorId));
         receiverState.addToQueue(msgSpec);
         baseActorState.increasePC();
     }
+
+    @Override
+    public boolean continuesAtNextLine() {
+        return true;
+    }
 }
\ No newline at end of file
@@ -1,21 +1,47 @@
 package org.rebecalang.modelchecker;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.rebecalang.compiler.CompilerConfig;
 import org.rebecalang.compiler.utils.CompilerExtension;
 import org.rebecalang.compiler.utils.CoreVersion;
 import org.rebecalang.compiler.utils.ExceptionContainer;
+import org.rebecalang.compiler.utils.Pair;
+import org.rebecalang.modelchecker.corerebeca.ActivationRecord;
+import org.rebecalang.modelchecker.corerebeca.BaseActorState;
 import org.rebecalang.modelchecker.corerebeca.CoreRebecaModelChecker;
+import org.rebecalang.modelchecker.corerebeca.CounterexampleException;
+import org.rebecalang.modelchecker.corerebeca.FrameLayout;
+import org.rebecalang.modelchecker.corerebeca.HashCompactStateSpace;
 import org.rebecalang.modelchecker.corerebeca.ModelCheckingException;
+import org.rebecalang.modelchecker.corerebeca.State;
+import org.rebecalang.modelchecker.corerebeca.StateCodec;
+import org.rebecalang.modelchecker.corerebeca.StateSpace;
+import org.rebecalang.modelchecker.corerebeca.SwarmStateSpace;
 import org.rebecalang.modeltransformer.ModelTransformerConfig;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
 
 import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @ContextConfiguration(classes = {CompilerConfig.class, ModelCheckerConfig.class, ModelTransformerConfig.class}) 
 @SpringJUnitConfig
@@ -29,6 +55,25 @@ public class CoreRebecaModelCheckerTest {
 	@Autowired
 	public ExceptionContainer exceptionContainer;
 
+	@AfterEach
+	public void resetConfiguration() throws ModelCheckingException {
+		if (coreRebecaModelChecker.getStateSpace() != null)
+			coreRebecaModelChecker.getStateSpace().close();
+		coreRebecaModelChecker.configSearchStrategy(CoreRebecaModelChecker.BREADTH_FIRST_SEARCH);
+		coreRebecaModelChecker.configStateSpace(CoreRebecaModelChecker.EXACT_STATE_SPACE);
+		coreRebecaModelChecker.configStateSpaceDirectory(null);
+		coreRebecaModelChecker.configStateCompression(CoreRebecaModelChecker.NO_COMPRESSION);
+		coreRebecaModelChecker.configStateCopy(CoreRebecaModelChecker.COPY_ON_WRITE_STATE_COPY);
+		coreRebecaModelChecker.configExecutionBackend(CoreRebecaModelChecker.INTERPRETER_EXECUTION);
+		coreRebecaModelChecker.configExpectedStateSpaceSize(CoreRebecaModelChecker.DEFAULT_EXPECTED_STATE_SPACE_SIZE);
+		coreRebecaModelChecker.configTransitionGraph(false);
+		coreRebecaModelChecker.configBitstate(CoreRebecaModelChecker.DEFAULT_BITSTATE_SIZE,
+				CoreRebecaModelChecker.DEFAULT_BITSTATE_HASH_FUNCTIONS);
+		coreRebecaModelChecker.configWorkers(Runtime.getRuntime().availableProcessors());
+		coreRebecaModelChecker.configSwarm(CoreRebecaModelChecker.DEFAULT_SWARM_SEARCHES,
+				CoreRebecaModelChecker.DEFAULT_SWARM_BITSTATE_SIZE, 0);
+	}
+
 	@Test
 	public void GIVEN_CorrectCoreRebecaModelWithInitialMethod_WHEN_CoreIs2_0_THEN_1Error() throws ModelCheckingException {
 		File model = new File(MODEL_FILES_BASE + "DiningPhilosophers.rebeca");
@@ -44,4 +89,605 @@ public class CoreRebecaModelCheckerTest {
 		
 		RebecaModelChecker.printStateSpace(coreRebecaModelChecker.getStateSpace().getInitialState());
 	}
+
+	@Test
+	public void GIVEN_DiningPhilosophersModel_WHEN_StateSpaceIsUndersized_THEN_105States() throws ModelCheckingException {
+		coreRebecaModelChecker.configExpectedStateSpaceSize(1);
+		StateSpace stateSpace = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+
+		Assertions.assertEquals(105, stateSpace.size());
+	}
+
+	@Test
+	public void GIVEN_DiningPhilosophersModel_WHEN_TransitionGraphIsNotRequested_THEN_105StatesAreNotRetained() throws ModelCheckingException {
+		StateSpace stateSpace = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+
+		Assertions.assertEquals(105, stateSpace.size());
+		Assertions.assertFalse(stateSpace.retainsStates());
+		Assertions.assertTrue(stateSpace.getInitialState().getChildStates().isEmpty());
+	}
+
+	@Test
+	public void GIVEN_DiningPhilosophersModel_WHEN_TransitionGraphIsRequested_THEN_105StatesAreLinked() throws ModelCheckingException {
+		coreRebecaModelChecker.configTransitionGraph(true);
+		StateSpace stateSpace = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+
+		Assertions.assertTrue(stateSpace.retainsStates());
+		Assertions.assertEquals(105, states(stateSpace.getInitialState()).size());
+	}
+
+	@Test
+	public void GIVEN_DiningPhilosophersModel_WHEN_FineGrainedPolicyIsUsed_THEN_CoarseGrainedStatesAreReached() throws ModelCheckingException {
+		StateSpace stateSpace = assertFineGrainedStatesIncludeCoarseGrainedStates("DiningPhilosophers.rebeca");
+
+		Assertions.assertTrue(transitionsCount(stateSpace.getInitialState()) >= stateSpace.size() - 1);
+	}
+
+	@Test
+	public void GIVEN_NondeterministicModel_WHEN_CoarseGrainedPolicyIsUsed_THEN_EveryStepTakesEachAlternative() throws ModelCheckingException {
+		coreRebecaModelChecker.configTransitionGraph(true);
+		StateSpace stateSpace = modelCheck("NondeterministicCounters.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+
+		int steps = 0;
+		for (State state : states(stateSpace.getInitialState()))
+			for (String actorName : List.of("counter0", "counter1")) {
+				Set<Object> values = new HashSet<>();
+				for (Pair<String, State> child : state.getChildStates())
+					if (child.getFirst().startsWith(actorName + "."))
+						values.add(child.getSecond().getActorState(actorName).retrieveVariableValue("x"));
+				if (values.isEmpty())
+					continue;
+				steps++;
+				Assertions.assertEquals(Set.of(0, 1, 2), values);
+			}
+		Assertions.assertTrue(steps > 0);
+	}
+
+	@Test
+	public void GIVEN_NondeterministicModel_WHEN_FineGrainedPolicyIsUsed_THEN_CoarseGrainedStatesAreReached() throws ModelCheckingException {
+		StateSpace stateSpace = assertFineGrainedStatesIncludeCoarseGrainedStates("NondeterministicCounters.rebeca");
+
+		Set<Object> values = new HashSet<>();
+		for (State state : states(stateSpace.getInitialState()))
+			values.add(state.getActorState("counter0").retrieveVariableValue("x"));
+		Assertions.assertEquals(Set.of(0, 1, 2), values);
+	}
+
+	/*
+	 * Fine grained transitions stop between the statements of a message server, so they
+	 * reach the states of coarse grained ones and the states in between.
+	 */
+	private StateSpace assertFineGrainedStatesIncludeCoarseGrainedStates(String modelFile) throws ModelCheckingException {
+		coreRebecaModelChecker.configTransitionGraph(true);
+		Set<Long> coarseGrainedFingerprints = fingerprints(
+				modelCheck(modelFile, CoreRebecaModelChecker.COARSE_GRAINED_POLICY).getInitialState());
+
+		StateSpace stateSpace = modelCheck(modelFile, CoreRebecaModelChecker.FINE_GRAINED_POLICY);
+
+		Set<Long> fineGrainedFingerprints = fingerprints(stateSpace.getInitialState());
+		Assertions.assertTrue(fineGrainedFingerprints.containsAll(coarseGrainedFingerprints));
+		Assertions.assertTrue(fineGrainedFingerprints.size() > coarseGrainedFingerprints.size());
+		return stateSpace;
+	}
+
+	@Test
+	public void GIVEN_DiningPhilosophersModel_WHEN_FineGrainedStatesAreFingerprinted_THEN_IncrementalFingerprintsAreRecomputed() throws ModelCheckingException {
+		coreRebecaModelChecker.configTransitionGraph(true);
+		StateSpace stateSpace = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.FINE_GRAINED_POLICY);
+
+		StateCodec stateCodec = stateSpace.getStateCodec();
+		for (State state : states(stateSpace.getInitialState())) {
+			State recomputedState = stateCodec.decode(stateCodec.encode(state));
+			Assertions.assertEquals(recomputedState.fingerprint(), state.fingerprint());
+			Assertions.assertEquals(recomputedState.secondFingerprint(), state.secondFingerprint());
+		}
+	}
+
+	@Test
+	public void GIVEN_DiningPhilosophersModel_WHEN_VariablesAreResolvedAtLoadTime_THEN_ClassRecordsHoldTheirSlots() throws ModelCheckingException {
+		coreRebecaModelChecker.configTransitionGraph(true);
+		StateSpace stateSpace = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+
+		for (State state : states(stateSpace.getInitialState()))
+			for (BaseActorState baseActorState : state.getAllActorStates()) {
+				FrameLayout classLayout = baseActorState.getFrameLayouts().getClassLayout(baseActorState.getTypeName());
+				List<ActivationRecord> classRecords = new ArrayList<>();
+				for (ActivationRecord record : baseActorState.getActorScopeStack().getActivationRecords())
+					if (record.getLayout() == classLayout)
+						classRecords.add(record);
+				Assertions.assertEquals(1, classRecords.size());
+				for (int slot = 0; slot < classLayout.size(); slot++)
+					Assertions.assertEquals(baseActorState.retrieveVariableValue(classLayout.getName(slot)),
+							classRecords.get(0).getValue(slot));
+			}
+	}
+
+	@Test
+	public void GIVEN_DiningPhilosophersModel_WHEN_StateVariablesAreDeclaredBoolean_THEN_TheirSlotsHaveBooleanKind() throws ModelCheckingException {
+		StateSpace stateSpace = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+
+		int declaredSlots = 0;
+		for (BaseActorState baseActorState : stateSpace.getInitialState().getAllActorStates())
+			for (ActivationRecord record : baseActorState.getActorScopeStack().getActivationRecords())
+				for (String name : List.of("eating", "fL", "fR", "lAssign", "rAssign", "leftReq", "rightReq")) {
+					int slot = record.getLayout().getSlot(name);
+					if (slot < 0)
+						continue;
+					declaredSlots++;
+					Assertions.assertEquals(ActivationRecord.BOOLEAN, record.getLayout().getDeclaredKind(slot));
+					Assertions.assertEquals(ActivationRecord.BOOLEAN, record.getKind(slot));
+				}
+		Assertions.assertEquals(2 * 3 + 2 * 4, declaredSlots);
+	}
+
+	@Test
+	public void GIVEN_DiningPhilosophersModel_WHEN_CollapseCompressionIsUsed_THEN_105States() throws ModelCheckingException {
+		coreRebecaModelChecker.configStateCompression(CoreRebecaModelChecker.COLLAPSE_COMPRESSION);
+		StateSpace stateSpace = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+
+		Assertions.assertEquals(105, stateSpace.size());
+		StateCodec stateCodec = stateSpace.getStateCodec();
+		State initialState = stateSpace.getInitialState();
+		int componentsCount = stateCodec.getComponentsCount();
+		Assertions.assertTrue(componentsCount > 0);
+		Assertions.assertTrue(stateSpace.hasState(initialState));
+		Assertions.assertArrayEquals(stateCodec.encode(initialState), stateCodec.encodeIfKnown(initialState));
+		Assertions.assertEquals(componentsCount, stateCodec.getComponentsCount());
+	}
+
+	@Test
+	public void GIVEN_DiningPhilosophersModel_WHEN_BitstateStateSpaceIsUsed_THEN_105States() throws ModelCheckingException {
+		coreRebecaModelChecker.configStateSpace(CoreRebecaModelChecker.BITSTATE_STATE_SPACE);
+		StateSpace stateSpace = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+
+		Assertions.assertEquals(105, stateSpace.size());
+		Assertions.assertTrue(stateSpace.getOmissionProbability() < 1e-9);
+	}
+
+	@Test
+	public void GIVEN_DiningPhilosophersModel_WHEN_BitstateTableIsUndersized_THEN_CoverageIsBelowOne() throws ModelCheckingException {
+		coreRebecaModelChecker.configStateSpace(CoreRebecaModelChecker.BITSTATE_STATE_SPACE);
+		coreRebecaModelChecker.configBitstate(10, CoreRebecaModelChecker.DEFAULT_BITSTATE_HASH_FUNCTIONS);
+		StateSpace stateSpace = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+
+		Assertions.assertTrue(stateSpace.size() <= 105);
+		Assertions.assertTrue(stateSpace.getExpectedCoverage() < 1);
+		Assertions.assertTrue(stateSpace.getOmissionProbability() > 0);
+	}
+
+	@Test
+	public void GIVEN_DiningPhilosophersModel_WHEN_HashCompactStateSpaceIsUsed_THEN_105FingerprintsAreStored() throws ModelCheckingException {
+		coreRebecaModelChecker.configStateSpace(CoreRebecaModelChecker.HASH_COMPACT_STATE_SPACE);
+		coreRebecaModelChecker.configStateCompression(CoreRebecaModelChecker.COLLAPSE_COMPRESSION);
+		coreRebecaModelChecker.configExpectedStateSpaceSize(1);
+		StateSpace stateSpace = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+
+		Assertions.assertEquals(105, stateSpace.size());
+		Assertions.assertEquals(HashCompactStateSpace.collisionProbability(105, Long.SIZE),
+				stateSpace.getOmissionProbability(), 0);
+		long fingerprintSlots = stateSpace.getStoredBytes() / Long.BYTES;
+		Assertions.assertEquals(1, Long.bitCount(fingerprintSlots));
+		Assertions.assertTrue(2 * 105 <= fingerprintSlots && fingerprintSlots < 4 * 105);
+		Assertions.assertTrue(stateSpace.hasState(stateSpace.getInitialState()));
+		Assertions.assertFalse(stateSpace.retainsStates());
+		Assertions.assertTrue(stateSpace.getInitialState().getChildStates().isEmpty());
+		Assertions.assertEquals(0, stateSpace.getStateCodec().getComponentsCount());
+	}
+
+	@Test
+	public void GIVEN_StatesAndFingerprintBits_WHEN_CollisionProbabilityIsComputed_THEN_BirthdayBound() {
+		Assertions.assertEquals(0.5, HashCompactStateSpace.collisionProbability(1L << 20, 40), 0);
+		Assertions.assertEquals(0x1p-25, HashCompactStateSpace.collisionProbability(1L << 20, 64), 0);
+		Assertions.assertEquals(1.0, HashCompactStateSpace.collisionProbability(1L << 32, 40), 0);
+		Assertions.assertEquals(0.0, HashCompactStateSpace.collisionProbability(0, 64), 0);
+	}
+
+	@Test
+	public void GIVEN_DiningPhilosophersModel_WHEN_TieredStateSpaceIsUsed_THEN_105StatesAreSpilledToFiles() throws ModelCheckingException, IOException {
+		File stateSpaceDirectory = Files.createTempDirectory("tiered").toFile();
+		coreRebecaModelChecker.configStateSpace(CoreRebecaModelChecker.TIERED_STATE_SPACE);
+		coreRebecaModelChecker.configStateSpaceDirectory(stateSpaceDirectory);
+		coreRebecaModelChecker.configExpectedStateSpaceSize(1);
+		StateSpace stateSpace = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+
+		Assertions.assertEquals(105, stateSpace.size());
+		List<String> spillFiles = fileNames(stateSpaceDirectory);
+		Assertions.assertTrue(spillFiles.contains("arena-0"));
+		Assertions.assertTrue(spillFiles.stream().anyMatch(name -> name.startsWith("index-")));
+		stateSpace.close();
+		Assertions.assertTrue(fileNames(stateSpaceDirectory).isEmpty());
+		Assertions.assertTrue(stateSpaceDirectory.delete());
+	}
+
+	@Test
+	public void GIVEN_DiningPhilosophersModel_WHEN_ExternalMemorySearchIsUsed_THEN_105StatesAreKeptInLayerFiles() throws ModelCheckingException, IOException {
+		File stateSpaceDirectory = Files.createTempDirectory("external").toFile();
+		coreRebecaModelChecker.configSearchStrategy(CoreRebecaModelChecker.EXTERNAL_BREADTH_FIRST_SEARCH);
+		coreRebecaModelChecker.configStateSpaceDirectory(stateSpaceDirectory);
+		StateSpace stateSpace = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+
+		Assertions.assertEquals(105, stateSpace.size());
+		List<String> layerFiles = fileNames(stateSpaceDirectory);
+		Assertions.assertTrue(layerFiles.stream().anyMatch(name -> name.startsWith("layer-")));
+		Assertions.assertTrue(layerFiles.stream().anyMatch(name -> name.startsWith("visited-")));
+		Assertions.assertTrue(stateSpace.getStoredBytes() > 0);
+		stateSpace.close();
+		Assertions.assertTrue(fileNames(stateSpaceDirectory).isEmpty());
+		Assertions.assertTrue(stateSpaceDirectory.delete());
+	}
+
+	@Test
+	public void GIVEN_DiningPhilosophersModel_WHEN_StatesAreExpanded_THEN_UnchangedActorStatesAreShared() throws ModelCheckingException {
+		coreRebecaModelChecker.configTransitionGraph(true);
+		StateSpace stateSpace = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+
+		Assertions.assertEquals(105, stateSpace.size());
+		State initialState = stateSpace.getInitialState();
+		Assertions.assertFalse(initialState.getChildStates().isEmpty());
+		for (Pair<String, State> child : initialState.getChildStates()) {
+			int sharedActorStates = 0;
+			for (BaseActorState baseActorState : initialState.getAllActorStates())
+				if (child.getSecond().getActorState(baseActorState.getName()) == baseActorState)
+					sharedActorStates++;
+			Assertions.assertTrue(sharedActorStates > 0);
+		}
+	}
+
+	@Test
+	public void GIVEN_DiningPhilosophersModel_WHEN_StatesAreDeepCopied_THEN_105States() throws ModelCheckingException {
+		coreRebecaModelChecker.configTransitionGraph(true);
+		coreRebecaModelChecker.configStateCopy(CoreRebecaModelChecker.DEEP_STATE_COPY);
+		StateSpace stateSpace = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+
+		Assertions.assertEquals(105, stateSpace.size());
+		State initialState = stateSpace.getInitialState();
+		State childState = initialState.getChildStates().get(0).getSecond();
+		for (BaseActorState baseActorState : childState.getAllActorStates()) {
+			Assertions.assertNotSame(initialState.getActorState(baseActorState.getDescriptor()), baseActorState);
+			Assertions.assertSame(baseActorState.getDescriptor(), baseActorState.retrieveVariableValue("self"));
+		}
+	}
+
+	@Test
+	public void GIVEN_DiningPhilosophersModel_WHEN_BytecodeBackendIsUsed_THEN_InterpretersStateSpace() throws ModelCheckingException {
+		File model = new File(MODEL_FILES_BASE + "DiningPhilosophers.rebeca");
+		Set<CompilerExtension> extension = new HashSet<>();
+		coreRebecaModelChecker.configPolicy(CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+		coreRebecaModelChecker.configTransitionGraph(true);
+		coreRebecaModelChecker.modelCheck(model, extension, CoreVersion.CORE_2_3);
+		List<String> interpretedTransitions = transitions(coreRebecaModelChecker.getStateSpace().getInitialState());
+
+		coreRebecaModelChecker.configExecutionBackend(CoreRebecaModelChecker.BYTECODE_EXECUTION);
+		coreRebecaModelChecker.modelCheck(model, extension, CoreVersion.CORE_2_3);
+
+		Assertions.assertTrue(exceptionContainer.exceptionsIsEmpty());
+		Assertions.assertEquals(105, coreRebecaModelChecker.getStateSpace().size());
+		Assertions.assertEquals(interpretedTransitions, transitions(coreRebecaModelChecker.getStateSpace().getInitialState()));
+	}
+
+	@Test
+	public void GIVEN_DiningPhilosophersModel_WHEN_BytecodeBackendIsUsedWithFineGrainedPolicy_THEN_InterpretersStateSpace() throws ModelCheckingException {
+		assertBytecodeBackendMatchesInterpreter("DiningPhilosophers.rebeca", CoreRebecaModelChecker.FINE_GRAINED_POLICY);
+	}
+
+	@Test
+	public void GIVEN_NondeterministicModel_WHEN_BytecodeBackendIsUsed_THEN_InterpretersStateSpace() throws ModelCheckingException {
+		assertBytecodeBackendMatchesInterpreter("NondeterministicCounters.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+		assertBytecodeBackendMatchesInterpreter("NondeterministicCounters.rebeca", CoreRebecaModelChecker.FINE_GRAINED_POLICY);
+	}
+
+	private void assertBytecodeBackendMatchesInterpreter(String modelFile, String policy) throws ModelCheckingException {
+		coreRebecaModelChecker.configTransitionGraph(true);
+		coreRebecaModelChecker.configExecutionBackend(CoreRebecaModelChecker.INTERPRETER_EXECUTION);
+		StateSpace interpretedStateSpace = modelCheck(modelFile, policy);
+		int interpretedStates = interpretedStateSpace.size();
+		List<String> interpretedTransitions = transitions(interpretedStateSpace.getInitialState());
+
+		coreRebecaModelChecker.configExecutionBackend(CoreRebecaModelChecker.BYTECODE_EXECUTION);
+		StateSpace stateSpace = modelCheck(modelFile, policy);
+
+		Assertions.assertEquals(interpretedStates, stateSpace.size());
+		Assertions.assertEquals(interpretedTransitions, transitions(stateSpace.getInitialState()));
+	}
+
+	@Test
+	public void GIVEN_DiningPhilosophersModel_WHEN_ParallelSearchIsUsed_THEN_SequentialStateSpace() throws ModelCheckingException {
+		coreRebecaModelChecker.configTransitionGraph(true);
+		StateSpace sequentialStateSpace = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+		int sequentialStates = sequentialStateSpace.size();
+		List<String> sequentialTransitions = transitions(sequentialStateSpace.getInitialState());
+
+		coreRebecaModelChecker.configSearchStrategy(CoreRebecaModelChecker.PARALLEL_BREADTH_FIRST_SEARCH);
+		coreRebecaModelChecker.configWorkers(4);
+		StateSpace stateSpace = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+
+		Assertions.assertEquals(sequentialStates, stateSpace.size());
+		Assertions.assertEquals(sequentialTransitions, transitions(stateSpace.getInitialState()));
+	}
+
+	@Test
+	public void GIVEN_DiningPhilosophersModel_WHEN_ParallelSearchStateSpaceIsUndersized_THEN_SequentialStatesCount() throws ModelCheckingException {
+		int sequentialStates = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.FINE_GRAINED_POLICY).size();
+
+		coreRebecaModelChecker.configSearchStrategy(CoreRebecaModelChecker.PARALLEL_BREADTH_FIRST_SEARCH);
+		coreRebecaModelChecker.configWorkers(4);
+		coreRebecaModelChecker.configExpectedStateSpaceSize(1);
+		StateSpace stateSpace = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.FINE_GRAINED_POLICY);
+
+		Assertions.assertEquals(sequentialStates, stateSpace.size());
+		Assertions.assertFalse(stateSpace.retainsStates());
+		Assertions.assertTrue(stateSpace.getStoredBytes() > 0);
+		Assertions.assertEquals(0, stateSpace.getOmissionProbability());
+	}
+
+	@Test
+	public void GIVEN_DiningPhilosophersModel_WHEN_ParallelSearchCompactsStates_THEN_SequentialStatesCount() throws ModelCheckingException {
+		int sequentialStates = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.FINE_GRAINED_POLICY).size();
+
+		coreRebecaModelChecker.configSearchStrategy(CoreRebecaModelChecker.PARALLEL_BREADTH_FIRST_SEARCH);
+		coreRebecaModelChecker.configStateSpace(CoreRebecaModelChecker.HASH_COMPACT_STATE_SPACE);
+		coreRebecaModelChecker.configWorkers(4);
+		coreRebecaModelChecker.configExpectedStateSpaceSize(1);
+		StateSpace stateSpace = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.FINE_GRAINED_POLICY);
+
+		Assertions.assertEquals(sequentialStates, stateSpace.size());
+		Assertions.assertEquals(HashCompactStateSpace.collisionProbability(sequentialStates, Long.SIZE),
+				stateSpace.getOmissionProbability());
+	}
+
+	@Test
+	public void GIVEN_DiningPhilosophersModel_WHEN_DepthFirstSearchIsUsed_THEN_BreadthFirstStateSpace() throws ModelCheckingException {
+		coreRebecaModelChecker.configTransitionGraph(true);
+		List<String> breadthFirstTransitions = transitions(modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY).getInitialState());
+
+		coreRebecaModelChecker.configSearchStrategy(CoreRebecaModelChecker.DEPTH_FIRST_SEARCH);
+		StateSpace stateSpace = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+
+		Assertions.assertEquals(105, stateSpace.size());
+		Assertions.assertTrue(coreRebecaModelChecker.getMaximumSearchDepth() > 0);
+		Assertions.assertEquals(breadthFirstTransitions, transitions(stateSpace.getInitialState()));
+	}
+
+	@Test
+	public void GIVEN_NondeterministicModel_WHEN_DepthFirstSearchIsUsed_THEN_EveryAlternativeIsSearched() throws ModelCheckingException {
+		coreRebecaModelChecker.configTransitionGraph(true);
+		StateSpace breadthFirstStateSpace = modelCheck("NondeterministicCounters.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+		int breadthFirstStates = breadthFirstStateSpace.size();
+		List<String> breadthFirstTransitions = transitions(breadthFirstStateSpace.getInitialState());
+
+		coreRebecaModelChecker.configSearchStrategy(CoreRebecaModelChecker.DEPTH_FIRST_SEARCH);
+		StateSpace stateSpace = modelCheck("NondeterministicCounters.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+
+		Assertions.assertEquals(breadthFirstStates, stateSpace.size());
+		Assertions.assertEquals(breadthFirstTransitions, transitions(stateSpace.getInitialState()));
+	}
+
+	@Test
+	public void GIVEN_DeadlockingModel_WHEN_DepthFirstSearchIsUsed_THEN_TraceLeadsToTheDeadlock() throws ModelCheckingException {
+		File model = new File(MODEL_FILES_BASE + "BoundedCounters.rebeca");
+		Set<CompilerExtension> extension = new HashSet<>();
+		coreRebecaModelChecker.configPolicy(CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+		coreRebecaModelChecker.configTransitionGraph(true);
+		Assertions.assertThrows(ModelCheckingException.class,
+				() -> coreRebecaModelChecker.modelCheck(model, extension, CoreVersion.CORE_2_3));
+		State initialState = coreRebecaModelChecker.getStateSpace().getInitialState();
+
+		coreRebecaModelChecker.configSearchStrategy(CoreRebecaModelChecker.DEPTH_FIRST_SEARCH);
+		CounterexampleException counterexample = Assertions.assertThrows(CounterexampleException.class,
+				() -> coreRebecaModelChecker.modelCheck(model, extension, CoreVersion.CORE_2_3));
+
+		Assertions.assertTrue(counterexample.getMessage().startsWith("Deadlock"));
+		Assertions.assertEquals(6, counterexample.getTrace().size());
+		Assertions.assertEquals(7, coreRebecaModelChecker.getStateSpace().size());
+		Assertions.assertTrue(replay(initialState, counterexample.getTrace()).getChildStates().isEmpty());
+	}
+
+	@Test
+	public void GIVEN_DiningPhilosophersModel_WHEN_InPlaceDepthFirstSearchIsUsed_THEN_BreadthFirstStateSpace() throws ModelCheckingException {
+		coreRebecaModelChecker.configTransitionGraph(true);
+		List<String> breadthFirstTransitions = transitions(modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY).getInitialState());
+
+		coreRebecaModelChecker.configSearchStrategy(CoreRebecaModelChecker.IN_PLACE_DEPTH_FIRST_SEARCH);
+		StateSpace stateSpace = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+
+		Assertions.assertEquals(105, stateSpace.size());
+		Assertions.assertEquals(breadthFirstTransitions, transitions(stateSpace.getInitialState()));
+	}
+
+	@Test
+	public void GIVEN_NondeterministicModel_WHEN_InPlaceDepthFirstSearchIsUsedWithFineGrainedPolicy_THEN_BreadthFirstStateSpace() throws ModelCheckingException {
+		coreRebecaModelChecker.configTransitionGraph(true);
+		StateSpace breadthFirstStateSpace = modelCheck("NondeterministicCounters.rebeca", CoreRebecaModelChecker.FINE_GRAINED_POLICY);
+		int breadthFirstStates = breadthFirstStateSpace.size();
+		List<String> breadthFirstTransitions = transitions(breadthFirstStateSpace.getInitialState());
+
+		coreRebecaModelChecker.configSearchStrategy(CoreRebecaModelChecker.IN_PLACE_DEPTH_FIRST_SEARCH);
+		StateSpace stateSpace = modelCheck("NondeterministicCounters.rebeca", CoreRebecaModelChecker.FINE_GRAINED_POLICY);
+
+		Assertions.assertEquals(breadthFirstStates, stateSpace.size());
+		Assertions.assertEquals(breadthFirstTransitions, transitions(stateSpace.getInitialState()));
+	}
+
+	@Test
+	public void GIVEN_DiningPhilosophersModel_WHEN_SwarmSearchIsUsed_THEN_EverySearchVisitsTheDistinctStates() throws ModelCheckingException {
+		int breadthFirstStates = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY).size();
+
+		coreRebecaModelChecker.configSearchStrategy(CoreRebecaModelChecker.SWARM_SEARCH);
+		coreRebecaModelChecker.configSwarm(4, CoreRebecaModelChecker.DEFAULT_SWARM_BITSTATE_SIZE, 0);
+		SwarmStateSpace stateSpace = (SwarmStateSpace) modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+
+		Assertions.assertEquals(breadthFirstStates, stateSpace.size());
+		Assertions.assertEquals(4L * stateSpace.getStatesCount(), stateSpace.getVisitsCount());
+	}
+
+	@Test
+	public void GIVEN_DeadlockingModel_WHEN_SwarmSearchIsUsed_THEN_TraceLeadsToTheDeadlock() throws ModelCheckingException {
+		File model = new File(MODEL_FILES_BASE + "BoundedCounters.rebeca");
+		Set<CompilerExtension> extension = new HashSet<>();
+		coreRebecaModelChecker.configPolicy(CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+		coreRebecaModelChecker.configTransitionGraph(true);
+		Assertions.assertThrows(ModelCheckingException.class,
+				() -> coreRebecaModelChecker.modelCheck(model, extension, CoreVersion.CORE_2_3));
+		State initialState = coreRebecaModelChecker.getStateSpace().getInitialState();
+
+		coreRebecaModelChecker.configSearchStrategy(CoreRebecaModelChecker.SWARM_SEARCH);
+		coreRebecaModelChecker.configSwarm(4, CoreRebecaModelChecker.DEFAULT_SWARM_BITSTATE_SIZE, 0);
+		CounterexampleException counterexample = Assertions.assertThrows(CounterexampleException.class,
+				() -> coreRebecaModelChecker.modelCheck(model, extension, CoreVersion.CORE_2_3));
+
+		Assertions.assertTrue(counterexample.getMessage().startsWith("Deadlock"));
+		Assertions.assertFalse(counterexample.getTrace().isEmpty());
+		Assertions.assertTrue(replay(initialState, counterexample.getTrace()).getChildStates().isEmpty());
+	}
+
+	@Test
+	public void GIVEN_DiningPhilosophersModel_WHEN_DistributedSearchHasOneNode_THEN_BreadthFirstStatesCount() throws ModelCheckingException {
+		int breadthFirstStates = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY).size();
+
+		coreRebecaModelChecker.configSearchStrategy(CoreRebecaModelChecker.DISTRIBUTED_SEARCH);
+		StateSpace stateSpace = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+
+		Assertions.assertEquals(breadthFirstStates, stateSpace.size());
+	}
+
+	/*
+	 * Each node counts the states of its own partition only; the states it reaches in the
+	 * other partitions are taken for visited ones and counted by their owners, so only the
+	 * counts of all the nodes together are compared with the breadth first search.
+	 */
+	@Test
+	public void GIVEN_DiningPhilosophersModel_WHEN_DistributedSearchHasThreeNodes_THEN_NodesShareTheBreadthFirstStates() throws ModelCheckingException, IOException {
+		int breadthFirstStates = modelCheck("DiningPhilosophers.rebeca", CoreRebecaModelChecker.COARSE_GRAINED_POLICY).size();
+		File model = new File(MODEL_FILES_BASE + "DiningPhilosophers.rebeca");
+		List<ServerSocket> serverSockets = new ArrayList<>();
+		try {
+			List<InetSocketAddress> nodeAddresses = new ArrayList<>();
+			for (int node = 0; node < 3; node++) {
+				ServerSocket serverSocket = new ServerSocket(0, 3, InetAddress.getLoopbackAddress());
+				serverSockets.add(serverSocket);
+				nodeAddresses.add((InetSocketAddress) serverSocket.getLocalSocketAddress());
+			}
+
+			Assertions.assertTimeoutPreemptively(Duration.ofMinutes(1), () -> {
+				ExecutorService executor = Executors.newFixedThreadPool(nodeAddresses.size());
+				try {
+					List<Future<Integer>> nodes = new ArrayList<>();
+					for (int node = 0; node < nodeAddresses.size(); node++) {
+						int nodeId = node;
+						nodes.add(executor.submit(() -> searchOnNode(model, nodeId, nodeAddresses, serverSockets.get(nodeId))));
+					}
+					int statesCount = 0;
+					for (Future<Integer> node : nodes)
+						statesCount += node.get();
+					Assertions.assertEquals(breadthFirstStates, statesCount);
+				} finally {
+					executor.shutdownNow();
+				}
+			});
+		} finally {
+			for (ServerSocket serverSocket : serverSockets)
+				serverSocket.close();
+		}
+	}
+
+	private StateSpace modelCheck(String modelFile, String policy) throws ModelCheckingException {
+		Set<CompilerExtension> extension = new HashSet<>();
+		coreRebecaModelChecker.configPolicy(policy);
+		coreRebecaModelChecker.modelCheck(new File(MODEL_FILES_BASE + modelFile), extension, CoreVersion.CORE_2_3);
+
+		Assertions.assertTrue(exceptionContainer.exceptionsIsEmpty());
+		return coreRebecaModelChecker.getStateSpace();
+	}
+
+	/*
+	 * Runs one node of a distributed search with a model checker of its own, as the node
+	 * would in a process of its own; returns the number of states of its partition.
+	 */
+	private static int searchOnNode(File model, int nodeId, List<InetSocketAddress> nodeAddresses,
+			ServerSocket serverSocket) throws ModelCheckingException {
+		try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(
+				CompilerConfig.class, ModelCheckerConfig.class, ModelTransformerConfig.class)) {
+			CoreRebecaModelChecker modelChecker = context.getBean("coreRebecaModelChecker", CoreRebecaModelChecker.class);
+			modelChecker.configPolicy(CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+			modelChecker.configSearchStrategy(CoreRebecaModelChecker.DISTRIBUTED_SEARCH);
+			modelChecker.configDistributedSearch(nodeId, nodeAddresses, serverSocket);
+			modelChecker.modelCheck(model, new HashSet<>(), CoreVersion.CORE_2_3);
+			Assertions.assertTrue(context.getBean(ExceptionContainer.class).exceptionsIsEmpty());
+			return modelChecker.getStateSpace().size();
+		}
+	}
+
+	private static List<String> fileNames(File directory) {
+		List<String> fileNames = new ArrayList<>();
+		File[] files = directory.listFiles();
+		if (files == null)
+			return fileNames;
+		for (File file : files) {
+			if (file.isDirectory())
+				fileNames.addAll(fileNames(file));
+			else
+				fileNames.add(file.getName());
+		}
+		return fileNames;
+	}
+
+	private static Set<State> states(State initialState) {
+		Set<State> visited = new HashSet<>();
+		Deque<State> frontier = new ArrayDeque<>();
+		visited.add(initialState);
+		frontier.add(initialState);
+		while (!frontier.isEmpty())
+			for (Pair<String, State> child : frontier.poll().getChildStates())
+				if (visited.add(child.getSecond()))
+					frontier.add(child.getSecond());
+		return visited;
+	}
+
+	/*
+	 * Returns the state reached from the initial state by the transitions of the trace.
+	 */
+	private static State replay(State initialState, List<String> trace) {
+		State state = initialState;
+		for (String transitionLabel : trace) {
+			State nextState = null;
+			for (Pair<String, State> child : state.getChildStates())
+				if (child.getFirst().equals(transitionLabel))
+					nextState = child.getSecond();
+			Assertions.assertNotNull(nextState, "No transition " + transitionLabel + " from state " + state.getId());
+			state = nextState;
+		}
+		return state;
+	}
+
+	private static Set<Long> fingerprints(State initialState) {
+		Set<Long> fingerprints = new HashSet<>();
+		for (State state : states(initialState))
+			fingerprints.add(state.fingerprint());
+		return fingerprints;
+	}
+
+	private static int transitionsCount(State initialState) {
+		int transitionsCount = 0;
+		for (State state : states(initialState))
+			transitionsCount += state.getChildStates().size();
+		return transitionsCount;
+	}
+
+	private static List<String> transitions(State initialState) {
+		List<String> transitions = new ArrayList<>();
+		Set<State> visited = new HashSet<>();
+		Deque<State> frontier = new ArrayDeque<>();
+		visited.add(initialState);
+		frontier.add(initialState);
+		while (!frontier.isEmpty()) {
+			State state = frontier.poll();
+			for (Pair<String, State> child : state.getChildStates()) {
+				transitions.add(state.fingerprint() + " " + child.getFirst() + " " + child.getSecond().fingerprint());
+				if (visited.add(child.getSecond()))
+					frontier.add(child.getSecond());
+			}
+		}
+		Collections.sort(transitions);
+		return transitions;
+	}
 }
@@ -1,20 +1,25 @@
 package org.rebecalang.modelchecker;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.rebecalang.compiler.CompilerConfig;
 import org.rebecalang.compiler.utils.CompilerExtension;
 import org.rebecalang.compiler.utils.CoreVersion;
 import org.rebecalang.compiler.utils.ExceptionContainer;
+import org.rebecalang.compiler.utils.Pair;
 import org.rebecalang.modelchecker.corerebeca.CoreRebecaModelChecker;
 import org.rebecalang.modelchecker.corerebeca.ModelCheckingException;
+import org.rebecalang.modelchecker.corerebeca.State;
 import org.rebecalang.modeltransformer.ModelTransformerConfig;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
 
 import java.io.File;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -29,6 +34,11 @@ public class InheritanceTest {
     @Autowired
     public ExceptionContainer exceptionContainer;
 
+    @AfterEach
+    public void resetConfiguration() {
+        coreRebecaModelChecker.configTransitionGraph(false);
+    }
+
     @Test
     public void useParentStateVarsInChildTest() throws ModelCheckingException {
         File model = new File(MODEL_FILES_BASE + "use_parent_statevars_in_child.rebeca");
@@ -130,6 +140,35 @@ public class InheritanceTest {
         Assertions.assertTrue(exceptionContainer.exceptionsIsEmpty());
     }
 
+    @Test
+    public void methodsCalledFromNestedBlocksSeeTheirClassVariables() throws ModelCheckingException {
+        File model = new File(MODEL_FILES_BASE + "method_scopes.rebeca");
+        Set<CompilerExtension> extension = new HashSet<>();
+        coreRebecaModelChecker.configPolicy(CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+        coreRebecaModelChecker.configTransitionGraph(true);
+        coreRebecaModelChecker.modelCheck(model, extension, CoreVersion.CORE_2_3);
+        printExceptions();
+        Assertions.assertTrue(exceptionContainer.exceptionsIsEmpty());
+
+        Set<Object> seenByBase = new HashSet<>();
+        Set<Object> seenByDerived = new HashSet<>();
+        Set<State> visited = new HashSet<>();
+        Deque<State> frontier = new ArrayDeque<>();
+        State initialState = coreRebecaModelChecker.getStateSpace().getInitialState();
+        visited.add(initialState);
+        frontier.add(initialState);
+        while (!frontier.isEmpty()) {
+            State state = frontier.poll();
+            seenByBase.add(state.getActorState("base").retrieveVariableValue("seen"));
+            seenByDerived.add(state.getActorState("derived").retrieveVariableValue("seen"));
+            for (Pair<String, State> child : state.getChildStates())
+                if (visited.add(child.getSecond()))
+                    frontier.add(child.getSecond());
+        }
+        Assertions.assertEquals(Set.of(0, 1), seenByBase);
+        Assertions.assertEquals(Set.of(0, 2), seenByDerived);
+    }
+
     private void printExceptions() {
         Collection<Set<Exception>> exceptions = exceptionContainer.getExceptions().values();
         for (Set<Exception> exceptionCollection : exceptions) {
@@ -1,13 +1,16 @@
 package org.rebecalang.modelchecker;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.rebecalang.compiler.CompilerConfig;
 import org.rebecalang.compiler.utils.CompilerExtension;
 import org.rebecalang.compiler.utils.CoreVersion;
 import org.rebecalang.compiler.utils.ExceptionContainer;
+import org.rebecalang.compiler.utils.Pair;
 import org.rebecalang.modelchecker.corerebeca.CoreRebecaModelChecker;
 import org.rebecalang.modelchecker.corerebeca.ModelCheckingException;
+import org.rebecalang.modelchecker.corerebeca.State;
 import org.rebecalang.modelchecker.timedrebeca.TimedRebecaModelChecker;
 import org.rebecalang.modeltransformer.ModelTransformerConfig;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,6 +18,7 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
@@ -30,6 +34,12 @@ public class TimedRebecaTest {
     @Autowired
     public ExceptionContainer exceptionContainer;
 
+    @AfterEach
+    public void resetConfiguration() throws ModelCheckingException {
+        timedRebecaModelChecker.configSearchStrategy(CoreRebecaModelChecker.BREADTH_FIRST_SEARCH);
+        timedRebecaModelChecker.configTransitionGraph(false);
+    }
+
     @Test
     public void testPingPong() throws ModelCheckingException {
         File model = new File(MODEL_FILES_BASE + "ping_pong.rebeca");
@@ -41,6 +51,21 @@ public class TimedRebecaTest {
         Assertions.assertTrue(exceptionContainer.exceptionsIsEmpty());
     }
 
+    @Test
+    public void testPingPongDepthFirst() throws ModelCheckingException {
+        File model = new File(MODEL_FILES_BASE + "ping_pong.rebeca");
+        Set<CompilerExtension> extension = new HashSet<>();
+        extension.add(CompilerExtension.TIMED_REBECA);
+        timedRebecaModelChecker.configPolicy(CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+        int breadthFirstStates = statesCount(model, extension);
+
+        timedRebecaModelChecker.configSearchStrategy(CoreRebecaModelChecker.DEPTH_FIRST_SEARCH);
+        int depthFirstStates = statesCount(model, extension);
+
+        Assertions.assertTrue(exceptionContainer.exceptionsIsEmpty());
+        Assertions.assertEquals(breadthFirstStates, depthFirstStates);
+    }
+
     @Test
     public void testDynamicPolymorphism() throws ModelCheckingException {
         File model = new File(MODEL_FILES_BASE + "dynamic_polymorphism_in_time.rebeca");
@@ -52,6 +77,38 @@ public class TimedRebecaTest {
         Assertions.assertTrue(exceptionContainer.exceptionsIsEmpty());
     }
 
+    @Test
+    public void testChoiceAfterDelay() throws ModelCheckingException {
+        File model = new File(MODEL_FILES_BASE + "choice_after_delay.rebeca");
+        Set<CompilerExtension> extension = new HashSet<>();
+        extension.add(CompilerExtension.TIMED_REBECA);
+        timedRebecaModelChecker.configPolicy(CoreRebecaModelChecker.COARSE_GRAINED_POLICY);
+        timedRebecaModelChecker.configTransitionGraph(true);
+        /* The tick sent at time 3 is taken at time 4, after its deadline */
+        Assertions.assertThrows(ModelCheckingException.class,
+                () -> timedRebecaModelChecker.modelCheck(model, extension, CoreVersion.CORE_2_3));
+        Assertions.assertTrue(exceptionContainer.exceptionsIsEmpty());
+
+        State delayedState = timedRebecaModelChecker.getStateSpace().getInitialState().getChildStates().get(0).getSecond();
+        Set<Object> ticks = new HashSet<>();
+        for (Pair<String, State> resumedState : delayedState.getChildStates())
+            ticks.add(resumedState.getSecond().getActorState("clock").retrieveVariableValue("ticks"));
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(1, 2)), ticks);
+    }
+
+    /*
+     * Returns the number of states visited by the search, which may end with a deadline
+     * miss or a deadlock.
+     */
+    private int statesCount(File model, Set<CompilerExtension> extension) {
+        try {
+            timedRebecaModelChecker.modelCheck(model, extension, CoreVersion.CORE_2_3);
+        } catch (ModelCheckingException e) {
+            System.out.println(e.getMessage());
+        }
+        return timedRebecaModelChecker.getStateSpace().size();
+    }
+
     private void printExceptions() {
         Collection<Set<Exception>> exceptions = exceptionContainer.getExceptions().values();
         for (Set<Exception> exceptionCollection : exceptions) {